@@ -0,0 +1,163 @@
+package ast;
+
+/**
+ * An expression of the lowered tree, with the type it was given by Lowering
+ */
+public abstract class Expr extends Node {
+    private final Type type;
+
+    Expr(long pos, Type type) {
+        super(pos);
+        this.type = type;
+    }
+
+    /**
+     * @return the type of the value, or null if the expression does not type check
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * A variable or parameter, read from its slot in the function's frame
+     */
+    public static final class Var extends Expr {
+        private final String name;
+        private final int slot;
+
+        Var(long pos, Type type, String name, int slot) {
+            super(pos, type);
+            this.name = name;
+            this.slot = slot;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the index of the variable in Function.getSlotNames(), or -1 if it is not declared
+         */
+        public int getSlot() {
+            return slot;
+        }
+    }
+
+    /**
+     * An Integer literal, a leading '-' already applied
+     */
+    public static final class IntLiteral extends Expr {
+        private final long value;
+
+        IntLiteral(long pos, long value) {
+            super(pos, Type.INTEGER);
+            this.value = value;
+        }
+
+        public long getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A Double literal, a leading '-' already applied
+     */
+    public static final class DoubleLiteral extends Expr {
+        private final double value;
+
+        DoubleLiteral(long pos, double value) {
+            super(pos, Type.DOUBLE);
+            this.value = value;
+        }
+
+        public double getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * A String literal
+     */
+    public static final class StringLiteral extends Expr {
+        private final String value;
+
+        StringLiteral(long pos, String value) {
+            super(pos, Type.STRING);
+            this.value = value;
+        }
+
+        /**
+         * @return the characters between the quotes
+         */
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * True or False
+     */
+    public static final class BoolLiteral extends Expr {
+        private final boolean value;
+
+        BoolLiteral(long pos, boolean value) {
+            super(pos, Type.BOOLEAN);
+            this.value = value;
+        }
+
+        public boolean getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * operand op operand, positioned at the operator
+     */
+    public static final class Binary extends Expr {
+        private final Op op;
+        private final Expr left;
+        private final Expr right;
+
+        Binary(long pos, Type type, Op op, Expr left, Expr right) {
+            super(pos, type);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        public Op getOp() {
+            return op;
+        }
+
+        public Expr getLeft() {
+            return left;
+        }
+
+        public Expr getRight() {
+            return right;
+        }
+    }
+
+    /**
+     * A function call, as an operand or as a statement. Its type is the
+     * function's return type.
+     */
+    public static final class Call extends Expr implements Stmt {
+        private final String name;
+        private final Expr[] args;
+
+        Call(long pos, Type type, String name, Expr[] args) {
+            super(pos, type);
+            this.name = name;
+            this.args = args;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Expr[] getArgs() {
+            return args;
+        }
+    }
+}
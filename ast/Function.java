@@ -0,0 +1,50 @@
+package ast;
+
+/**
+ * A lowered function definition. Parameters and local variables share one
+ * frame of slots: the parameters first, in order, then the locals in the
+ * order they are declared.
+ */
+public final class Function extends Node {
+    private final String name;
+    private final Type returnType;
+    private final int paramCount;
+    private final String[] slotNames;
+    private final Type[] slotTypes;
+    private final Stmt[] body;
+
+    Function(long pos, String name, Type returnType, int paramCount, String[] slotNames, Type[] slotTypes,
+            Stmt[] body) {
+        super(pos);
+        this.name = name;
+        this.returnType = returnType;
+        this.paramCount = paramCount;
+        this.slotNames = slotNames;
+        this.slotTypes = slotTypes;
+        this.body = body;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getReturnType() {
+        return returnType;
+    }
+
+    public int getParamCount() {
+        return paramCount;
+    }
+
+    public String[] getSlotNames() {
+        return slotNames;
+    }
+
+    public Type[] getSlotTypes() {
+        return slotTypes;
+    }
+
+    public Stmt[] getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,226 @@
+package ast;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import parser.AsmtNode;
+import parser.BinaryExpressionNode;
+import parser.BodyNode;
+import parser.BoolNode;
+import parser.ElseIfNode;
+import parser.ExpressionNode;
+import parser.FBodyNode;
+import parser.FunctionCallNode;
+import parser.FunctionDefNode;
+import parser.FunctionDefParamsNode;
+import parser.IDNode;
+import parser.IfStmtNode;
+import parser.NumberNode;
+import parser.ProgramNode;
+import parser.ReturnStmtNode;
+import parser.StringLiteralNode;
+import parser.VarDecNode;
+import parser.WhileLoopNode;
+import provided.JottTree;
+import provided.NumberKind;
+import provided.Token;
+
+/**
+ * Lowers a parse tree into the lean typed tree of this package.
+ *
+ * The parse tree keeps what the grammar needed: FBodyNode, BodyStmtNode,
+ * the params and return type wrappers, the isFunctionCall flags of a body,
+ * an ElseNode for every If, and a Token in most nodes. The lowered tree
+ * keeps only what a later pass needs: children are arrays, operators are an
+ * Op, variables are resolved to a frame slot, every expression has a Type
+ * and every node a position packed into one long by Pos. Names are shared
+ * across the program, so the tree does not keep the tokens or the source
+ * alive.
+ *
+ * Lowering does not check the program, run validateTree for that. An
+ * expression that does not type check gets a null type, and a variable that
+ * is not declared gets slot -1.
+ */
+public final class Lowering {
+
+    // the functions ProgramNode registers before validating
+    private static final String[][] BUILTINS = {
+        {"print", "Void"},
+        {"concat", "String"},
+        {"length", "Integer"},
+    };
+
+    private final HashMap<String, Type> returnTypes = new HashMap<>();
+    private final HashMap<String, String> names = new HashMap<>();
+
+    // the frame of the function being lowered
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private final ArrayList<Type> slotTypes = new ArrayList<>();
+
+    private Lowering() {
+        for (String[] builtin : BUILTINS) {
+            returnTypes.put(builtin[0], Type.of(builtin[1]));
+        }
+    }
+
+    /**
+     * Lowers a whole program, parsing any function body that is still unparsed
+     * @param program the parse tree
+     * @return the lowered program
+     */
+    public static Program lower(ProgramNode program) {
+        Lowering lowering = new Lowering();
+        List<FunctionDefNode> defs = program.getFunctionDefs();
+        for (FunctionDefNode def : defs) {
+            lowering.returnTypes.putIfAbsent(def.getId().getName(),
+                    Type.of(def.getReturnType().getReturnTypeToken().getToken()));
+        }
+        Function[] functions = new Function[defs.size()];
+        for (int i = 0; i < functions.length; i++) {
+            functions[i] = lowering.function(defs.get(i));
+        }
+        return new Program(functions);
+    }
+
+    private Function function(FunctionDefNode def) {
+        slots.clear();
+        slotTypes.clear();
+        List<FunctionDefParamsNode.ParamDecl> params = def.getParams().getParamEntries();
+        for (FunctionDefParamsNode.ParamDecl p : params) {
+            declare(p.getNameToken().getToken(), p.getTypeToken().getToken());
+        }
+        FBodyNode fbody = def.getBody();
+        for (VarDecNode v : fbody.getVarDecs()) {
+            declare(v.getId().getName(), v.getTypeNode().getToken().getToken());
+        }
+        Stmt[] body = body(fbody.getBody());
+
+        String[] slotNames = new String[slotTypes.size()];
+        for (Map.Entry<String, Integer> e : slots.entrySet()) {
+            slotNames[e.getValue()] = e.getKey();
+        }
+        IDNode id = def.getId();
+        return new Function(Pos.of(id.getToken()), name(id.getName()), returnTypes.get(id.getName()), params.size(),
+                slotNames, slotTypes.toArray(new Type[0]), body);
+    }
+
+    // a variable gets the next slot, a second declaration of the same name keeps the first one
+    private void declare(String name, String type) {
+        if (!slots.containsKey(name)) {
+            slots.put(name(name), slotTypes.size());
+            slotTypes.add(Type.of(type));
+        }
+    }
+
+    private String name(String s) {
+        String shared = names.putIfAbsent(s, s);
+        return shared == null ? s : shared;
+    }
+
+    private Stmt[] body(BodyNode body) {
+        ArrayList<JottTree> statements = body.getStatements();
+        ReturnStmtNode ret = body.getReturnStmt();
+        boolean hasReturn = ret != null && !ret.isEmptyReturn();
+        Stmt[] lowered = new Stmt[statements.size() + (hasReturn ? 1 : 0)];
+        for (int i = 0; i < statements.size(); i++) {
+            lowered[i] = statement(statements.get(i));
+        }
+        if (hasReturn) {
+            Expr value = expression(ret.getExpression());
+            lowered[lowered.length - 1] = new Stmt.Return(Pos.of(ret.getReturnToken()), value);
+        }
+        return lowered;
+    }
+
+    private Stmt statement(JottTree node) {
+        if (node instanceof AsmtNode) {
+            AsmtNode asmt = (AsmtNode) node;
+            IDNode id = asmt.getId();
+            Integer slot = slots.get(id.getName());
+            return new Stmt.Assign(Pos.of(id.getToken()), name(id.getName()), slot == null ? -1 : slot,
+                    expression(asmt.getExpression()));
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof WhileLoopNode) {
+            WhileLoopNode loop = (WhileLoopNode) node;
+            return new Stmt.While(Pos.of(loop.getWhileToken()), expression(loop.getCondition()), body(loop.getBody()));
+        }
+        if (node instanceof IfStmtNode) {
+            IfStmtNode ifStmt = (IfStmtNode) node;
+            ArrayList<ElseIfNode> elseIfs = ifStmt.getElseIfList();
+            Expr[] conditions = new Expr[elseIfs.size() + 1];
+            Stmt[][] bodies = new Stmt[conditions.length][];
+            conditions[0] = expression(ifStmt.getCondition());
+            bodies[0] = body(ifStmt.getThenBody());
+            for (int i = 0; i < elseIfs.size(); i++) {
+                conditions[i + 1] = expression(elseIfs.get(i).getCondition());
+                bodies[i + 1] = body(elseIfs.get(i).getBody());
+            }
+            Stmt[] elseBody = ifStmt.getElseNode().isPresent() ? body(ifStmt.getElseNode().getBody()) : null;
+            return new Stmt.If(conditions[0].getPos(), conditions, bodies, elseBody);
+        }
+        throw new IllegalArgumentException("not a body statement: " + node.getClass().getSimpleName());
+    }
+
+    private Expr.Call call(FunctionCallNode node) {
+        List<ExpressionNode> params = node.getParams().getArgs();
+        Expr[] args = new Expr[params.size()];
+        for (int i = 0; i < args.length; i++) {
+            args[i] = expression(params.get(i));
+        }
+        String name = node.getFunctionName().getName();
+        return new Expr.Call(Pos.of(node.getHeaderToken()), returnTypes.get(name), name(name), args);
+    }
+
+    private Expr expression(ExpressionNode node) {
+        if (node instanceof IDNode) {
+            IDNode id = (IDNode) node;
+            Integer slot = slots.get(id.getName());
+            return new Expr.Var(Pos.of(id.getToken()), slot == null ? null : slotTypes.get(slot), name(id.getName()),
+                    slot == null ? -1 : slot);
+        }
+        if (node instanceof NumberNode) {
+            NumberNode number = (NumberNode) node;
+            long pos = Pos.of(number.getToken());
+            if (number.getKind() == NumberKind.INTEGER) {
+                return new Expr.IntLiteral(pos, number.getLongValue());
+            }
+            return new Expr.DoubleLiteral(pos, number.getDoubleValue());
+        }
+        if (node instanceof StringLiteralNode) {
+            StringLiteralNode string = (StringLiteralNode) node;
+            return new Expr.StringLiteral(Pos.of(string.getToken()), string.getContents().toString());
+        }
+        if (node instanceof BoolNode) {
+            BoolNode bool = (BoolNode) node;
+            return new Expr.BoolLiteral(Pos.of(bool.getToken()), bool.getValue());
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof BinaryExpressionNode) {
+            BinaryExpressionNode binary = (BinaryExpressionNode) node;
+            Token operator = binary.getOperatorToken();
+            Op op = Op.of(operator.getToken());
+            Expr left = expression(binary.getLeft());
+            Expr right = expression(binary.getRight());
+            return new Expr.Binary(Pos.of(operator), binaryType(op, left.getType(), right.getType()), op, left, right);
+        }
+        throw new IllegalArgumentException("not an expression: " + node.getClass().getSimpleName());
+    }
+
+    // the same rules as BinaryExpressionNode.getType
+    private static Type binaryType(Op op, Type left, Type right) {
+        if (op == null || left == null || left != right) {
+            return null;
+        }
+        if (op.isRelational()) {
+            return !op.isOrdering() || left.isNumeric() ? Type.BOOLEAN : null;
+        }
+        return left.isNumeric() ? left : null;
+    }
+}
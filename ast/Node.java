@@ -0,0 +1,27 @@
+package ast;
+
+/**
+ * A node of the lowered tree, see Lowering
+ */
+public abstract class Node {
+    private final long pos;
+
+    Node(long pos) {
+        this.pos = pos;
+    }
+
+    /**
+     * @return the source position packed by Pos
+     */
+    public long getPos() {
+        return pos;
+    }
+
+    public int getLine() {
+        return Pos.line(pos);
+    }
+
+    public int getColumn() {
+        return Pos.column(pos);
+    }
+}
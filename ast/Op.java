@@ -0,0 +1,58 @@
+package ast;
+
+/**
+ * The operator of a binary expression
+ */
+public enum Op {
+    ADD("+", false),
+    SUBTRACT("-", false),
+    MULTIPLY("*", false),
+    DIVIDE("/", false),
+    LESS("<", true),
+    LESS_EQUAL("<=", true),
+    GREATER(">", true),
+    GREATER_EQUAL(">=", true),
+    EQUAL("==", true),
+    NOT_EQUAL("!=", true),
+    LESS_GREATER("<>", true);
+
+    private final String text;
+    private final boolean relational;
+
+    Op(String text, boolean relational) {
+        this.text = text;
+        this.relational = relational;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return true for a relop, whose result is a Boolean; false for a mathop
+     */
+    public boolean isRelational() {
+        return relational;
+    }
+
+    /**
+     * @return true for <, <=, > and >=, which only compare numbers
+     */
+    public boolean isOrdering() {
+        return this == LESS || this == LESS_EQUAL || this == GREATER || this == GREATER_EQUAL;
+    }
+
+    /**
+     * Looks up an operator by its token
+     * @param text the text of a REL_OP or MATH_OP token
+     * @return the operator, or null if text is not one
+     */
+    public static Op of(String text) {
+        for (Op op : values()) {
+            if (op.text.equals(text)) {
+                return op;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,45 @@
+package ast;
+
+import provided.Token;
+
+/**
+ * Source positions packed into a long: the line in the high 32 bits and the
+ * column in the low 32 bits, so a node keeps its position without holding on
+ * to a Token.
+ */
+public final class Pos {
+    /**
+     * The position of a node with no source token
+     */
+    public static final long NONE = 0;
+
+    private Pos() {
+    }
+
+    public static long of(int line, int column) {
+        return (long) line << 32 | (column & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param token a token, may be null
+     * @return the position of its first character, or NONE for null
+     */
+    public static long of(Token token) {
+        return token == null ? NONE : of(token.getLineNum(), token.getColumn());
+    }
+
+    public static int line(long pos) {
+        return (int) (pos >>> 32);
+    }
+
+    public static int column(long pos) {
+        return (int) pos;
+    }
+
+    /**
+     * @return "line:column"
+     */
+    public static String toString(long pos) {
+        return line(pos) + ":" + column(pos);
+    }
+}
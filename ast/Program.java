@@ -0,0 +1,32 @@
+package ast;
+
+/**
+ * A lowered Jott program, made by Lowering.lower
+ */
+public final class Program {
+    private final Function[] functions;
+
+    Program(Function[] functions) {
+        this.functions = functions;
+    }
+
+    /**
+     * @return the function definitions in source order
+     */
+    public Function[] getFunctions() {
+        return functions;
+    }
+
+    /**
+     * @param name a function name
+     * @return the first function with that name, or null if there is none
+     */
+    public Function getFunction(String name) {
+        for (Function f : functions) {
+            if (f.getName().equals(name)) {
+                return f;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,112 @@
+package ast;
+
+/**
+ * A statement of the lowered tree. A body is a Stmt[] that ends with its
+ * Return, if it has one; a call statement is an Expr.Call.
+ */
+public interface Stmt {
+
+    long getPos();
+
+    /**
+     * id = expr;
+     */
+    final class Assign extends Node implements Stmt {
+        private final String name;
+        private final int slot;
+        private final Expr value;
+
+        Assign(long pos, String name, int slot, Expr value) {
+            super(pos);
+            this.name = name;
+            this.slot = slot;
+            this.value = value;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the index of the variable in Function.getSlotNames(), or -1 if it is not declared
+         */
+        public int getSlot() {
+            return slot;
+        }
+
+        public Expr getValue() {
+            return value;
+        }
+    }
+
+    /**
+     * An If with its Elseifs and Else flattened: conditions[i] guards
+     * bodies[i], the If's own condition being first. Positioned at the
+     * If's condition.
+     */
+    final class If extends Node implements Stmt {
+        private final Expr[] conditions;
+        private final Stmt[][] bodies;
+        private final Stmt[] elseBody;
+
+        If(long pos, Expr[] conditions, Stmt[][] bodies, Stmt[] elseBody) {
+            super(pos);
+            this.conditions = conditions;
+            this.bodies = bodies;
+            this.elseBody = elseBody;
+        }
+
+        public Expr[] getConditions() {
+            return conditions;
+        }
+
+        public Stmt[][] getBodies() {
+            return bodies;
+        }
+
+        /**
+         * @return the Else body, or null if there is no Else
+         */
+        public Stmt[] getElseBody() {
+            return elseBody;
+        }
+    }
+
+    /**
+     * While[condition]{ body }
+     */
+    final class While extends Node implements Stmt {
+        private final Expr condition;
+        private final Stmt[] body;
+
+        While(long pos, Expr condition, Stmt[] body) {
+            super(pos);
+            this.condition = condition;
+            this.body = body;
+        }
+
+        public Expr getCondition() {
+            return condition;
+        }
+
+        public Stmt[] getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Return expr; only present when the source has one
+     */
+    final class Return extends Node implements Stmt {
+        private final Expr value;
+
+        Return(long pos, Expr value) {
+            super(pos);
+            this.value = value;
+        }
+
+        public Expr getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package ast;
+
+/**
+ * The type of a Jott value, or VOID for a function that returns nothing
+ */
+public enum Type {
+    INTEGER("Integer"),
+    DOUBLE("Double"),
+    STRING("String"),
+    BOOLEAN("Boolean"),
+    VOID("Void");
+
+    private final String name;
+
+    Type(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @return the type as it is written in Jott, e.g. "Integer"
+     */
+    public String getName() {
+        return name;
+    }
+
+    public boolean isNumeric() {
+        return this == INTEGER || this == DOUBLE;
+    }
+
+    /**
+     * Looks up a type by its Jott name
+     * @param name a type name such as "Integer" or "Void"
+     * @return the type, or null if name is not one
+     */
+    public static Type of(String name) {
+        for (Type t : values()) {
+            if (t.name.equals(name)) {
+                return t;
+            }
+        }
+        return null;
+    }
+}
@@ -1,9 +1,8 @@
 package parser;
 
-import java.util.ArrayList;
-
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.*;
 
@@ -17,7 +16,7 @@ public class AsmtNode implements JottTree {
 		this.expr = expr;
     }
 
-    public static AsmtNode parseAsmtNode(ArrayList<Token> tokens) {
+    public static AsmtNode parseAsmtNode(TokenCursor tokens) {
 		// parse id section
         if (tokens == null || tokens.isEmpty()) {
             throw new ParseException("parseAsmtNode: Expected id but no tokens available", null);
@@ -31,11 +30,11 @@ public class AsmtNode implements JottTree {
 		if (tokens.isEmpty()) {
 			throw new ParseException("parseAsmtNode: Expected '=' but no tokens available", null);
 		}
-		Token assignToken = tokens.get(0);
-		if (!assignToken.getTokenType().equals(TokenType.ASSIGN)) {
+		if (tokens.peekType() != TokenType.ASSIGN) {
+			Token assignToken = tokens.peek();
 			throw new ParseException("parseAsmtNode: Expected '=', but got '" + assignToken.getToken() + "'", assignToken);
 		}
-		tokens.remove(0);
+		tokens.advance();
 
 		// parse expression section
 		if (tokens.isEmpty()) {		
@@ -50,11 +49,11 @@ public class AsmtNode implements JottTree {
 		if (tokens.isEmpty()) {
 			throw new ParseException("parseAsmtNode: Expected ';' but no tokens available", null);
 		}
-		Token semiToken = tokens.get(0);
-		if (!semiToken.getTokenType().equals(TokenType.SEMICOLON)) {
+		if (tokens.peekType() != TokenType.SEMICOLON) {
+			Token semiToken = tokens.peek();
 			throw new ParseException("parseAsmtNode: Expected ';', but got '" + semiToken.getToken() + "'", semiToken);
 		}
-		tokens.remove(0);
+		tokens.advance();
 
 		// create AsmtNode
 		return new AsmtNode(id, expr);	
@@ -78,17 +77,22 @@ public class AsmtNode implements JottTree {
 
 	@Override
 	public boolean validateTree() {
-		expr.validateTree();
+		return validateTree(new SymbolTable());
+	}
+
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		expr.validateTree(symbolTable);
 		id.validateTree();
 
 		// check if variable is declared
 		String varName = id.getName();
-		if (!SymbolTable.variableExists(varName)) {
+		if (!symbolTable.variableExists(varName)) {
 			throw new SemanticException("AsmtNode: Variable '" + varName + "' is not declared.", null);
 		}
 		
-		String varType = SymbolTable.getVariableType(varName);
-		String exprType = expr.getType(SymbolTable.globalSymbolTable);
+		String varType = symbolTable.getVariableType(varName);
+		String exprType = expr.getType(symbolTable);
 
 
 		// check if types match
@@ -97,7 +101,7 @@ public class AsmtNode implements JottTree {
 		}
 
 		// mark variable as initialized
-		SymbolTable.initializeVariable(varName);
+		symbolTable.initializeVariable(varName);
 		return true;
 	}
 
@@ -112,4 +116,12 @@ public class AsmtNode implements JottTree {
 		// TODO: Implement conversion logic
 		return "";
 	}
+
+	public IDNode getId() {
+		return id;
+	}
+
+	public ExpressionNode getExpression() {
+		return expr;
+	}
 }
@@ -0,0 +1,141 @@
+package parser;
+
+import provided.Token;
+import provided.TokenType;
+import semantics.SemanticException;
+import semantics.SymbolTable;
+
+/**
+ * An < operand > < relop|mathop > < operand > expression
+ */
+public class BinaryExpressionNode implements ExpressionNode {
+
+    private final OperandNode left;
+    private final Token operator;
+    private final OperandNode right;
+
+    public BinaryExpressionNode(OperandNode left, Token operator, OperandNode right) {
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    public OperandNode getLeft() {
+        return left;
+    }
+
+    /**
+     * @return the REL_OP or MATH_OP token between the operands
+     */
+    public Token getOperatorToken() {
+        return operator;
+    }
+
+    public OperandNode getRight() {
+        return right;
+    }
+
+    @Override
+    public String convertToJott() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(left.convertToJott());
+        sb.append(" " + operator.getToken() + " ");
+        sb.append(right.convertToJott());
+        return sb.toString();
+    }
+
+    @Override
+    public String getType(SymbolTable symbolTable) {
+        String opToken = operator.getToken();
+        String leftType = left.getType(symbolTable);
+        String rightType = right.getType(symbolTable);
+
+        if (leftType == null || rightType == null) {
+            return null;
+        }
+
+        if (!leftType.equals(rightType)) {
+            return null;
+        }
+
+        if (operator.getTokenType().equals(TokenType.REL_OP)) {
+            // Inequality comparisons require numeric operands
+            if (opToken.equals("<") || opToken.equals(">") ||
+                opToken.equals("<=") || opToken.equals(">=")) {
+                if (!"Integer".equals(leftType) && !"Double".equals(leftType)) {
+                    return null;
+                }
+            }
+            return "Boolean";
+        }
+        // For math operators, determine result type from operands
+        if (operator.getTokenType().equals(TokenType.MATH_OP)) {
+            if (!"Integer".equals(leftType) && !"Double".equals(leftType)) {
+                return null;
+            }
+            return leftType;
+        }
+        return null; // Type error
+    }
+
+    @Override
+    public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        String opToken = operator.getToken();
+        // Validate both operands
+        boolean ok = left.validateTree(symbolTable);
+        ok &= right.validateTree(symbolTable);
+
+        String leftType = left.getType(symbolTable);
+        String rightType = right.getType(symbolTable);
+
+        if (leftType == null || rightType == null) {
+            throw new SemanticException("ExpressionNode: Unable to determine operand types in expression.", null);
+        }
+
+        if (!leftType.equals(rightType)) {
+            throw new SemanticException("ExpressionNode: Type mismatch in expression. Left type '" + leftType
+                    + "', right type '" + rightType + "'.", null);
+        }
+
+        if (operator.getTokenType().equals(TokenType.MATH_OP)) {
+            if (!"Integer".equals(leftType) && !"Double".equals(leftType)) {
+                throw new SemanticException("ExpressionNode: Math operations require numeric operands.", null);
+            }
+        }
+
+        if (operator.getTokenType().equals(TokenType.REL_OP)) {
+            if ((opToken.equals("<") || opToken.equals(">") ||
+                    opToken.equals("<=") || opToken.equals(">=")) &&
+                    (!"Integer".equals(leftType) && !"Double".equals(leftType))) {
+                throw new SemanticException("ExpressionNode: Relational operator '" + opToken
+                        + "' requires numeric operands.", null);
+            }
+        }
+
+        if (getType(symbolTable) == null) {
+            throw new SemanticException("ExpressionNode: Invalid operand types for operator '" + opToken + "'.", null);
+        }
+
+        return ok;
+    }
+
+    @Override
+    public String convertToJava(String indentLevel) {
+        return null;
+    }
+
+    @Override
+    public String convertToC() {
+        return null;
+    }
+
+    @Override
+    public String convertToPython() {
+        return null;
+    }
+}
@@ -1,60 +1,48 @@
 package parser;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 
 import provided.*;
 import semantics.SemanticException;
+import semantics.SymbolTable;
 
 public class BodyNode implements JottTree {
 	private final ArrayList<JottTree> bodyStmtNodes;
-	private final ArrayList<Boolean> isFunctionCall;
+	private final BitSet isFunctionCall; // bit i is set if statement i is a function call
 	private final ReturnStmtNode returnStmt;
 
-	public BodyNode(ArrayList<JottTree> bodyStmtNodes, ArrayList<Boolean> isFunctionCall, ReturnStmtNode returnStmt) {
+	public BodyNode(ArrayList<JottTree> bodyStmtNodes, BitSet isFunctionCall, ReturnStmtNode returnStmt) {
 		this.bodyStmtNodes = bodyStmtNodes;
 		this.isFunctionCall = isFunctionCall;
 		this.returnStmt = returnStmt;
 	}
 
-	public static BodyNode parseBodyNode(ArrayList<Token> tokens) {
+	public static BodyNode parseBodyNode(TokenCursor tokens) {
 		// < body > -> < body_stmt >⋆ < return_stmt >
+		if (tokens.isIterativeBodies()) { // explicit-stack parsing, see BodyParser
+			return BodyParser.parseBody(tokens);
+		}
 		if (tokens.isEmpty()) {
 			throw new ParseException("parseBodyNode: Unexpected EOF while parsing <body>", null);
 		}
 
 		ArrayList<JottTree> bodyStmtNodes = new ArrayList<>(); // to keep track of all bodystatements
-		ArrayList<Boolean> isFunctionCall = new ArrayList<>(); // to track which statements are function calls
+		BitSet isFunctionCall = new BitSet(); // to track which statements are function calls
 		while (!tokens.isEmpty()) {
 			// lookahead, check if next token is a possible body statement.
-			Token token = tokens.get(0);
-			if (token.getToken().equals("If") ||
-					token.getToken().equals("While") ||
-					token.getTokenType() == TokenType.FC_HEADER ||
-					(token.getTokenType() == TokenType.ID_KEYWORD &&
-							!token.getToken().equals("Return") &&
-							!token.getToken().equals("Integer") &&
-							!token.getToken().equals("String") &&
-							!token.getToken().equals("Double") &&
-							!token.getToken().equals("Boolean"))) {
+			TokenType type = tokens.peekType();
+			if (startsBodyStmt(tokens, type)) {
 				JottTree bodyStmt = BodyStmtNode.parseBodyStmtNode(tokens);
 				bodyStmtNodes.add(bodyStmt);
 
 				// Track if this is a function call
-				boolean isFuncCall = (token.getTokenType() == TokenType.FC_HEADER);
-				isFunctionCall.add(isFuncCall);
+				boolean isFuncCall = (type == TokenType.FC_HEADER);
+				isFunctionCall.set(bodyStmtNodes.size() - 1, isFuncCall);
 
 				// If it's a function call, consume the semicolon
 				if (isFuncCall) {
-					if (tokens.isEmpty()) {
-						throw new ParseException("parseBodyNode: Expected ';' after function call", null);
-					}
-					Token semicolon = tokens.get(0);
-					if (semicolon.getTokenType() != TokenType.SEMICOLON) {
-						throw new ParseException(
-								"parseBodyNode: Expected ';' after function call, got '" + semicolon.getToken() + "'",
-								semicolon);
-					}
-					tokens.remove(0); // consume semicolon
+					parseCallEnd(tokens);
 				}
 			} else {
 				break; // else, it reached return_stmt or end of block
@@ -65,6 +53,38 @@ public class BodyNode implements JottTree {
 		return new BodyNode(bodyStmtNodes, isFunctionCall, returnStmt);
 	}
 
+	// true if the next token starts a < body_stmt >, by table lookup when table-driven parsing is on
+	static boolean startsBodyStmt(TokenCursor tokens, TokenType type) {
+		if (tokens.isTableDispatch()) {
+			return PredictiveParser.startsBodyStmt(tokens);
+		}
+		return isBodyStmtStart(type, tokens.peekKeyword());
+	}
+
+	// true if a token can start a < body_stmt >, anything else ends the statements of a body
+	static boolean isBodyStmtStart(TokenType type, Keyword keyword) {
+		return keyword == Keyword.IF ||
+				keyword == Keyword.WHILE ||
+				type == TokenType.FC_HEADER ||
+				(type == TokenType.ID_KEYWORD &&
+						keyword != Keyword.RETURN &&
+						(keyword == null || !keyword.isType()));
+	}
+
+	// the ; after a function call statement
+	static void parseCallEnd(TokenCursor tokens) {
+		if (tokens.isEmpty()) {
+			throw new ParseException("parseBodyNode: Expected ';' after function call", null);
+		}
+		if (tokens.peekType() != TokenType.SEMICOLON) {
+			Token semicolon = tokens.peek();
+			throw new ParseException(
+					"parseBodyNode: Expected ';' after function call, got '" + semicolon.getToken() + "'",
+					semicolon);
+		}
+		tokens.advance(); // consume semicolon
+	}
+
 	@Override
 	public String convertToJott() {
 		// < body > -> < body_stmt >⋆ < return_stmt >
@@ -98,16 +118,21 @@ public class BodyNode implements JottTree {
 	@Override
 	public boolean validateTree() {
 		// default to Void if caller doesn’t pass a type
-		return validateTree("Void");
+		return validateTree(new SymbolTable(), "Void");
+	}
+
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		return validateTree(symbolTable, "Void");
 	}
 
 	// used by FBodyNode / FunctionDefNode
-	public boolean validateTree(String expectedReturnType) {
+	public boolean validateTree(SymbolTable symbolTable, String expectedReturnType) {
 		boolean ok = true;
 
 		// validate each statement in the body
 		for (JottTree stmt : bodyStmtNodes) {
-			ok &= stmt.validateTree();
+			ok &= stmt.validateTree(symbolTable);
 		}
 
 		// Special case: if we're inside a while loop or if statement body, skip
@@ -120,24 +145,23 @@ public class BodyNode implements JottTree {
 		if (!"Void".equals(expectedReturnType)) {
 			// 1) if there is an explicit trailing return, validate it
 			if (returnStmt != null && !returnStmt.isEmptyReturn()) {
-				ok &= returnStmt.validateTree(expectedReturnType);
+				ok &= returnStmt.validateTree(symbolTable, expectedReturnType);
 				return ok;
 			}
 			// 2) otherwise allow success if the last statement is an if that returns on all
 			// paths
-			if (endsWithIfThatReturns(expectedReturnType)) {
+			if (endsWithIfThatReturns(symbolTable, expectedReturnType)) {
 				return ok;
 			}
 			// 3) no guaranteed return path
-			throw new SemanticException("ReturnStmtNode: Expected a return value of type '" + expectedReturnType
-					+ "', but no value was returned.", null);
+			throw new SemanticException(new Diagnostic(Diagnostic.Code.RETURN_MISSING, null, expectedReturnType));
 		}
 
 		// expected void: it's fine not to have a return
 		if (returnStmt != null && !returnStmt.isEmptyReturn()) {
 			// returning a value in a Void function is an error; let ReturnStmtNode throw
 			// its message
-			ok &= returnStmt.validateTree("Void");
+			ok &= returnStmt.validateTree(symbolTable, "Void");
 		}
 		return ok;
 	}
@@ -147,12 +171,12 @@ public class BodyNode implements JottTree {
 	 * ------------------
 	 */
 
-	private boolean endsWithIfThatReturns(String expectedReturnType) {
+	private boolean endsWithIfThatReturns(SymbolTable symbolTable, String expectedReturnType) {
 		if (bodyStmtNodes.isEmpty())
 			return false;
 		JottTree last = bodyStmtNodes.get(bodyStmtNodes.size() - 1);
 		if (last instanceof IfStmtNode ifNode) {
-			return ifNode.returnsOnAllPaths(expectedReturnType);
+			return ifNode.returnsOnAllPaths(symbolTable, expectedReturnType);
 		}
 		return false;
 	}
@@ -162,16 +186,27 @@ public class BodyNode implements JottTree {
 	 * type.
 	 * Used by If/ElseIf/Else branch analysis without throwing.
 	 */
-	public boolean returnsOnAllPaths(String expectedReturnType) {
+	public boolean returnsOnAllPaths(SymbolTable symbolTable, String expectedReturnType) {
 		// try: a proper trailing return of the right type
 		if (returnStmt != null && !returnStmt.isEmptyReturn()) {
 			try {
-				return returnStmt.validateTree(expectedReturnType);
-			} catch (RuntimeException ex) {
-				return false;
+				return returnStmt.checkReturn(symbolTable, expectedReturnType) == null;
+			} catch (SemanticException ex) {
+				return false; // the returned expression itself does not type check
 			}
 		}
 		// or: ends in an if whose branches all return
-		return endsWithIfThatReturns(expectedReturnType);
+		return endsWithIfThatReturns(symbolTable, expectedReturnType);
+	}
+
+	public ArrayList<JottTree> getStatements() {
+		return bodyStmtNodes;
+	}
+
+	/**
+	 * @return the return statement, an empty one if the body has none
+	 */
+	public ReturnStmtNode getReturnStmt() {
+		return returnStmt;
 	}
 }
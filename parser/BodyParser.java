@@ -0,0 +1,153 @@
+package parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import provided.JottTree;
+import provided.Keyword;
+import provided.Token;
+import provided.TokenCursor;
+import provided.TokenType;
+
+/**
+ * Parses a < body > with an explicit stack instead of JVM recursion.
+ * The recursive parser goes Body -> If/Elseif/Else/While -> Body for every
+ * level of nesting, so a few thousand nested blocks overflow the thread
+ * stack. Here every open block is a Frame on an ArrayDeque, and the
+ * statement that owns a block is finished once the block's body is.
+ *
+ * The tokens around each body are checked by the node classes' own
+ * parseHeader and parseBodyEnd, in the same order as the recursive parser,
+ * so the tree and every syntax error are the same. Expressions, assignments
+ * and function calls do not open a block and are still parsed by their node
+ * classes.
+ */
+final class BodyParser {
+
+    // the statement a body belongs to
+    private enum Owner { NONE, IF, ELSEIF, ELSE, WHILE }
+
+    // one open block: the body being parsed and what is known so far of the statement around it.
+    // An If keeps the same frame for its Elseif and Else bodies.
+    private static final class Frame {
+        Owner owner;
+        ArrayList<JottTree> statements;
+        BitSet isFunctionCall;
+        Token whileToken;
+        ExpressionNode condition; // of the While or the If
+        BodyNode ifBody;
+        ArrayList<ElseIfNode> elseIfs;
+        ExpressionNode elseIfCondition;
+
+        // called just after the '{' of a body, like the start of BodyNode.parseBodyNode
+        void startBody(TokenCursor tokens, Owner owner) {
+            if (tokens.isEmpty()) {
+                throw new ParseException("parseBodyNode: Unexpected EOF while parsing <body>", null);
+            }
+            this.owner = owner;
+            this.statements = new ArrayList<>();
+            this.isFunctionCall = new BitSet();
+        }
+    }
+
+    private BodyParser() {
+    }
+
+    /**
+     * Parses a < body > -> < body_stmt >* < return_stmt > without recursing into nested blocks
+     * @param tokens the cursor, at the first token of the body
+     * @return the same BodyNode BodyNode.parseBodyNode builds
+     */
+    static BodyNode parseBody(TokenCursor tokens) {
+        ArrayDeque<Frame> open = new ArrayDeque<>();
+        Frame frame = new Frame();
+        frame.startBody(tokens, Owner.NONE);
+        while (true) {
+            Frame nested = parseStatements(tokens, frame);
+            if (nested != null) {
+                open.push(frame);
+                frame = nested;
+                continue;
+            }
+
+            BodyNode body = new BodyNode(frame.statements, frame.isFunctionCall,
+                    ReturnStmtNode.parseReturnStmtNode(tokens));
+            JottTree statement;
+            switch (frame.owner) {
+                case NONE:
+                    return body;
+                case WHILE:
+                    WhileLoopNode.parseBodyEnd(tokens);
+                    statement = new WhileLoopNode(frame.whileToken, frame.condition, body);
+                    break;
+                case IF:
+                    IfStmtNode.parseBodyEnd(tokens);
+                    frame.ifBody = body;
+                    statement = continueIf(tokens, frame);
+                    break;
+                case ELSEIF:
+                    ElseIfNode.parseBodyEnd(tokens);
+                    frame.elseIfs.add(new ElseIfNode(frame.elseIfCondition, body));
+                    statement = continueIf(tokens, frame);
+                    break;
+                default: // ELSE
+                    ElseNode.parseBodyEnd(tokens);
+                    statement = new IfStmtNode(frame.condition, frame.ifBody, frame.elseIfs, new ElseNode(body, false));
+            }
+            if (statement != null) {
+                frame = open.pop();
+                frame.statements.add(statement);
+            }
+        }
+    }
+
+    // parses statements into the frame's body until it ends, or returns the frame of a nested block
+    // once the block's '{' has been consumed
+    private static Frame parseStatements(TokenCursor tokens, Frame frame) {
+        while (!tokens.isEmpty()) {
+            TokenType type = tokens.peekType();
+            Keyword keyword = tokens.peekKeyword();
+            if (!BodyNode.startsBodyStmt(tokens, type)) {
+                break; // reached return_stmt or end of block
+            }
+            if (keyword == Keyword.IF && tokens.peekType(1) == TokenType.L_BRACKET) {
+                tokens.advance();
+                Frame nested = new Frame();
+                nested.condition = IfStmtNode.parseHeader(tokens);
+                nested.elseIfs = new ArrayList<>();
+                nested.startBody(tokens, Owner.IF);
+                return nested;
+            }
+            if (keyword == Keyword.WHILE && tokens.peekType(1) == TokenType.L_BRACKET) {
+                Frame nested = new Frame();
+                nested.whileToken = tokens.next();
+                nested.condition = WhileLoopNode.parseHeader(tokens);
+                nested.startBody(tokens, Owner.WHILE);
+                return nested;
+            }
+            frame.statements.add(BodyStmtNode.parseBodyStmtNode(tokens));
+            frame.isFunctionCall.set(frame.statements.size() - 1, type == TokenType.FC_HEADER);
+            if (type == TokenType.FC_HEADER) {
+                BodyNode.parseCallEnd(tokens);
+            }
+        }
+        return null;
+    }
+
+    // after the If body or an Elseif body: opens the next Elseif or Else body in the same frame,
+    // or returns the finished If statement when there is none
+    private static IfStmtNode continueIf(TokenCursor tokens, Frame frame) {
+        if (!tokens.isEmpty() && tokens.peekKeyword() == Keyword.ELSEIF) {
+            tokens.advance();
+            frame.elseIfCondition = ElseIfNode.parseHeader(tokens);
+            frame.startBody(tokens, Owner.ELSEIF);
+            return null;
+        }
+        if (ElseNode.parseHeader(tokens)) {
+            frame.startBody(tokens, Owner.ELSE);
+            return null;
+        }
+        return new IfStmtNode(frame.condition, frame.ifBody, frame.elseIfs, new ElseNode(null, true));
+    }
+}
@@ -1,37 +1,40 @@
 package parser;
 import provided.*;
-import java.util.ArrayList;
 
 public interface BodyStmtNode extends JottTree { 
 
-	public static JottTree parseBodyStmtNode(ArrayList<Token> tokens) {
+	public static JottTree parseBodyStmtNode(TokenCursor tokens) {
 		// <body_stmt > -> <if_stmt > | <while_loop > | <asmt > | <func_call>;
 		  
         if (tokens.isEmpty()){
 			throw new ParseException("parseBodyStmtNode: Unexpected EOF", null);
 		}
-		Token token = tokens.get(0);
+		if (tokens.isTableDispatch()) {
+			return PredictiveParser.parseBodyStmt(tokens);
+		}
+		Keyword keyword = tokens.peekKeyword();
+		TokenType type = tokens.peekType();
 
-		if (token.getToken().equals("If") && tokens.get(1).getToken().equals("[")) {
+		if (keyword == Keyword.IF && tokens.peekType(1) == TokenType.L_BRACKET) {
 			return IfStmtNode.parseIfStmtNode(tokens);
 		} 
-		else if (token.getToken().equals("While") && tokens.get(1).getToken().equals("[")) {
+		else if (keyword == Keyword.WHILE && tokens.peekType(1) == TokenType.L_BRACKET) {
 			return WhileLoopNode.parseWhileLoopNode(tokens);
 		}
-		else if (token.getToken().equals("Else") && tokens.get(1).getToken().equals("{")) {
-        	throw new ParseException("parseBodyStmtNode: Unexpected 'Else' without preceding 'If'", token);
+		else if (keyword == Keyword.ELSE && tokens.peekType(1) == TokenType.L_BRACE) {
+        	throw new ParseException("parseBodyStmtNode: Unexpected 'Else' without preceding 'If'", tokens.peek());
 		}
-		else if (token.getToken().equals("Elseif") && tokens.get(1).getToken().equals("[")) {
-			throw new ParseException("parseBodyStmtNode: Unexpected 'Elseif' without preceding 'If'", token);
+		else if (keyword == Keyword.ELSEIF && tokens.peekType(1) == TokenType.L_BRACKET) {
+			throw new ParseException("parseBodyStmtNode: Unexpected 'Elseif' without preceding 'If'", tokens.peek());
 		}
-		else if (token.getTokenType() == TokenType.FC_HEADER){
+		else if (type == TokenType.FC_HEADER){
 			return FunctionCallNode.parseFunctionCallNode(tokens);
 		}
-		else if(token.getTokenType() == TokenType.ID_KEYWORD) { // last option would be Asmt node
+		else if(type == TokenType.ID_KEYWORD) { // last option would be Asmt node
 			return AsmtNode.parseAsmtNode(tokens);
 		}
 		else {
-			throw new ParseException("parseBodyStmtNode: Invalid body statement", token);
+			throw new ParseException("parseBodyStmtNode: Invalid body statement", tokens.peek());
 		}
 	}
 
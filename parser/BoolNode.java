@@ -1,9 +1,8 @@
 package parser;
 
-import java.util.ArrayList;
-
+import provided.Keyword;
 import provided.Token;
-import provided.TokenType;
+import provided.TokenCursor;
 import semantics.SymbolTable;
 
 public class BoolNode implements ExpressionNode {
@@ -14,12 +13,12 @@ public class BoolNode implements ExpressionNode {
         this.boolToken = boolToken;
     }
 
-    public static BoolNode parseBoolNode(ArrayList<Token> tokens) {
+    public static BoolNode parseBoolNode(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseBoolNode: Unexpected EOF while parsing boolean", null);
         }
-        Token t = tokens.remove(0);
-        if (t.getTokenType() == TokenType.ID_KEYWORD && (t.getToken().equals("True") || t.getToken().equals("False"))) {
+        Token t = tokens.next();
+        if (t.getKeyword() == Keyword.TRUE || t.getKeyword() == Keyword.FALSE) {
             return new BoolNode(t);
         }
         throw new ParseException("parseBoolNode: Expected boolean value (true or false), got '" + t.getToken() + "'", t);
@@ -45,6 +44,11 @@ public class BoolNode implements ExpressionNode {
         return true;
     }
 
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // a literal has no names to look up
+    }
+
 
     @Override
     public String convertToC() {
@@ -55,4 +59,12 @@ public class BoolNode implements ExpressionNode {
     public String convertToPython() {
         return "";
     }
+
+    public Token getToken() {
+        return boolToken;
+    }
+
+    public boolean getValue() {
+        return boolToken.getKeyword() == Keyword.TRUE;
+    }
 }
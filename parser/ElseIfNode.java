@@ -1,7 +1,5 @@
 package parser;
 
-import java.util.ArrayList;
-
 import provided.*;
 import semantics.SemanticException;
 
@@ -14,25 +12,38 @@ public class ElseIfNode implements JottTree {
 		this.body = body;
 	}
 
-	public static ElseIfNode parseElseIfNode(ArrayList<Token> tokens) {
+	public static ElseIfNode parseElseIfNode(TokenCursor tokens) {
 		// Elseif [ <expr> ] { <body> }
 		if (tokens.isEmpty()) {
 			throw new ParseException("parseElseIfNode: Unexpected EOF while parsing <elseif>", null);
 		}
-		Token kw = tokens.get(0);
-		if (kw.getTokenType() != TokenType.ID_KEYWORD || !kw.getToken().equals("Elseif")) {
+		if (tokens.peekKeyword() != Keyword.ELSEIF) {
+			Token kw = tokens.peek();
 			throw new ParseException("parseElseIfNode: Expected 'Elseif', got '" + kw.getToken() + "'", kw);
 		}
-		tokens.remove(0);
+		tokens.advance();
+
+		ExpressionNode cond = parseHeader(tokens);
+
+		// <body>
+		BodyNode body = BodyNode.parseBodyNode(tokens);
 
+		// }
+		parseBodyEnd(tokens);
+
+		return new ElseIfNode(cond, body);
+	}
+
+	// [ <expr> ] { after the Elseif keyword, shared with BodyParser so both report the same errors
+	static ExpressionNode parseHeader(TokenCursor tokens) {
 		// [
 		if (tokens.isEmpty())
 			throw new ParseException("parseElseIfNode: Unexpected EOF", null);
-		Token lb = tokens.get(0);
-		if (lb.getTokenType() != TokenType.L_BRACKET) {
+		if (tokens.peekType() != TokenType.L_BRACKET) {
+			Token lb = tokens.peek();
 			throw new ParseException("parseElseIfNode: Expected '[' after Elseif", lb);
 		}
-		tokens.remove(0);
+		tokens.advance();
 
 		// <expr>
 		ExpressionNode cond = ExpressionNode.parseExpressionNode(tokens);
@@ -40,34 +51,33 @@ public class ElseIfNode implements JottTree {
 		// ]
 		if (tokens.isEmpty())
 			throw new ParseException("parseElseIfNode: Unexpected EOF", null);
-		Token rb = tokens.get(0);
-		if (rb.getTokenType() != TokenType.R_BRACKET) {
+		if (tokens.peekType() != TokenType.R_BRACKET) {
+			Token rb = tokens.peek();
 			throw new ParseException("parseElseIfNode: Expected ']' after Elseif condition", rb);
 		}
-		tokens.remove(0);
+		tokens.advance();
 
 		// {
 		if (tokens.isEmpty())
 			throw new ParseException("parseElseIfNode: Unexpected EOF", null);
-		Token lbrace = tokens.get(0);
-		if (lbrace.getTokenType() != TokenType.L_BRACE) {
+		if (tokens.peekType() != TokenType.L_BRACE) {
+			Token lbrace = tokens.peek();
 			throw new ParseException("parseElseIfNode: Expected '{' after Elseif condition", lbrace);
 		}
-		tokens.remove(0);
+		tokens.advance();
 
-		// <body>
-		BodyNode body = BodyNode.parseBodyNode(tokens);
+		return cond;
+	}
 
-		// }
+	// the } that closes the Elseif body
+	static void parseBodyEnd(TokenCursor tokens) {
 		if (tokens.isEmpty())
 			throw new ParseException("parseElseIfNode: Unexpected EOF", null);
-		Token rbrace = tokens.get(0);
-		if (rbrace.getTokenType() != TokenType.R_BRACE) {
+		if (tokens.peekType() != TokenType.R_BRACE) {
+			Token rbrace = tokens.peek();
 			throw new ParseException("parseElseIfNode: Expected '}' after Elseif body", rbrace);
 		}
-		tokens.remove(0);
-
-		return new ElseIfNode(cond, body);
+		tokens.advance();
 	}
 
 	@Override
@@ -98,18 +108,27 @@ public class ElseIfNode implements JottTree {
 
 	@Override
 	public boolean validateTree() {
+		return validateTree(new semantics.SymbolTable());
+	}
+
+	@Override
+	public boolean validateTree(semantics.SymbolTable symbolTable) {
 		// condition must be Boolean
-		condition.validateTree();
-		String t = condition.getType(semantics.SymbolTable.globalSymbolTable);
+		condition.validateTree(symbolTable);
+		String t = condition.getType(symbolTable);
 		if (!"Boolean".equals(t)) {
 			throw new semantics.SemanticException(
 					"ElseIfNode: Elseif condition must be of type Boolean, but got '" + t + "'.", null);
 		}
 		// body validated as "if-body" (skip function-level return enforcement inside)
-		body.validateTree("__IF_STATEMENT_BODY__");
+		body.validateTree(symbolTable, "__IF_STATEMENT_BODY__");
 		return true;
 	}
 
+	public ExpressionNode getCondition() {
+		return condition;
+	}
+
 	public BodyNode getBody() {
 		return body;
 	}
@@ -1,6 +1,5 @@
 package parser;
 
-import java.util.ArrayList;
 import provided.*;
 import semantics.SemanticException;
 
@@ -13,50 +12,69 @@ public class ElseNode implements JottTree {
         this.isEmpty = isEmpty;
     }
 
-    public static ElseNode parseElseNode(ArrayList<Token> tokens) {
+    public static ElseNode parseElseNode(TokenCursor tokens) {
         // Else { < body > } | ε
+        if (!parseHeader(tokens)) {
+            return new ElseNode(null, true); // epsilon case, or an empty else block
+        }
+
+        BodyNode body = BodyNode.parseBodyNode(tokens);
+
+        parseBodyEnd(tokens);
+
+        return new ElseNode(body, false);
+    }
+
+    /**
+     * Parses an Else up to its body, shared with BodyParser so both report
+     * the same errors
+     * @param tokens the cursor
+     * @return true if a non-empty body follows, false if there is no Else
+     *         or its block is empty, in which case that block is consumed
+     */
+    static boolean parseHeader(TokenCursor tokens) {
         if (tokens.isEmpty()) {
-            return new ElseNode(null, true); // epsilon case
+            return false; // epsilon case
         }
 
         // Check if next token is "Else"
-        if (!tokens.get(0).getToken().equals("Else")) {
-            return new ElseNode(null, true); // epsilon case - no Else clause
+        if (tokens.peekKeyword() != Keyword.ELSE) {
+            return false; // epsilon case - no Else clause
         }
 
         // Consume "Else" token
-        tokens.remove(0);
+        tokens.advance();
 
         // Check for opening brace ({)
         if (tokens.isEmpty()) {
             throw new ParseException("parseElseNode: Unexpected EOF", null);
         }
-        if (tokens.get(0).getTokenType() != TokenType.L_BRACE) {
-            throw new ParseException("parseElseNode: Missing '{' after 'Else'", tokens.get(0));
+        if (tokens.peekType() != TokenType.L_BRACE) {
+            throw new ParseException("parseElseNode: Missing '{' after 'Else'", tokens.peek());
         }
-        tokens.remove(0); // consume ({)
+        tokens.advance(); // consume ({)
 
         // Allow empty else block: Else { }
         if (tokens.isEmpty()) {
             throw new ParseException("parseElseNode: Unexpected EOF", null);
         }
-        if (tokens.get(0).getTokenType() == TokenType.R_BRACE) {
-            tokens.remove(0); // consume (})
-            return new ElseNode(null, true);
+        if (tokens.peekType() == TokenType.R_BRACE) {
+            tokens.advance(); // consume (})
+            return false;
         }
+        return true;
+    }
 
-        BodyNode body = BodyNode.parseBodyNode(tokens);
-
+    // the } that closes the Else body
+    static void parseBodyEnd(TokenCursor tokens) {
         // Check for closing brace (})
         if (tokens.isEmpty()) {
             throw new ParseException("parseElseNode: Unexpected EOF", null);
         }
-        if (tokens.get(0).getTokenType() != TokenType.R_BRACE) {
-            throw new ParseException("parseElseNode: Missing '}' to end Else body", tokens.get(0));
+        if (tokens.peekType() != TokenType.R_BRACE) {
+            throw new ParseException("parseElseNode: Missing '}' to end Else body", tokens.peek());
         }
-        tokens.remove(0); // consume (})
-
-        return new ElseNode(body, false);
+        tokens.advance(); // consume (})
     }
 
     @Override
@@ -84,11 +102,16 @@ public class ElseNode implements JottTree {
 
     @Override
     public boolean validateTree() {
+        return validateTree(new semantics.SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(semantics.SymbolTable symbolTable) {
         if (this.isEmpty) {
             return true;
         }
         // validate body with special marker to skip function-level return validation
-        bodyNode.validateTree("__IF_STATEMENT_BODY__");
+        bodyNode.validateTree(symbolTable, "__IF_STATEMENT_BODY__");
         return true;
     }
 
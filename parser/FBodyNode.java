@@ -2,9 +2,11 @@ package parser;
 
 import java.util.ArrayList;
 
+import provided.Keyword;
 import provided.JottTree;
-import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
+import semantics.SymbolTable;
 
 public class FBodyNode implements JottTree {
     private final ArrayList<VarDecNode> varDecs;
@@ -15,7 +17,7 @@ public class FBodyNode implements JottTree {
         this.body = body;
     }
 
-    public static FBodyNode parseFBodyNode(ArrayList<Token> tokens) {
+    public static FBodyNode parseFBodyNode(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFBodyNody: Unexpected EOF while parsing <f_body>", null);
         }
@@ -25,10 +27,8 @@ public class FBodyNode implements JottTree {
         // A variable declaration starts with a type keyword (Double, Integer, String,
         // or Boolean)
         while (!tokens.isEmpty()) {
-            Token t = tokens.get(0);
-            if (t.getTokenType() == provided.TokenType.ID_KEYWORD &&
-                    ("Double".equals(t.getToken()) || "Integer".equals(t.getToken()) ||
-                            "String".equals(t.getToken()) || "Boolean".equals(t.getToken()))) {
+            Keyword keyword = tokens.peekKeyword();
+            if (keyword != null && keyword.isType()) {
                 VarDecNode varDec = VarDecNode.parseVarDecNode(tokens);
                 varDecs.add(varDec);
             } else {
@@ -69,17 +69,30 @@ public class FBodyNode implements JottTree {
 
     @Override
     public boolean validateTree() {
-        return validateTree("Void");
+        return validateTree(new SymbolTable(), "Void");
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(symbolTable, "Void");
     }
 
     // NEW: used by FunctionDefNode
-    public boolean validateTree(String expectedReturnType) {
+    public boolean validateTree(SymbolTable symbolTable, String expectedReturnType) {
         boolean ok = true;
         for (VarDecNode v : varDecs) {
-            ok &= v.validateTree(); // typical place where vars hit the symbol table
+            ok &= v.validateTree(symbolTable); // typical place where vars hit the symbol table
         }
         // Have BodyNode enforce statements & return rules knowing the expected type
-        ok &= body.validateTree(expectedReturnType);
+        ok &= body.validateTree(symbolTable, expectedReturnType);
         return ok;
     }
+
+    public ArrayList<VarDecNode> getVarDecs() {
+        return varDecs;
+    }
+
+    public BodyNode getBody() {
+        return body;
+    }
 }
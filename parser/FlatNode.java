@@ -0,0 +1,215 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+import provided.JottTree;
+import provided.Keyword;
+import provided.Token;
+import provided.TokenBuffer;
+import semantics.SymbolTable;
+
+/**
+ * One node of a FlatTree seen as a JottTree.
+ * A FlatNode is only a (tree, id) pair and is made on demand, so walking a
+ * flat tree through views creates short-lived garbage but never keeps a copy
+ * of the tree alive.
+ *
+ * convertToJott reads the flat arrays directly. The semantic checks live in
+ * the parse node classes, so validateTree and the other conversions run on
+ * parse nodes (see toParseTree). Those are rebuilt for the whole tree the
+ * first time any view needs them and then kept by the FlatTree, so a flat
+ * tree that has been validated holds both forms.
+ */
+public class FlatNode implements JottTree {
+    private final FlatTree tree;
+    private final int id;
+
+    /**
+     * Creates a view of one node
+     * @param tree the tree the node belongs to
+     * @param id the node id
+     */
+    public FlatNode(FlatTree tree, int id) {
+        this.tree = tree;
+        this.id = id;
+    }
+
+    public FlatTree getTree() {
+        return tree;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public FlatTree.Kind getKind() {
+        return tree.getKind(id);
+    }
+
+    public int getChildCount() {
+        return tree.getChildCount(id);
+    }
+
+    /**
+     * @param i which child, starting at 0
+     * @return a view of the child
+     */
+    public FlatNode getChild(int i) {
+        return new FlatNode(tree, tree.getChild(id, i));
+    }
+
+    /**
+     * @return the node's main token, or null if it has none
+     */
+    public Token getToken() {
+        int token = tree.getToken(id);
+        return token < 0 ? null : tree.getTokens().get(token);
+    }
+
+    /**
+     * This subtree out of the regular parse node classes, exactly as the node
+     * parser would have built it from the same tokens. Every view of the same
+     * FlatTree gets the same parse nodes, which are built on the first call.
+     * @return the parse node, e.g. a ProgramNode for the root
+     */
+    public JottTree toParseTree() {
+        return tree.getParseNode(id);
+    }
+
+    /**
+     * Builds the parse nodes of a whole tree
+     * @param tree the flat tree
+     * @return the parse node of every flat node, by node id
+     */
+    static JottTree[] buildParseTree(FlatTree tree) {
+        JottTree[] built = new JottTree[tree.size()];
+        new FlatNode(tree, tree.getRootId()).build(built, tree.getRootId());
+        return built;
+    }
+
+    @Override
+    public String convertToJott() {
+        return tree.convertToJott(id);
+    }
+
+    @Override
+    public String convertToJava(String className) {
+        return toParseTree().convertToJava(className);
+    }
+
+    @Override
+    public String convertToC() {
+        return toParseTree().convertToC();
+    }
+
+    @Override
+    public String convertToPython() {
+        return toParseTree().convertToPython();
+    }
+
+    @Override
+    public boolean validateTree() {
+        return toParseTree().validateTree();
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return toParseTree().validateTree(symbolTable);
+    }
+
+    private JottTree build(JottTree[] built, int node) {
+        JottTree result = buildNode(built, node);
+        built[node] = result;
+        return result;
+    }
+
+    private JottTree buildNode(JottTree[] built, int node) {
+        TokenBuffer tokens = tree.getTokens();
+        int token = tree.getToken(node);
+        int n = tree.getChildCount(node);
+        switch (tree.getKind(node)) {
+            case PROGRAM: {
+                ArrayList<FunctionDefNode> functionDefs = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    functionDefs.add((FunctionDefNode) child(built, node, i));
+                }
+                return new ProgramNode(functionDefs);
+            }
+            case FUNCTION_DEF: {
+                FunctionDefParamsNode params = new FunctionDefParamsNode();
+                for (int i = 0; i < n - 2; i++) {
+                    int name = tree.getToken(tree.getChild(node, i));
+                    params.getParamEntries().add(new FunctionDefParamsNode.ParamDecl(tokens.get(name), tokens.get(name + 2)));
+                }
+                return new FunctionDefNode(tokens.get(token), new IDNode(tokens.get(token + 1)), params,
+                        (FunctionReturnNode) child(built, node, n - 2), (FBodyNode) child(built, node, n - 1));
+            }
+            case RETURN_TYPE:
+                return new FunctionReturnNode(tokens.get(token), tokens.getKeyword(token) == Keyword.VOID);
+            case F_BODY: {
+                ArrayList<VarDecNode> varDecs = new ArrayList<>(n - 1);
+                for (int i = 0; i < n - 1; i++) {
+                    varDecs.add((VarDecNode) child(built, node, i));
+                }
+                return new FBodyNode(varDecs, (BodyNode) child(built, node, n - 1));
+            }
+            case VAR_DEC:
+                return new VarDecNode(new TypeNode(tokens.get(token)), new IDNode(tokens.get(token + 1)));
+            case BODY: {
+                ArrayList<JottTree> statements = new ArrayList<>(n - 1);
+                BitSet isFunctionCall = new BitSet(n - 1);
+                for (int i = 0; i < n - 1; i++) {
+                    statements.add(child(built, node, i));
+                    isFunctionCall.set(i, tree.getKind(tree.getChild(node, i)) == FlatTree.Kind.CALL);
+                }
+                return new BodyNode(statements, isFunctionCall, (ReturnStmtNode) child(built, node, n - 1));
+            }
+            case RETURN:
+                return n == 0 ? new ReturnStmtNode(null, true, tokens.get(token))
+                        : new ReturnStmtNode((ExpressionNode) child(built, node, 0), false, tokens.get(token));
+            case IF: {
+                ArrayList<ElseIfNode> elseIfs = new ArrayList<>(n - 3);
+                for (int i = 2; i < n - 1; i++) {
+                    elseIfs.add((ElseIfNode) child(built, node, i));
+                }
+                return new IfStmtNode((ExpressionNode) child(built, node, 0), (BodyNode) child(built, node, 1), elseIfs,
+                        (ElseNode) child(built, node, n - 1));
+            }
+            case ELSEIF:
+                return new ElseIfNode((ExpressionNode) child(built, node, 0), (BodyNode) child(built, node, 1));
+            case ELSE:
+                return n == 0 ? new ElseNode(null, true) : new ElseNode((BodyNode) child(built, node, 0), false);
+            case WHILE:
+                return new WhileLoopNode(tokens.get(token), (ExpressionNode) child(built, node, 0), (BodyNode) child(built, node, 1));
+            case ASSIGN:
+                return new AsmtNode(new IDNode(tokens.get(token)), (ExpressionNode) child(built, node, 0));
+            case CALL: {
+                ArrayList<ExpressionNode> args = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    args.add((ExpressionNode) child(built, node, i));
+                }
+                return new FunctionCallNode(tokens.get(token), new IDNode(tokens.get(token + 1)), new ParamNode(args));
+            }
+            case BINARY:
+                return ExpressionNode.binaryExpression((OperandNode) child(built, node, 0), tokens.get(token),
+                        (OperandNode) child(built, node, 1));
+            case ID:
+                return new IDNode(tokens.get(token));
+            case NUMBER:
+                return new NumberNode(tokens.get(token), false);
+            case NEG_NUMBER:
+                return new NumberNode(tokens.get(token), true);
+            case STRING:
+                return new StringLiteralNode(tokens.get(token));
+            case BOOL:
+                return new BoolNode(tokens.get(token));
+            default:
+                throw new IllegalStateException("unknown flat node kind " + tree.getKind(node));
+        }
+    }
+
+    private JottTree child(JottTree[] built, int node, int i) {
+        return build(built, tree.getChild(node, i));
+    }
+}
@@ -0,0 +1,310 @@
+package parser;
+
+import provided.Keyword;
+import provided.TokenBuffer;
+import provided.TokenType;
+
+/**
+ * Recursive-descent parser that writes straight into a FlatTree.
+ * It follows the same grammar, and takes the same decisions on the same
+ * lookahead, as the parseX methods of the node classes, so it accepts
+ * exactly the programs they accept. It works on token indices only and never
+ * creates a Token.
+ *
+ * On a syntax error it throws a ParseException of its own, naming what it
+ * expected and the token it found. The wording is not the node parser's.
+ */
+class FlatParser {
+    private final TokenBuffer tokens;
+    private final FlatTree tree;
+    private final int end;
+    private int pos;
+
+    FlatParser(TokenBuffer tokens, FlatTree tree) {
+        this.tokens = tokens;
+        this.tree = tree;
+        this.end = tokens.size();
+    }
+
+    // < program > -> < function_def >* EOF
+    void parseProgram() {
+        int mark = tree.mark();
+        while (isFunctionDef(keyword(0))) {
+            parseFunctionDef();
+        }
+        if (pos < end) {
+            throw error("a function definition");
+        }
+        tree.add(FlatTree.Kind.PROGRAM, -1, mark);
+    }
+
+    // < function_def > -> Def < id >[ < func_def_params > ]: < function_return >{ < f_body >}
+    private void parseFunctionDef() {
+        int mark = tree.mark();
+        int def = pos++;
+        expect(TokenType.ID_KEYWORD);
+        expect(TokenType.L_BRACKET);
+        if (pos >= end) {
+            throw error("parameters or ']'");
+        }
+        if (type(0) != TokenType.R_BRACKET) { // < id >:< type > (, < id >:< type >)*
+            parseParam();
+            while (type(0) == TokenType.COMMA) {
+                pos++;
+                parseParam();
+            }
+        }
+        expect(TokenType.R_BRACKET);
+        expect(TokenType.COLON);
+        Keyword returnType = keyword(0);
+        if (returnType != Keyword.VOID && !isType(returnType)) {
+            throw error("a return type");
+        }
+        tree.add(FlatTree.Kind.RETURN_TYPE, pos++, tree.mark());
+        expect(TokenType.L_BRACE);
+        parseFBody();
+        expect(TokenType.R_BRACE);
+        tree.add(FlatTree.Kind.FUNCTION_DEF, def, mark);
+    }
+
+    private void parseParam() {
+        int name = pos;
+        expect(TokenType.ID_KEYWORD);
+        expect(TokenType.COLON);
+        if (!isType(keyword(0))) {
+            throw error("a parameter type");
+        }
+        pos++;
+        tree.add(FlatTree.Kind.PARAM, name, tree.mark());
+    }
+
+    // < f_body > -> < var_dec >* < body >
+    private void parseFBody() {
+        int mark = tree.mark();
+        if (pos >= end) {
+            throw error("a function body");
+        }
+        while (isType(keyword(0))) { // < var_dec > -> < type > < id >;
+            int type = pos++;
+            expect(TokenType.ID_KEYWORD);
+            expect(TokenType.SEMICOLON);
+            tree.add(FlatTree.Kind.VAR_DEC, type, tree.mark());
+        }
+        parseBody();
+        tree.add(FlatTree.Kind.F_BODY, -1, mark);
+    }
+
+    // < body > -> < body_stmt >* < return_stmt >
+    private void parseBody() {
+        int mark = tree.mark();
+        if (pos >= end) {
+            throw error("a body");
+        }
+        while (pos < end) {
+            TokenType type = type(0);
+            Keyword keyword = keyword(0);
+            if (keyword == Keyword.IF || keyword == Keyword.WHILE || type == TokenType.FC_HEADER
+                    || (type == TokenType.ID_KEYWORD && keyword != Keyword.RETURN && !isType(keyword))) {
+                parseBodyStmt();
+                if (type == TokenType.FC_HEADER) {
+                    expect(TokenType.SEMICOLON);
+                }
+            } else {
+                break;
+            }
+        }
+        parseReturn();
+        tree.add(FlatTree.Kind.BODY, -1, mark);
+    }
+
+    // < body_stmt > -> < if_stmt > | < while_loop > | < asmt > | < func_call >
+    private void parseBodyStmt() {
+        Keyword keyword = keyword(0);
+        TokenType type = type(0);
+        TokenType next = type(1);
+        if (keyword == Keyword.IF && next == TokenType.L_BRACKET) {
+            parseIf();
+        } else if (keyword == Keyword.WHILE && next == TokenType.L_BRACKET) {
+            parseConditional(FlatTree.Kind.WHILE);
+        } else if ((keyword == Keyword.ELSE && next == TokenType.L_BRACE)
+                || (keyword == Keyword.ELSEIF && next == TokenType.L_BRACKET)) {
+            throw error("a statement");
+        } else if (type == TokenType.FC_HEADER) {
+            parseCall();
+        } else { // < asmt > -> < id > = < expr >;
+            int mark = tree.mark();
+            int id = pos;
+            expect(TokenType.ID_KEYWORD);
+            expect(TokenType.ASSIGN);
+            parseExpr();
+            expect(TokenType.SEMICOLON);
+            tree.add(FlatTree.Kind.ASSIGN, id, mark);
+        }
+    }
+
+    // < return_stmt > -> Return < expr >; | ε
+    private void parseReturn() {
+        int mark = tree.mark();
+        if (pos >= end) {
+            throw error("a return statement");
+        }
+        int token = pos;
+        if (keyword(0) == Keyword.RETURN) {
+            pos++;
+            parseExpr();
+            expect(TokenType.SEMICOLON);
+        }
+        tree.add(FlatTree.Kind.RETURN, token, mark);
+    }
+
+    // < if_stmt > -> If [ < expr > ]{ < body > } < elseif_lst >* < else >
+    private void parseIf() {
+        int mark = tree.mark();
+        int token = pos;
+        parseConditionalParts();
+        while (keyword(0) == Keyword.ELSEIF) {
+            parseConditional(FlatTree.Kind.ELSEIF);
+        }
+        int elseMark = tree.mark();
+        int elseToken = -1;
+        if (keyword(0) == Keyword.ELSE) { // Else { < body > } | Else { } | ε
+            elseToken = pos++;
+            expect(TokenType.L_BRACE);
+            if (pos >= end) {
+                throw error("a body or '}'");
+            }
+            if (type(0) == TokenType.R_BRACE) {
+                pos++;
+            } else {
+                parseBody();
+                expect(TokenType.R_BRACE);
+            }
+        }
+        tree.add(FlatTree.Kind.ELSE, elseToken, elseMark);
+        tree.add(FlatTree.Kind.IF, token, mark);
+    }
+
+    // While [ < expr > ]{ < body > } and Elseif [ < expr > ]{ < body > }
+    private void parseConditional(FlatTree.Kind kind) {
+        int mark = tree.mark();
+        int token = pos;
+        parseConditionalParts();
+        tree.add(kind, token, mark);
+    }
+
+    private void parseConditionalParts() {
+        pos++; // If, Elseif or While, already checked by the caller
+        expect(TokenType.L_BRACKET);
+        parseExpr();
+        expect(TokenType.R_BRACKET);
+        expect(TokenType.L_BRACE);
+        parseBody();
+        expect(TokenType.R_BRACE);
+    }
+
+    // < func_call > -> :: < id >[ < params > ]
+    private void parseCall() {
+        int mark = tree.mark();
+        int header = pos++;
+        expect(TokenType.ID_KEYWORD);
+        expect(TokenType.L_BRACKET);
+        if (pos >= end) {
+            throw error("arguments or ']'");
+        }
+        if (type(0) != TokenType.R_BRACKET) { // < expr > (, < expr >)*
+            parseExpr();
+            while (type(0) == TokenType.COMMA) {
+                pos++;
+                parseExpr();
+            }
+        }
+        expect(TokenType.R_BRACKET);
+        tree.add(FlatTree.Kind.CALL, header, mark);
+    }
+
+    // < expr > -> < operand > | < operand > < relop|mathop > < operand > | < string_literal > | < bool >
+    private void parseExpr() {
+        if (pos >= end) {
+            throw error("an expression");
+        }
+        if (type(0) == TokenType.STRING) {
+            tree.add(FlatTree.Kind.STRING, pos++, tree.mark());
+            return;
+        }
+        Keyword keyword = keyword(0);
+        if (keyword == Keyword.TRUE || keyword == Keyword.FALSE) {
+            tree.add(FlatTree.Kind.BOOL, pos++, tree.mark());
+            return;
+        }
+        int mark = tree.mark();
+        parseOperand();
+        TokenType type = type(0);
+        if (type == TokenType.MATH_OP || type == TokenType.REL_OP) {
+            int op = pos++;
+            if (pos >= end) {
+                throw error("an operand");
+            }
+            parseOperand();
+            tree.add(FlatTree.Kind.BINARY, op, mark);
+        }
+    }
+
+    // < operand > -> < id > | < num > | < func_call > | -< num >
+    private void parseOperand() {
+        TokenType type = type(0);
+        if (type == TokenType.ID_KEYWORD) {
+            tree.add(FlatTree.Kind.ID, pos++, tree.mark());
+        } else if (type == TokenType.NUMBER) {
+            tree.add(FlatTree.Kind.NUMBER, parseDigits(), tree.mark());
+        } else if (type == TokenType.FC_HEADER) {
+            parseCall();
+        } else if (type == TokenType.MATH_OP && tokens.textEquals(pos, "-") && type(1) == TokenType.NUMBER) {
+            pos++;
+            tree.add(FlatTree.Kind.NEG_NUMBER, parseDigits(), tree.mark());
+        } else {
+            throw error("an operand");
+        }
+    }
+
+    private int parseDigits() {
+        if (!Character.isDigit(tokens.getLexeme(pos).charAt(0))) {
+            throw error("a number");
+        }
+        return pos++;
+    }
+
+    private void expect(TokenType type) {
+        if (type(0) != type) {
+            throw error(type.toString());
+        }
+        pos++;
+    }
+
+    // type of the token at pos + offset, null past the end
+    private TokenType type(int offset) {
+        int i = pos + offset;
+        return i < end ? tokens.getType(i) : null;
+    }
+
+    private Keyword keyword(int offset) {
+        int i = pos + offset;
+        return i < end ? tokens.getKeyword(i) : null;
+    }
+
+    private static boolean isType(Keyword keyword) {
+        return keyword != null && keyword.isType();
+    }
+
+    private static boolean isFunctionDef(Keyword keyword) {
+        return keyword != null && keyword.isFunctionDef();
+    }
+
+    // names what was expected and the token found instead
+    private ParseException error(String expected) {
+        if (pos >= end) {
+            return new ParseException("FlatParser: Expected " + expected + ", got EOF", null);
+        }
+        return new ParseException("FlatParser: Expected " + expected + ", got '" + tokens.getText(pos) + "'",
+                tokens.get(pos));
+    }
+}
@@ -0,0 +1,340 @@
+package parser;
+
+import java.util.Arrays;
+
+import provided.JottTree;
+import provided.TokenBuffer;
+
+/**
+ * A whole Jott parse tree stored in a few primitive arrays instead of one
+ * object per node.
+ *
+ * Every node has a kind, the index of its main token in the TokenBuffer and
+ * a range of child node ids. Nodes are numbered in the order they finish
+ * parsing (children before their parent), and a node's children are copied
+ * into the shared children array when it finishes, so the child ranges are
+ * laid out one after the other and a single offsets array describes them
+ * all. The root is the last node.
+ *
+ * Which token a node points at, and what its children are:
+ * <pre>
+ *   PROGRAM       -                 FUNCTION_DEF*
+ *   FUNCTION_DEF  Def (name at +1)  PARAM* RETURN_TYPE F_BODY
+ *   PARAM         name (type at +2) -
+ *   RETURN_TYPE   type or Void      -
+ *   F_BODY        -                 VAR_DEC* BODY
+ *   VAR_DEC       type (name at +1) -
+ *   BODY          -                 statement* RETURN
+ *   RETURN        Return, or the token after an empty return    [expr]
+ *   IF            If                expr BODY ELSEIF* ELSE
+ *   ELSEIF        Elseif            expr BODY
+ *   ELSE          Else, or -1       [BODY], none if there is no else block
+ *   WHILE         While             expr BODY
+ *   ASSIGN        variable name     expr
+ *   CALL          :: (name at +1)   expr*
+ *   BINARY        operator          operand operand
+ *   ID, NUMBER, STRING, BOOL        the literal or name
+ *   NEG_NUMBER    the digits (the '-' is at -1)
+ * </pre>
+ *
+ * FlatParser fills the tree and FlatNode makes any node look like a
+ * JottTree again, so validateTree and convertToJott still work on it.
+ * Only convertToJott works from the arrays. Everything else builds the
+ * parse nodes of the whole tree and keeps them, so the flat form saves
+ * memory only for a tree that is never validated.
+ */
+public class FlatTree {
+
+    /**
+     * What a flat node stands for, see the table in the class comment
+     */
+    public enum Kind {
+        PROGRAM, FUNCTION_DEF, PARAM, RETURN_TYPE, F_BODY, VAR_DEC, BODY, RETURN,
+        IF, ELSEIF, ELSE, WHILE, ASSIGN, CALL, BINARY, ID, NUMBER, NEG_NUMBER, STRING, BOOL;
+
+        private static final Kind[] VALUES = values();
+
+        /**
+         * Looks up a kind by ordinal, the inverse of ordinal()
+         * @param ordinal the ordinal of the kind
+         * @return the kind
+         */
+        public static Kind fromOrdinal(int ordinal) {
+            return VALUES[ordinal];
+        }
+    }
+
+    private final TokenBuffer tokens;
+    private byte[] kinds;
+    private int[] tokenIndex;
+    private int[] childEnd; // children of node n are children[childEnd[n - 1] .. childEnd[n])
+    private int[] children;
+    private int count;
+    private int edges;
+    private JottTree[] parseNodes; // by node id, built by the first getParseNode; guarded by this
+
+    // ids of finished nodes that are still waiting for their parent
+    private int[] pending = new int[64];
+    private int pendingCount;
+
+    FlatTree(TokenBuffer tokens) {
+        this.tokens = tokens;
+        int capacity = Math.max(16, tokens.size());
+        this.kinds = new byte[capacity];
+        this.tokenIndex = new int[capacity];
+        this.childEnd = new int[capacity];
+        this.children = new int[capacity];
+    }
+
+    /**
+     * Parses a token buffer straight into flat form, without building any
+     * parse node objects
+     * @param tokens the tokens of a whole Jott program
+     * @return the flat tree
+     * @throws ParseException if the tokens are not a valid program, naming
+     *         what was expected and the token found instead
+     */
+    public static FlatTree parse(TokenBuffer tokens) {
+        FlatTree tree = new FlatTree(tokens);
+        new FlatParser(tokens, tree).parseProgram();
+        tree.trim();
+        return tree;
+    }
+
+    /**
+     * Marks where the children of the next node start
+     * @return the mark to pass to add() once all children are parsed
+     */
+    int mark() {
+        return pendingCount;
+    }
+
+    /**
+     * Finishes a node whose children are every node added since mark
+     * @param kind what the node stands for
+     * @param token its main token, or -1
+     * @param mark the value mark() returned before its children were parsed
+     * @return the id of the new node
+     */
+    int add(Kind kind, int token, int mark) {
+        int n = pendingCount - mark;
+        if (edges + n > children.length) {
+            children = Arrays.copyOf(children, Math.max(edges + n, children.length * 2));
+        }
+        System.arraycopy(pending, mark, children, edges, n);
+        edges += n;
+        pendingCount = mark;
+
+        if (count == kinds.length) {
+            int capacity = count * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            tokenIndex = Arrays.copyOf(tokenIndex, capacity);
+            childEnd = Arrays.copyOf(childEnd, capacity);
+        }
+        kinds[count] = (byte) kind.ordinal();
+        tokenIndex[count] = token;
+        childEnd[count] = edges;
+
+        if (pendingCount == pending.length) {
+            pending = Arrays.copyOf(pending, pendingCount * 2);
+        }
+        pending[pendingCount++] = count;
+        return count++;
+    }
+
+    // drops the spare capacity once parsing is done
+    private void trim() {
+        kinds = Arrays.copyOf(kinds, count);
+        tokenIndex = Arrays.copyOf(tokenIndex, count);
+        childEnd = Arrays.copyOf(childEnd, count);
+        children = Arrays.copyOf(children, edges);
+        pending = null;
+    }
+
+    /**
+     * @return the tokens the nodes point into
+     */
+    public TokenBuffer getTokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return the id of the PROGRAM node
+     */
+    public int getRootId() {
+        return count - 1;
+    }
+
+    /**
+     * The parse node a FlatNode view of a node stands for. The first call
+     * builds the parse nodes of the whole tree, later calls return the same
+     * objects.
+     * @param node a node id
+     * @return the parse node
+     * @throws IllegalStateException for a PARAM node, which is part of its FUNCTION_DEF
+     */
+    synchronized JottTree getParseNode(int node) {
+        if (parseNodes == null) {
+            parseNodes = FlatNode.buildParseTree(this);
+        }
+        if (parseNodes[node] == null) {
+            throw new IllegalStateException("a " + getKind(node) + " node has no parse node of its own");
+        }
+        return parseNodes[node];
+    }
+
+    /**
+     * @return the root wrapped as a JottTree
+     */
+    public FlatNode getRoot() {
+        return new FlatNode(this, getRootId());
+    }
+
+    public Kind getKind(int node) {
+        return Kind.fromOrdinal(kinds[node]);
+    }
+
+    /**
+     * @param node a node id
+     * @return the index of the node's main token, or -1 if it has none
+     */
+    public int getToken(int node) {
+        return tokenIndex[node];
+    }
+
+    public int getChildCount(int node) {
+        return childEnd[node] - firstChild(node);
+    }
+
+    /**
+     * @param node a node id
+     * @param i which child, starting at 0
+     * @return the id of the child
+     */
+    public int getChild(int node, int i) {
+        return children[firstChild(node) + i];
+    }
+
+    private int firstChild(int node) {
+        return node == 0 ? 0 : childEnd[node - 1];
+    }
+
+    /**
+     * Rebuilds the Jott source of a subtree, the same text the parse nodes'
+     * convertToJott() would give
+     * @param node a node id
+     * @return the Jott code of that node
+     */
+    public String convertToJott(int node) {
+        StringBuilder sb = new StringBuilder();
+        appendJott(node, sb);
+        return sb.toString();
+    }
+
+    private void appendJott(int node, StringBuilder sb) {
+        int token = tokenIndex[node];
+        int n = getChildCount(node);
+        switch (getKind(node)) {
+            case PROGRAM:
+            case F_BODY:
+                appendChildren(node, 0, n, "", sb);
+                break;
+            case FUNCTION_DEF:
+                sb.append(tokens.getText(token)).append(' ').append(tokens.getText(token + 1)).append('[');
+                appendChildren(node, 0, n - 2, ",", sb);
+                sb.append("]:");
+                appendJott(getChild(node, n - 2), sb);
+                sb.append('{');
+                appendJott(getChild(node, n - 1), sb);
+                sb.append('}');
+                break;
+            case PARAM:
+                sb.append(tokens.getText(token)).append(':').append(tokens.getText(token + 2));
+                break;
+            case VAR_DEC:
+                sb.append(tokens.getText(token)).append(' ').append(tokens.getText(token + 1)).append(';');
+                break;
+            case BODY:
+                for (int i = 0; i < n; i++) {
+                    int child = getChild(node, i);
+                    appendJott(child, sb);
+                    if (getKind(child) == Kind.CALL) {
+                        sb.append(';');
+                    }
+                }
+                break;
+            case RETURN:
+                if (n > 0) {
+                    sb.append("Return ");
+                    appendJott(getChild(node, 0), sb);
+                    sb.append(';');
+                }
+                break;
+            case IF:
+                sb.append("If[");
+                appendJott(getChild(node, 0), sb);
+                sb.append("]{");
+                appendJott(getChild(node, 1), sb);
+                sb.append('}');
+                appendChildren(node, 2, n, "", sb);
+                break;
+            case ELSEIF:
+                sb.append("Elseif[");
+                appendJott(getChild(node, 0), sb);
+                sb.append("]{");
+                appendJott(getChild(node, 1), sb);
+                sb.append('}');
+                break;
+            case ELSE:
+                if (n > 0) {
+                    sb.append("Else {");
+                    appendJott(getChild(node, 0), sb);
+                    sb.append('}');
+                }
+                break;
+            case WHILE:
+                sb.append("While [");
+                appendJott(getChild(node, 0), sb);
+                sb.append("]{");
+                appendJott(getChild(node, 1), sb);
+                sb.append('}');
+                break;
+            case ASSIGN:
+                sb.append(tokens.getText(token)).append(" = ");
+                appendJott(getChild(node, 0), sb);
+                sb.append(';');
+                break;
+            case CALL:
+                sb.append(tokens.getText(token)).append(tokens.getText(token + 1)).append('[');
+                appendChildren(node, 0, n, ",", sb);
+                sb.append(']');
+                break;
+            case BINARY:
+                appendJott(getChild(node, 0), sb);
+                sb.append(' ').append(tokens.getText(token)).append(' ');
+                appendJott(getChild(node, 1), sb);
+                break;
+            case NEG_NUMBER:
+                sb.append('-').append(tokens.getText(token));
+                break;
+            default: // RETURN_TYPE and the leaves are just their token
+                sb.append(tokens.getText(token));
+        }
+    }
+
+    private void appendChildren(int node, int from, int to, String separator, StringBuilder sb) {
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                sb.append(separator);
+            }
+            appendJott(getChild(node, i), sb);
+        }
+    }
+}
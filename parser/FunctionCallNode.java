@@ -1,6 +1,5 @@
 package parser;
 import provided.*;
-import java.util.ArrayList;
 import java.util.List;
 import semantics.*;
 
@@ -15,30 +14,30 @@ public class FunctionCallNode implements OperandNode {
         this.params = params;
     }
 
-    public static FunctionCallNode parseFunctionCallNode(ArrayList<Token> tokens) {
+    public static FunctionCallNode parseFunctionCallNode(TokenCursor tokens) {
          // < func_call > -> :: < id >[ < params >]
          
         if (tokens == null || tokens.isEmpty()) throw new ParseException("parseFunctionCallNode: Unexpected EOF", null);
         
-        Token t = tokens.get(0);
+        Token t = tokens.peek();
         if (t.getTokenType() != TokenType.FC_HEADER) throw new ParseException("parseFunctionCallNode: Missing" + TokenType.FC_HEADER + " to begin a function call", t);
         
         // consume the token and return a new FunctionCallNode
-        tokens.remove(0);
+        tokens.advance();
         IDNode functionName = IDNode.parseIDNode(tokens);
 
         // Check for opening bracket ([)
 		if (tokens.isEmpty()) throw new ParseException("Unexpected EOF", null);
-		if (tokens.get(0).getTokenType() != TokenType.L_BRACKET) throw new ParseException("parseFunctionCallNode: Missing '[' after function name", tokens.get(0));
+		if (tokens.peekType() != TokenType.L_BRACKET) throw new ParseException("parseFunctionCallNode: Missing '[' after function name", tokens.peek());
 	    
         // consume ([)
-		tokens.remove(0); 
+		tokens.advance(); 
 		ParamNode params = ParamNode.parseParamNode(tokens);
 
 		// Check for closing bracket (])
 		if (tokens.isEmpty()) throw new ParseException("Unexpected EOF", null);
-		if (tokens.get(0).getTokenType() != TokenType.R_BRACKET) throw new ParseException("parseFunctionCallNode: Missing ']' after function call parameters", tokens.get(0));
-		tokens.remove(0); // consume (])
+		if (tokens.peekType() != TokenType.R_BRACKET) throw new ParseException("parseFunctionCallNode: Missing ']' after function call parameters", tokens.peek());
+		tokens.advance(); // consume (])
 
         return new FunctionCallNode(t, functionName, params);
     }
@@ -47,7 +46,7 @@ public class FunctionCallNode implements OperandNode {
     public String getType(SymbolTable symbolTable) {
         // Look up the function in the symbol table and return its return type
         String funcName = functionName.convertToJott();
-        return SymbolTable.getFunctionReturnType(funcName);
+        return symbolTable.getFunctionReturnType(funcName);
     }
 
     public String convertToJott() {
@@ -67,18 +66,23 @@ public class FunctionCallNode implements OperandNode {
         return null;
     }
     public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
         String funcName = functionName.getName();
         List<ExpressionNode> argList = params.getArgs();
         int actualArgCount = argList.size();
 
 
         // - Verify function exists
-        if (!SymbolTable.functionExists(funcName)) {
+        if (!symbolTable.functionExists(funcName)) {
             throw new SemanticException("FunctionCallNode: Function '" + funcName + "' is not declared.", functionHeaderToken);
         }
 
          // - Check parameter count matches
-        SymbolTable.FunctionInfo funcInfo = SymbolTable.getFunction(funcName);
+        SymbolTable.FunctionInfo funcInfo = symbolTable.getFunction(funcName);
         int expectedArgCount = funcInfo.getParamCount();
         if (expectedArgCount != actualArgCount) {
             throw new SemanticException("FunctionCallNode: Function '" + funcName + "' expects " + expectedArgCount + " parameters, but got " + actualArgCount + ".", functionHeaderToken);
@@ -90,9 +94,9 @@ public class FunctionCallNode implements OperandNode {
         for (int i = 0; i < actualArgCount; i++) {
 
             ExpressionNode argNode = argList.get(i);
-            argNode.validateTree(); // this will throw error if false
+            argNode.validateTree(symbolTable); // this will throw error if false
 
-            String actualType = argNode.getType(SymbolTable.globalSymbolTable);
+            String actualType = argNode.getType(symbolTable);
             String expectedType = expectedParamTypes.get(i);
             if (!actualType.equals(expectedType)) {
                 if(!(expectedType.equals("Any") && (actualType.equals("Double") || actualType.equals("Integer") || actualType.equals("String") || actualType.equals("Boolean")))){
@@ -105,4 +109,16 @@ public class FunctionCallNode implements OperandNode {
 
         return true;
     }
+
+    public Token getHeaderToken() {
+        return functionHeaderToken;
+    }
+
+    public IDNode getFunctionName() {
+        return functionName;
+    }
+
+    public ParamNode getParams() {
+        return params;
+    }
 }
@@ -1,9 +1,9 @@
 package parser;
 
-import java.util.ArrayList;
-
+import provided.Keyword;
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.SymbolTable;
 
@@ -12,7 +12,44 @@ public class FunctionDefNode implements JottTree {
     private final IDNode functionId;
     private final FunctionDefParamsNode params;
     private final FunctionReturnNode returnType;
-    private final FBodyNode body;
+    private volatile FBodyNode body;
+    // the unparsed body, after '{' up to and including '}', until getBody(); guarded by this
+    private TokenCursor bodyTokens;
+    private ParseException bodyError; // the syntax error of the deferred body, once it was parsed; guarded by this
+
+    /**
+     * The header of a function definition: everything up to the '{' of its body
+     */
+    public static final class Header {
+        private final Token defToken;
+        private final IDNode functionId;
+        private final FunctionDefParamsNode params;
+        private final FunctionReturnNode returnType;
+
+        private Header(Token defToken, IDNode functionId, FunctionDefParamsNode params,
+                FunctionReturnNode returnType) {
+            this.defToken = defToken;
+            this.functionId = functionId;
+            this.params = params;
+            this.returnType = returnType;
+        }
+
+        public Token getDefToken() {
+            return defToken;
+        }
+
+        public IDNode getId() {
+            return functionId;
+        }
+
+        public FunctionDefParamsNode getParams() {
+            return params;
+        }
+
+        public FunctionReturnNode getReturnType() {
+            return returnType;
+        }
+    }
 
     public FunctionDefNode(Token defToken, IDNode functionId, FunctionDefParamsNode params, FunctionReturnNode returnType,
             FBodyNode body) {
@@ -23,20 +60,58 @@ public class FunctionDefNode implements JottTree {
         this.body = body;
     }
 
-    public static FunctionDefNode parseFunctionDefNode(ArrayList<Token> tokens) {
+    public static FunctionDefNode parseFunctionDefNode(TokenCursor tokens) {
+        return parseFunctionDefNode(tokens, false);
+    }
+
+    /**
+     * Parses a function definition, optionally leaving the body for later.
+     * A deferred body is skipped by counting braces and only parsed, from
+     * the same tokens, when getBody() is first called; a syntax error in it
+     * is thrown from there instead of from here.
+     * @param tokens the cursor, left just after the function's closing '}'
+     * @param lazyBody true to defer parsing the body. Streaming cursors and
+     *        bodies without a matching '}' are always parsed right away.
+     * @return the function definition
+     */
+    public static FunctionDefNode parseFunctionDefNode(TokenCursor tokens, boolean lazyBody) {
         // <function_def> -> Def <id> [function_def_params]:<function_return>{<f_body>}
+        Header header = parseHeader(tokens);
+        FunctionDefNode def = new FunctionDefNode(header.defToken, header.functionId, header.params,
+                header.returnType, null);
+
+        if (lazyBody && !tokens.isStreaming()) {
+            int close = matchingBrace(tokens);
+            if (close >= 0) {
+                def.bodyTokens = tokens.range(tokens.position(), close + 1);
+                tokens.reset(close + 1);
+                return def;
+            }
+        }
+
+        def.body = parseBody(tokens);
+        return def;
+    }
 
+    /**
+     * Parses only the header of a function definition, up to and including
+     * the '{' that opens its body, for tools that need the signature but not
+     * the body
+     * @param tokens the cursor, left at the first token of the body
+     * @return the header
+     */
+    public static Header parseHeader(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF while parsing function definition", null);
         }
 
         // Check for "Def" keyword
-        Token defToken = tokens.get(0);
-        if (defToken.getTokenType() != TokenType.ID_KEYWORD || (!defToken.getToken().equals("Def") && !defToken.getToken().equals("def"))) {
+        Token defToken = tokens.peek();
+        if (defToken.getKeyword() == null || !defToken.getKeyword().isFunctionDef()) {
             throw new ParseException("parseFunctionDefNode: Expected 'Def' keyword, got '" + defToken.getToken() + "'",
                     defToken);
         }
-        tokens.remove(0); // consume "Def"
+        tokens.advance(); // consume "Def"
 
         // Parse function ID
         IDNode functionId = IDNode.parseIDNode(tokens);
@@ -45,13 +120,13 @@ public class FunctionDefNode implements JottTree {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF after function name", null);
         }
-        Token openBracket = tokens.get(0);
-        if (openBracket.getTokenType() != TokenType.L_BRACKET) {
+        if (tokens.peekType() != TokenType.L_BRACKET) {
+            Token openBracket = tokens.peek();
             throw new ParseException(
                     "parseFunctionDefNode: Expected '[' after function name, got '" + openBracket.getToken() + "'",
                     openBracket);
         }
-        tokens.remove(0); // consume '['
+        tokens.advance(); // consume '['
 
         // Parse function parameters
         FunctionDefParamsNode params = FunctionDefParamsNode.parseFunctionDefParamsNode(tokens);
@@ -60,24 +135,24 @@ public class FunctionDefNode implements JottTree {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF after function parameters", null);
         }
-        Token closeBracket = tokens.get(0);
-        if (closeBracket.getTokenType() != TokenType.R_BRACKET) {
+        if (tokens.peekType() != TokenType.R_BRACKET) {
+            Token closeBracket = tokens.peek();
             throw new ParseException("parseFunctionDefNode: Expected ']' after function parameters, got '"
                     + closeBracket.getToken() + "'", closeBracket);
         }
-        tokens.remove(0); // consume ']'
+        tokens.advance(); // consume ']'
 
         // Check for colon ':'
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF after function parameters", null);
         }
-        Token colon = tokens.get(0);
-        if (colon.getTokenType() != TokenType.COLON) {
+        if (tokens.peekType() != TokenType.COLON) {
+            Token colon = tokens.peek();
             throw new ParseException(
                     "parseFunctionDefNode: Expected ':' after function parameters, got '" + colon.getToken() + "'",
                     colon);
         }
-        tokens.remove(0); // consume ':'
+        tokens.advance(); // consume ':'
 
         // Parse return type
         FunctionReturnNode returnType = FunctionReturnNode.parseFunctionReturnNode(tokens);
@@ -86,14 +161,19 @@ public class FunctionDefNode implements JottTree {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF after function return type", null);
         }
-        Token openBrace = tokens.get(0);
-        if (openBrace.getTokenType() != TokenType.L_BRACE) {
+        if (tokens.peekType() != TokenType.L_BRACE) {
+            Token openBrace = tokens.peek();
             throw new ParseException(
                     "parseFunctionDefNode: Expected '{' after function return type, got '" + openBrace.getToken() + "'",
                     openBrace);
         }
-        tokens.remove(0); // consume '{'
+        tokens.advance(); // consume '{'
+
+        return new Header(defToken, functionId, params, returnType);
+    }
 
+    // <f_body> and the closing '}' of the function
+    private static FBodyNode parseBody(TokenCursor tokens) {
         // Parse function body
         FBodyNode body = FBodyNode.parseFBodyNode(tokens);
 
@@ -101,15 +181,35 @@ public class FunctionDefNode implements JottTree {
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionDefNode: Unexpected EOF after function body", null);
         }
-        Token closeBrace = tokens.get(0);
-        if (closeBrace.getTokenType() != TokenType.R_BRACE) {
+        if (tokens.peekType() != TokenType.R_BRACE) {
+            Token closeBrace = tokens.peek();
             throw new ParseException(
                     "parseFunctionDefNode: Expected '}' after function body, got '" + closeBrace.getToken() + "'",
                     closeBrace);
         }
-        tokens.remove(0); // consume '}'
+        tokens.advance(); // consume '}'
 
-        return new FunctionDefNode(defToken, functionId, params, returnType, body);
+        return body;
+    }
+
+    // index of the '}' that closes the block the cursor is in, -1 if there is none
+    private static int matchingBrace(TokenCursor tokens) {
+        int depth = 1;
+        for (int offset = 0; ; offset++) {
+            TokenType type = tokens.peekType(offset);
+            if (type == null) {
+                return -1;
+            }
+            if (type == TokenType.L_BRACE) {
+                depth++;
+            } else if (type == TokenType.R_BRACE && --depth == 0) {
+                return tokens.position() + offset;
+            }
+        }
+    }
+
+    public Token getDefToken() {
+        return this.defToken;
     }
 
     public IDNode getId() {
@@ -124,14 +224,45 @@ public class FunctionDefNode implements JottTree {
         return this.returnType;
     }
 
+    /**
+     * A deferred body is parsed once, by whichever thread asks first; a
+     * syntax error in it is thrown again by every later call.
+     * @return the body, parsed now if parsing it was deferred
+     * @throws ParseException if a deferred body has a syntax error
+     */
     public FBodyNode getBody() {
+        FBodyNode parsed = this.body;
+        return parsed != null ? parsed : parseDeferredBody();
+    }
+
+    private synchronized FBodyNode parseDeferredBody() {
+        if (this.bodyError != null) {
+            throw this.bodyError;
+        }
+        if (this.body == null && this.bodyTokens != null) {
+            try {
+                this.body = parseBody(this.bodyTokens);
+            } catch (ParseException e) {
+                this.bodyError = e;
+                throw e;
+            } finally {
+                this.bodyTokens = null;
+            }
+        }
         return this.body;
     }
 
+    /**
+     * @return false while the body is still an unparsed range of tokens
+     */
+    public boolean isBodyParsed() {
+        return this.body != null;
+    }
+
     @Override
     public String convertToJott() {
         return this.defToken.getToken() + " " + this.functionId.convertToJott() + "[" + this.params.convertToJott() + "]:" + this.returnType.convertToJott()
-                + "{" + body.convertToJott() + "}";
+                + "{" + getBody().convertToJott() + "}";
     }
 
     @Override
@@ -151,6 +282,11 @@ public class FunctionDefNode implements JottTree {
 
     @Override
     public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
         boolean ok = true;
 
         // 1) DO NOT validate the function identifier as a variable.
@@ -163,7 +299,7 @@ public class FunctionDefNode implements JottTree {
         ok &= returnType.validateTree();
 
         // 2) New scope for the function body (so params live inside it)
-        SymbolTable.enterScope();
+        symbolTable.enterScope();
             // 3) Add params to the current scope as initialized variables.
             // You need names AND types. Adapt the accessor to whatever you have.
             // Example API — adjust to your real methods:
@@ -175,12 +311,12 @@ public class FunctionDefNode implements JottTree {
                     String ptype = p.getTypeToken().getToken();
 
                     // declare
-                    if (!SymbolTable.addVariable(pname, ptype)) {
+                    if (!symbolTable.addVariable(pname, ptype)) {
                         throw new semantics.SemanticException(
                                 "Duplicate parameter " + pname, p.getNameToken());
                     }
                     // mark initialized so it can be used immediately
-                    SymbolTable.initializeVariable(pname);
+                    symbolTable.initializeVariable(pname);
                 }
             }
 
@@ -189,10 +325,10 @@ public class FunctionDefNode implements JottTree {
             // checks "all paths return" when expectedReturnType != "Void".
             String expectedReturn = returnType.isVoid() ? "Void" : returnType.getReturnTypeToken().getToken();
 
-        ok &= body.validateTree(expectedReturn);
+        ok &= getBody().validateTree(symbolTable, expectedReturn);
 
         // 5) Always leave the function scope
-        SymbolTable.exitScope();
+        symbolTable.exitScope();
 
         return ok;
     }
@@ -1,9 +1,12 @@
 // parser/FunctionDefParamsNode.java
 package parser;
 
+import provided.Keyword;
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
+import semantics.SymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,7 +18,7 @@ public class FunctionDefParamsNode implements JottTree {
         final Token name;
         final Token type;
 
-        ParamDecl(Token name, Token type) {
+        public ParamDecl(Token name, Token type) {
             this.name = name;
             this.type = type;
         }
@@ -38,36 +41,36 @@ public class FunctionDefParamsNode implements JottTree {
     public FunctionDefParamsNode() {
     }
 
-    public static FunctionDefParamsNode parseFunctionDefParamsNode(ArrayList<Token> tokens) {
+    public static FunctionDefParamsNode parseFunctionDefParamsNode(TokenCursor tokens) {
         FunctionDefParamsNode node = new FunctionDefParamsNode();
 
         if (tokens.isEmpty())
             throw new ParseException("parseFunctionDefParamsNode: Unexpected EOF parsing function parameters", null);
 
-        if (tokens.get(0).getTokenType() == TokenType.R_BRACKET) {
+        if (tokens.peekType() == TokenType.R_BRACKET) {
             return node; // epsilon
         }
 
         // <id> : <type>
-        Token idTok = tokens.get(0);
+        Token idTok = tokens.peek();
         if (idTok.getTokenType() != TokenType.ID_KEYWORD) {
             throw new ParseException("parseFunctionDefParamsNode: Expected parameter name (id) in function definition",
                     idTok);
         }
-        tokens.remove(0);
+        tokens.advance();
 
         if (tokens.isEmpty())
             throw new ParseException("parseFunctionDefParamsNode: Unexpected EOF after parameter name", null);
-        if (tokens.get(0).getTokenType() != TokenType.COLON) {
-            throw new ParseException("parseFunctionDefParamsNode: Expected ':' after parameter name", tokens.get(0));
+        if (tokens.peekType() != TokenType.COLON) {
+            throw new ParseException("parseFunctionDefParamsNode: Expected ':' after parameter name", tokens.peek());
         }
-        tokens.remove(0);
+        tokens.advance();
 
         Token typeTok = expectType(tokens);
         node.params.add(new ParamDecl(idTok, typeTok));
 
         // (, <id> : <type>)*
-        while (!tokens.isEmpty() && tokens.get(0).getTokenType() == TokenType.COMMA) {
+        while (!tokens.isEmpty() && tokens.peekType() == TokenType.COMMA) {
             FunctionsDefParamsTNode tail = FunctionsDefParamsTNode.parseFunctionsDefParamsTNode(tokens);
             node.params.add(new ParamDecl(tail.getIdTok(), tail.getTypeTok()));
         }
@@ -75,16 +78,15 @@ public class FunctionDefParamsNode implements JottTree {
         return node;
     }
 
-    private static Token expectType(ArrayList<Token> tokens) {
+    private static Token expectType(TokenCursor tokens) {
         if (tokens.isEmpty())
             throw new ParseException("parseFunctionDefParamsNode: Unexpected EOF after ':'", null);
-        Token t = tokens.get(0);
-        String s = t.getToken();
-        if (!("Double".equals(s) || "Integer".equals(s) || "String".equals(s) || "Boolean".equals(s))) {
+        Token t = tokens.peek();
+        if (t.getKeyword() == null || !t.getKeyword().isType()) {
             throw new ParseException(
                     "parseFunctionDefParamsNode: Expected a type (Double | Integer | String | Boolean)", t);
         }
-        tokens.remove(0);
+        tokens.advance();
         return t;
     }
 
@@ -133,15 +135,17 @@ public class FunctionDefParamsNode implements JottTree {
     @Override
     public boolean validateTree() {
         // basic duplicate-name check (types already validated in parse)
-        boolean ok = true;
         java.util.HashSet<String> seen = new java.util.HashSet<>();
         for (ParamDecl p : params) {
             if (!seen.add(p.name.getToken())) {
-                System.err.println("Semantic Error\nDuplicate parameter " + p.name.getToken()
-                        + "\n" + p.name.getFilename() + ":" + p.name.getLineNum());
-                ok = false;
+                throw new semantics.SemanticException("Duplicate parameter " + p.name.getToken(), p.name);
             }
         }
-        return ok;
+        return true;
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // FunctionDefNode puts the parameters in the table
     }
 }
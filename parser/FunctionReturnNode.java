@@ -1,10 +1,10 @@
 package parser;
 
+import provided.Keyword;
 import provided.JottTree;
 import provided.Token;
-import provided.TokenType;
-
-import java.util.ArrayList;
+import provided.TokenCursor;
+import semantics.SymbolTable;
 
 public class FunctionReturnNode implements JottTree {
     private final Token returnTypeToken;
@@ -15,29 +15,25 @@ public class FunctionReturnNode implements JottTree {
         this.isVoid = isVoid;
     }
 
-    public static FunctionReturnNode parseFunctionReturnNode(ArrayList<Token> tokens) {
+    public static FunctionReturnNode parseFunctionReturnNode(TokenCursor tokens) {
         // <function_return> -> <type> | Void
         if (tokens.isEmpty()) {
             throw new ParseException("parseFunctionReturnNode: Unexpected EOF while parsing function return type",
                     null);
         }
 
-        Token token = tokens.get(0);
+        Token token = tokens.peek();
 
         // Check if it's "Void"
-        if (token.getTokenType() == TokenType.ID_KEYWORD && token.getToken().equals("Void")) {
-            tokens.remove(0); // consume "Void"
+        if (token.getKeyword() == Keyword.VOID) {
+            tokens.advance(); // consume "Void"
             return new FunctionReturnNode(token, true);
         }
 
         // Check if it's a valid type (Double, Integer, String, Boolean)
-        if (token.getTokenType() == TokenType.ID_KEYWORD) {
-            String tokenValue = token.getToken();
-            if (tokenValue.equals("Double") || tokenValue.equals("Integer") ||
-                    tokenValue.equals("String") || tokenValue.equals("Boolean")) {
-                tokens.remove(0); // consume the type token
-                return new FunctionReturnNode(token, false);
-            }
+        if (token.getKeyword() != null && token.getKeyword().isType()) {
+            tokens.advance(); // consume the type token
+            return new FunctionReturnNode(token, false);
         }
 
         // If we get here, it's neither Void nor a valid type
@@ -67,6 +63,11 @@ public class FunctionReturnNode implements JottTree {
         return true;
     }
 
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // a return type has no names to look up
+    }
+
     @Override
     public String convertToJott() {
         return returnTypeToken.getToken();
@@ -1,10 +1,11 @@
 package parser;
 
+import provided.Keyword;
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
-
-import java.util.ArrayList;
+import semantics.SymbolTable;
 
 public class FunctionsDefParamsTNode implements JottTree {
 
@@ -18,38 +19,37 @@ public class FunctionsDefParamsTNode implements JottTree {
 	}
 
 	// NEW: accept the token list and actually parse: , <id> : <type>
-	public static FunctionsDefParamsTNode parseFunctionsDefParamsTNode(ArrayList<Token> tokens) {
+	public static FunctionsDefParamsTNode parseFunctionsDefParamsTNode(TokenCursor tokens) {
 		if (tokens.isEmpty())
 			throw new ParseException("parseFunctionsDefParamsTNode: Unexpected EOF in parameter tail", null);
 
-		if (tokens.get(0).getTokenType() != TokenType.COMMA) {
-			throw new ParseException("parseFunctionsDefParamsTNode: Expected ',' before additional parameter", tokens.get(0));
+		if (tokens.peekType() != TokenType.COMMA) {
+			throw new ParseException("parseFunctionsDefParamsTNode: Expected ',' before additional parameter", tokens.peek());
 		}
-		tokens.remove(0); // consume ','
+		tokens.advance(); // consume ','
 
 		if (tokens.isEmpty())
 			throw new ParseException("parseFunctionsDefParamsTNode: Unexpected EOF after ','", null);
-		Token id = tokens.get(0);
+		Token id = tokens.peek();
 		if (id.getTokenType() != TokenType.ID_KEYWORD) {
 			throw new ParseException("parseFunctionsDefParamsTNode: Expected parameter name (id) after ','", id);
 		}
-		tokens.remove(0); // consume id
+		tokens.advance(); // consume id
 
 		if (tokens.isEmpty())
 			throw new ParseException("parseFunctionsDefParamsTNode: Unexpected EOF after parameter name", null);
-		if (tokens.get(0).getTokenType() != TokenType.COLON) {
-			throw new ParseException("parseFunctionsDefParamsTNode: Expected ':' after parameter name", tokens.get(0));
+		if (tokens.peekType() != TokenType.COLON) {
+			throw new ParseException("parseFunctionsDefParamsTNode: Expected ':' after parameter name", tokens.peek());
 		}
-		tokens.remove(0); // consume ':'
+		tokens.advance(); // consume ':'
 
 		if (tokens.isEmpty())
 			throw new ParseException("parseFunctionsDefParamsTNode: Unexpected EOF after ':'", null);
-		Token typeTok = tokens.get(0);
-		String tt = typeTok.getToken();
-		if (!("Double".equals(tt) || "Integer".equals(tt) || "String".equals(tt) || "Boolean".equals(tt))) {
+		Token typeTok = tokens.peek();
+		if (typeTok.getKeyword() == null || !typeTok.getKeyword().isType()) {
 			throw new ParseException("Expected a type (Double | Integer | String | Boolean)", typeTok);
 		}
-		tokens.remove(0); // consume type
+		tokens.advance(); // consume type
 
 		return new FunctionsDefParamsTNode(id, typeTok);
 	}
@@ -73,6 +73,11 @@ public class FunctionsDefParamsTNode implements JottTree {
 		return true;
 	}
 
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		return validateTree(); // FunctionDefNode puts the parameters in the table
+	}
+
 	@Override
 	public String convertToJott() {
 		return "," + idTok.getToken() + ":" + typeTok.getToken();
@@ -3,8 +3,6 @@ package parser;
 import provided.*;
 import semantics.*;
 
-import java.util.ArrayList;
-
 public class IDNode implements OperandNode {
     private final Token idToken;
 
@@ -12,16 +10,16 @@ public class IDNode implements OperandNode {
         this.idToken = idToken;
     }
 
-    public static IDNode parseIDNode(ArrayList<Token> tokens) {
+    public static IDNode parseIDNode(TokenCursor tokens) {
         if (tokens.isEmpty())
             throw new ParseException("parseIDNode: Unexpected EOF", null);
 
-        Token t = tokens.get(0);
+        Token t = tokens.peek();
         if (t.getTokenType() != TokenType.ID_KEYWORD)
             throw new ParseException("parseIDNode: Missing an ID Keyword", t);
 
         // consume the token and return a new IDNode
-        tokens.remove(0);
+        tokens.advance();
         return new IDNode(t);
     }
 
@@ -60,4 +58,9 @@ public class IDNode implements OperandNode {
     public boolean validateTree() {
         return true;
     }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // the node using the name looks it up
+    }
 }
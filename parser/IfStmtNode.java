@@ -1,6 +1,8 @@
 package parser;
 
+import provided.Keyword;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import provided.JottTree;
 import semantics.*;
@@ -20,28 +22,67 @@ public class IfStmtNode implements JottTree {
         this.elseNode = elseNode;
     }
 
-    public static IfStmtNode parseIfStmtNode(ArrayList<Token> tokens) {
+    public static IfStmtNode parseIfStmtNode(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseIfStmtNode: Unexpected EOF while parsing <if_stmt>", null);
         }
 
         // Parse "If" keyword
-        Token ifToken = tokens.get(0);
-        if (ifToken.getTokenType() != TokenType.ID_KEYWORD || !ifToken.getToken().equals("If")) {
+        if (tokens.peekKeyword() != Keyword.IF) {
+            Token ifToken = tokens.peek();
             throw new ParseException("parseIfStmtNode: Expected 'If', got '" + ifToken.getToken() + "'", ifToken);
         }
-        tokens.remove(0);
+        tokens.advance();
 
+        // Parse [ < expr > ]{
+        ExpressionNode condition = parseHeader(tokens);
+
+        // Parse body (will throw ParseException if it fails)
+        BodyNode body = BodyNode.parseBodyNode(tokens);
+
+        // Parse right brace }
+        parseBodyEnd(tokens);
+
+        // Parse zero or more ElseIf nodes (Kleene star)
+        ArrayList<ElseIfNode> elseIfList = new ArrayList<>();
+        while (!tokens.isEmpty()) {
+            Keyword keyword = tokens.peekKeyword();
+            if (keyword == Keyword.ELSEIF) {
+                // Will throw ParseException if it fails
+                ElseIfNode elseIfNode = ElseIfNode.parseElseIfNode(tokens);
+                elseIfList.add(elseIfNode);
+            } else if (keyword == Keyword.ELSE) {
+                // Found Else, break out of Elseif loop
+                break;
+            } else {
+                // Not Elseif or Else, break out of loop
+                break;
+            }
+        }
+
+        // Parse Else node (which can be epsilon, will throw ParseException if it fails)
+        ElseNode elseNode = ElseNode.parseElseNode(tokens);
+
+        return new IfStmtNode(condition, body, elseIfList, elseNode);
+    }
+
+    /**
+     * Parses what follows the If keyword up to the body: [ < expr > ]{
+     * Shared by the recursive parser and BodyParser, so both report the same errors.
+     * @param tokens the cursor, just after 'If'
+     * @return the condition
+     */
+    static ExpressionNode parseHeader(TokenCursor tokens) {
         // Parse left bracket [
         if (tokens.isEmpty()) {
             throw new ParseException("parseIfStmtNode: Unexpected EOF", null);
         }
-        Token leftBracket = tokens.get(0);
-        if (leftBracket.getTokenType() != TokenType.L_BRACKET) {
+        if (tokens.peekType() != TokenType.L_BRACKET) {
+            Token leftBracket = tokens.peek();
             throw new ParseException("parseIfStmtNode: Expected '[' after 'If', got '" + leftBracket.getToken() + "'",
                     leftBracket);
         }
-        tokens.remove(0);
+        tokens.advance();
 
         // Parse expression (will throw ParseException if it fails)
         ExpressionNode condition = ExpressionNode.parseExpressionNode(tokens);
@@ -50,60 +91,38 @@ public class IfStmtNode implements JottTree {
         if (tokens.isEmpty()) {
             throw new ParseException("parseIfStmtNode: Unexpected EOF", null);
         }
-        Token rightBracket = tokens.get(0);
-        if (rightBracket.getTokenType() != TokenType.R_BRACKET) {
+        if (tokens.peekType() != TokenType.R_BRACKET) {
+            Token rightBracket = tokens.peek();
             throw new ParseException(
                     "parseIfStmtNode: Expected ']' after condition, got '" + rightBracket.getToken() + "'",
                     rightBracket);
         }
-        tokens.remove(0);
+        tokens.advance();
 
         // Parse left brace {
         if (tokens.isEmpty()) {
             throw new ParseException("parseIfStmtNode: Unexpected EOF", null);
         }
-        Token leftBrace = tokens.get(0);
-        if (leftBrace.getTokenType() != TokenType.L_BRACE) {
+        if (tokens.peekType() != TokenType.L_BRACE) {
+            Token leftBrace = tokens.peek();
             throw new ParseException(
                     "parseIfStmtNode: Expected '{' after condition, got '" + leftBrace.getToken() + "'", leftBrace);
         }
-        tokens.remove(0);
-
-        // Parse body (will throw ParseException if it fails)
-        BodyNode body = BodyNode.parseBodyNode(tokens);
+        tokens.advance();
+        return condition;
+    }
 
-        // Parse right brace }
+    // the } that closes the If body
+    static void parseBodyEnd(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseIfStmtNode: Unexpected EOF", null);
         }
-        Token rightBrace = tokens.get(0);
-        if (rightBrace.getTokenType() != TokenType.R_BRACE) {
+        if (tokens.peekType() != TokenType.R_BRACE) {
+            Token rightBrace = tokens.peek();
             throw new ParseException("parseIfStmtNode: Expected '}' after body, got '" + rightBrace.getToken() + "'",
                     rightBrace);
         }
-        tokens.remove(0);
-
-        // Parse zero or more ElseIf nodes (Kleene star)
-        ArrayList<ElseIfNode> elseIfList = new ArrayList<>();
-        while (!tokens.isEmpty()) {
-            Token t = tokens.get(0);
-            if (t.getTokenType() == TokenType.ID_KEYWORD && t.getToken().equals("Elseif")) {
-                // Will throw ParseException if it fails
-                ElseIfNode elseIfNode = ElseIfNode.parseElseIfNode(tokens);
-                elseIfList.add(elseIfNode);
-            } else if (t.getTokenType() == TokenType.ID_KEYWORD && t.getToken().equals("Else")) {
-                // Found Else, break out of Elseif loop
-                break;
-            } else {
-                // Not Elseif or Else, break out of loop
-                break;
-            }
-        }
-
-        // Parse Else node (which can be epsilon, will throw ParseException if it fails)
-        ElseNode elseNode = ElseNode.parseElseNode(tokens);
-
-        return new IfStmtNode(condition, body, elseIfList, elseNode);
+        tokens.advance();
     }
 
     @Override
@@ -143,22 +162,27 @@ public class IfStmtNode implements JottTree {
 
     @Override
     public boolean validateTree() {
-        condition.validateTree(); // throws error if false
+        return validateTree(new SymbolTable());
+    }
 
-        String type = condition.getType(SymbolTable.globalSymbolTable);
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        condition.validateTree(symbolTable); // throws error if false
+
+        String type = condition.getType(symbolTable);
         if (!type.equals("Boolean")) {
             throw new SemanticException(
                     "IfStmtNode: If statement condition must be of type Boolean, but got '" + type + "'.", null);
         }
 
         // Validate body with special marker to skip function-return validation
-        body.validateTree("__IF_STATEMENT_BODY__");
+        body.validateTree(symbolTable, "__IF_STATEMENT_BODY__");
 
         for (ElseIfNode elseIf : elseIfList) {
-            elseIf.validateTree();
+            elseIf.validateTree(symbolTable);
         }
 
-        elseNode.validateTree();
+        elseNode.validateTree(symbolTable);
         return true;
     }
 
@@ -167,6 +191,10 @@ public class IfStmtNode implements JottTree {
      * ------------------
      */
 
+    public ExpressionNode getCondition() {
+        return condition;
+    }
+
     /** expose then-body to BodyNode without changing parser API elsewhere */
     public BodyNode getThenBody() {
         return body;
@@ -180,9 +208,9 @@ public class IfStmtNode implements JottTree {
         return elseNode;
     }
 
-    public boolean returnsOnAllPaths(String expectedReturnType) {
+    public boolean returnsOnAllPaths(SymbolTable symbolTable, String expectedReturnType) {
         // then branch must return
-        if (body == null || !body.returnsOnAllPaths(expectedReturnType)) {
+        if (body == null || !body.returnsOnAllPaths(symbolTable, expectedReturnType)) {
             return false;
         }
 
@@ -190,7 +218,7 @@ public class IfStmtNode implements JottTree {
         if (elseIfList != null) {
             for (ElseIfNode ei : elseIfList) {
                 BodyNode b = ei.getBody(); // ElseIfNode should expose its body
-                if (b == null || !b.returnsOnAllPaths(expectedReturnType)) {
+                if (b == null || !b.returnsOnAllPaths(symbolTable, expectedReturnType)) {
                     return false;
                 }
             }
@@ -201,6 +229,6 @@ public class IfStmtNode implements JottTree {
             return false;
         }
         BodyNode eb = elseNode.getBody(); // ElseNode should expose body if present
-        return eb != null && eb.returnsOnAllPaths(expectedReturnType);
+        return eb != null && eb.returnsOnAllPaths(symbolTable, expectedReturnType);
     }
 }
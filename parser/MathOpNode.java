@@ -1,11 +1,10 @@
 package parser;
 
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.SymbolTable;
 
-import java.util.ArrayList;
-
 public class MathOpNode implements ExpressionNode{
 
     private final Token mathOpToken;
@@ -14,8 +13,8 @@ public class MathOpNode implements ExpressionNode{
         this.mathOpToken = mathOpToken;
     }
 
-    public static MathOpNode parseMathOpNode(ArrayList<Token> tokens) {
-        Token t = tokens.remove(0);
+    public static MathOpNode parseMathOpNode(TokenCursor tokens) {
+        Token t = tokens.next();
         if (t.getTokenType() == TokenType.MATH_OP) {
             return new MathOpNode(t);
         }
@@ -45,6 +44,11 @@ public class MathOpNode implements ExpressionNode{
 		return true;
 	}
 
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		return validateTree(); // an operator has no names to look up
+	}
+
 	@Override
 	public String convertToC() {
 		// TODO: Implement this method
@@ -1,43 +1,66 @@
 package parser;
 
+import provided.NumberKind;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.SymbolTable;
-import java.util.ArrayList;
-
 
 public class NumberNode implements OperandNode {
     private final Token numberToken;
     private final boolean isNegative;
+    private final NumberKind kind;
+    private final long value; // long value or double bits, before negation
 
     public NumberNode(Token token, boolean isNegative) {
         this.numberToken = token;   
         this.isNegative = isNegative;
+        this.kind = token.getNumberKind();
+        this.value = kind == NumberKind.DOUBLE ? Double.doubleToRawLongBits(token.getDoubleValue()) : token.getLongValue();
     }
 
-    public static NumberNode parseNumberNode(ArrayList<Token> tokens, boolean isNegative) {
+    public static NumberNode parseNumberNode(TokenCursor tokens, boolean isNegative) {
         if (tokens == null || tokens.isEmpty()) throw new ParseException("parseNumberNode: expected number but no tokens available", null);
            
-        Token t = tokens.get(0);
+        Token t = tokens.peek();
         if (t.getTokenType() != TokenType.NUMBER) throw new ParseException("parseNumberNode: expected NUMBER token, got ", t);
             
-        char firstChar = t.getToken().charAt(0);
+        char firstChar = t.getLexeme().charAt(0);
         if (!Character.isDigit(firstChar)) throw new ParseException("parseNumberNode: expected number, got ", t);
             
         // consume the token and return a new NumberNode
-        tokens.remove(0);
+        tokens.advance();
         return new NumberNode(t, isNegative);
     }
 
     @Override
     public String getType(SymbolTable symbolTable) {
-        // Check if the number contains a decimal point
-        String tokenValue = numberToken.getToken();
-        if (tokenValue.contains(".")) {
-            return "Double";
-        } else {
-            return "Integer";
-        }
+        // decided by the tokenizer, a decimal point makes it a Double
+        return kind.getTypeName();
+    }
+
+    public NumberKind getKind() {
+        return kind;
+    }
+
+    public boolean isNegative() {
+        return isNegative;
+    }
+
+    /**
+     * @return the value of an Integer literal with its sign applied
+     */
+    public long getLongValue() {
+        long v = kind == NumberKind.INTEGER ? value : (long) Double.longBitsToDouble(value);
+        return isNegative ? -v : v;
+    }
+
+    /**
+     * @return the value of the literal as a double with its sign applied
+     */
+    public double getDoubleValue() {
+        double v = kind == NumberKind.DOUBLE ? Double.longBitsToDouble(value) : value;
+        return isNegative ? -v : v;
     }
 
     public String convertToJott() {
@@ -58,4 +81,13 @@ public class NumberNode implements OperandNode {
         // num literals are always valid
         return true;
     }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // a literal has no names to look up
+    }
+
+    public Token getToken() {
+        return numberToken;
+    }
 }
@@ -1,13 +1,15 @@
 package parser;
 
-import java.util.ArrayList;
-
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 
 public interface OperandNode extends ExpressionNode {
-    public static OperandNode parseOperand(ArrayList<Token> tokens){
-        Token t = tokens.get(0);
+    public static OperandNode parseOperand(TokenCursor tokens){
+        if (tokens.isTableDispatch()) {
+            return PredictiveParser.parseOperand(tokens);
+        }
+        Token t = tokens.peek();
 
         if(t.getTokenType().equals(TokenType.ID_KEYWORD)){
             return IDNode.parseIDNode(tokens);
@@ -19,8 +21,8 @@ public interface OperandNode extends ExpressionNode {
             return FunctionCallNode.parseFunctionCallNode(tokens);
         }
         else if(t.getTokenType().equals(TokenType.MATH_OP) && t.getToken().equals("-")){
-            tokens.remove(0);
-            t = tokens.get(0);
+            tokens.advance();
+            t = tokens.peek();
             if(t.getTokenType().equals(TokenType.NUMBER)){
                 return NumberNode.parseNumberNode(tokens, true);
             }
@@ -2,7 +2,9 @@ package parser;
 
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
+import semantics.SymbolTable;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -16,14 +18,14 @@ public class ParamNode implements JottTree {
     }
 
     // <params> -> <expr> <params_t>* | ε
-    public static ParamNode parseParamNode(ArrayList<Token> tokens) {
+    public static ParamNode parseParamNode(TokenCursor tokens) {
         List<ExpressionNode> list = new ArrayList<>();
 
         if (tokens.isEmpty())
             throw new ParseException("parseParamNode: Unexpected EOF parsing function call params", null);
 
         // epsilon if next is R_BRACKET
-        if (tokens.get(0).getTokenType() == TokenType.R_BRACKET) {
+        if (tokens.peekType() == TokenType.R_BRACKET) {
             return new ParamNode(list);
         }
 
@@ -32,7 +34,7 @@ public class ParamNode implements JottTree {
         list.add(first);
 
         // Zero or more tails
-        while (!tokens.isEmpty() && tokens.get(0).getTokenType() == TokenType.COMMA) {
+        while (!tokens.isEmpty() && tokens.peekType() == TokenType.COMMA) {
             ParamTNode paramTail = ParamTNode.parseParamTNode(tokens);
             ExpressionNode paramT_expr_node = paramTail.getExprNode();
             list.add(paramT_expr_node);
@@ -71,8 +73,13 @@ public class ParamNode implements JottTree {
 
     @Override
     public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
         for (ExpressionNode arg : args) {
-            arg.validateTree();
+            arg.validateTree(symbolTable);
         }
         return true;
     }
@@ -2,9 +2,9 @@ package parser;
 
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
-
-import java.util.ArrayList;
+import semantics.SymbolTable;
 
 public class ParamTNode implements JottTree {
 
@@ -15,15 +15,15 @@ public class ParamTNode implements JottTree {
     }
 
     // <params_t> -> , <expr>
-    public static ParamTNode parseParamTNode(ArrayList<Token> tokens) {
+    public static ParamTNode parseParamTNode(TokenCursor tokens) {
         if (tokens.isEmpty())
             throw new ParseException("parseParamTNode: Unexpected EOF in params tail", null);
 
-        Token comma = tokens.get(0);
-        if (comma.getTokenType() != TokenType.COMMA) {
+        if (tokens.peekType() != TokenType.COMMA) {
+            Token comma = tokens.peek();
             throw new ParseException("parseParamTNode: Expected ',' between function call arguments", comma);
         }
-        tokens.remove(0);
+        tokens.advance();
 
         ExpressionNode e = ExpressionNode.parseExpressionNode(tokens);
         return new ParamTNode(e);
@@ -55,8 +55,13 @@ public class ParamTNode implements JottTree {
 
     @Override
     public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
         // i dont think this actually ever gets called bc of how params is implemented
-        expr.validateTree();
+        expr.validateTree(symbolTable);
         return true;
     }
 }
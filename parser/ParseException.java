@@ -1,23 +1,36 @@
 package parser;
 
+import provided.Diagnostic;
 import provided.Token;
 
+/**
+ * A syntax error. The exception only carries its Diagnostic: the message is
+ * rendered when getMessage is called, and no stack trace is captured since
+ * the error is reported by its message and file:line, not by where the
+ * parser was when it found it.
+ */
 public class ParseException extends RuntimeException {
+    private final Diagnostic diagnostic;
 
     public ParseException(String message, Token token) {
         // For any syntax error
-        super(buildMessage(message, token));
+        this(new Diagnostic(Diagnostic.Code.SYNTAX, token, message));
     }
 
-    private static String buildMessage(String message, Token token) {
-        // builds Error message
-        if (token == null) { // When reaching EOF unexpectedly, empty token list
-            return "Syntax Error\n" +
-                    message;
-        } else {
-            return "Syntax Error\n" +
-               message + "\n" +
-               token.getFilename() + ":" + token.getLineNum();
-        }
+    public ParseException(Diagnostic diagnostic) {
+        super(null, null, false, false);
+        this.diagnostic = diagnostic;
     }
-}
\ No newline at end of file
+
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+
+    @Override
+    public String getMessage() {
+        // Syntax Error
+        // <message>
+        // <filename>:<line>
+        return diagnostic.render();
+    }
+}
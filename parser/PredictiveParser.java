@@ -0,0 +1,393 @@
+package parser;
+
+import java.util.Arrays;
+
+import provided.JottTree;
+import provided.Keyword;
+import provided.Token;
+import provided.TokenCursor;
+import provided.TokenType;
+
+/**
+ * Table-driven alternative to the hand-written statement, expression and
+ * operand dispatch of BodyNode, BodyStmtNode, ExpressionNode and OperandNode.
+ *
+ * The grammar is the one in the node classes' comments, written down once
+ * below as Production constants, with < expr > left-factored and the *
+ * repetitions turned into right recursion so that it is LL(1). When the
+ * class loads, the productions are compiled into a predictive parse table
+ * indexed by (nonterminal, token kind), so picking a production is a single
+ * array lookup. A token's kind is its keyword if it has one, else its type.
+ *
+ * The table reproduces the decisions of the hand-written parser, errors
+ * included, so both build the same tree and report the same message:
+ * - keywords are ID_KEYWORD tokens, so a keyword with no entry of its own
+ *   takes the < id > entry; type names are the exception in < body >, which
+ *   ends at them (see BodyNode.isBodyStmtStart)
+ * - a nullable production is predicted on every token no other production
+ *   of its nonterminal claims, so an Elseif or Else after an If body always
+ *   belongs to that If
+ * - a production that starts with a keyword and a bracket (If [, While [,
+ *   and the Else { and Elseif [ error productions) is only predicted when
+ *   the bracket follows; otherwise the keyword is read as an < id >
+ *
+ * The Production constants are one more copy of this part of the grammar,
+ * next to the node classes' comments, their parseX methods and FlatParser.
+ * They are not derived from the comments, which do not survive compiling,
+ * so a grammar change has to be made in every copy; the differential check
+ * of "JottBenchmark table", which fails on the first test case the two
+ * dispatches parse differently, is what keeps this copy in step. The table
+ * is used by a parse whose TokenCursor has setTableDispatch(true), and is
+ * off by default because no gain has been shown: parsing is bound by
+ * allocation, and on generated programs the two dispatches vary from run to
+ * run by more than they differ from each other.
+ */
+public final class PredictiveParser {
+
+    enum Nonterminal {
+        BODY, BODY_STMT, RETURN_STMT, IF_STMT, ELSEIF_LST, ELSE, WHILE_LOOP, ASMT, FUNC_CALL, PARAMS, PARAMS_T,
+        EXPR, EXPR_TAIL, OPERAND, BOOL
+    }
+
+    enum Production {
+        BODY_STATEMENT(Nonterminal.BODY, "< body_stmt > < body >"),
+        BODY_RETURN(Nonterminal.BODY, "< return_stmt >"),
+        IF(Nonterminal.BODY_STMT, "< if_stmt >"),
+        WHILE(Nonterminal.BODY_STMT, "< while_loop >"),
+        ASSIGN(Nonterminal.BODY_STMT, "< asmt >"),
+        CALL_STATEMENT(Nonterminal.BODY_STMT, "< func_call >"),
+        ELSE_WITHOUT_IF(Nonterminal.BODY_STMT, "Else {"),       // error
+        ELSEIF_WITHOUT_IF(Nonterminal.BODY_STMT, "Elseif ["),   // error
+        RETURN(Nonterminal.RETURN_STMT, "Return < expr > ;"),
+        NO_RETURN(Nonterminal.RETURN_STMT, "ε"),
+        IF_STMT(Nonterminal.IF_STMT, "If [ < expr > ] { < body > } < elseif_lst > < else >"),
+        ELSEIF(Nonterminal.ELSEIF_LST, "Elseif [ < expr > ] { < body > } < elseif_lst >"),
+        NO_ELSEIF(Nonterminal.ELSEIF_LST, "ε"),
+        ELSE(Nonterminal.ELSE, "Else { < body > }"),
+        NO_ELSE(Nonterminal.ELSE, "ε"),
+        WHILE_LOOP(Nonterminal.WHILE_LOOP, "While [ < expr > ] { < body > }"),
+        ASMT(Nonterminal.ASMT, "< id > = < expr > ;"),
+        FUNC_CALL(Nonterminal.FUNC_CALL, ":: < id > [ < params > ]"),
+        PARAMS(Nonterminal.PARAMS, "< expr > < params_t >"),
+        NO_PARAMS(Nonterminal.PARAMS, "ε"),
+        PARAMS_T(Nonterminal.PARAMS_T, ", < expr > < params_t >"),
+        PARAMS_END(Nonterminal.PARAMS_T, "ε"),
+        OPERAND_EXPR(Nonterminal.EXPR, "< operand > < expr_tail >"),
+        STRING_EXPR(Nonterminal.EXPR, "< string_literal >"),
+        BOOL_EXPR(Nonterminal.EXPR, "< bool >"),
+        RELOP(Nonterminal.EXPR_TAIL, "< relop > < operand >"),
+        MATHOP(Nonterminal.EXPR_TAIL, "< mathop > < operand >"),
+        SINGLE_OPERAND(Nonterminal.EXPR_TAIL, "ε"),
+        ID(Nonterminal.OPERAND, "< id >"),
+        NUM(Nonterminal.OPERAND, "< num >"),
+        CALL(Nonterminal.OPERAND, "< func_call >"),
+        NEG_NUM(Nonterminal.OPERAND, "- < num >"),
+        TRUE(Nonterminal.BOOL, "True"),
+        FALSE(Nonterminal.BOOL, "False"),
+        ERROR(null, ""); // no production applies
+
+        final Nonterminal lhs;
+        // terminals as token kinds, nonterminals as -1 - ordinal
+        final int[] symbols;
+
+        Production(Nonterminal lhs, String rhs) {
+            this.lhs = lhs;
+            this.symbols = symbols(rhs);
+        }
+    }
+
+    // token kinds: TokenType ordinals, then one per keyword. Set before PRODUCTIONS, whose symbols use them
+    private static final int KEYWORDS = TokenType.values().length;
+    private static final int KINDS = KEYWORDS + Keyword.values().length;
+    private static final int ID_KIND = TokenType.ID_KEYWORD.ordinal();
+
+    private static final Production[] PRODUCTIONS = Production.values();
+    private static final int ROWS = Nonterminal.values().length;
+
+    // the predictive table, row-major, and for cells holding a production that starts with a keyword
+    // and a bracket, the bracket that has to follow
+    private static final Production[] TABLE = new Production[ROWS * KINDS];
+    private static final TokenType[] FOLLOWED_BY = new TokenType[ROWS * KINDS];
+
+    static {
+        build();
+    }
+
+    private PredictiveParser() {
+    }
+
+    /**
+     * Picks the production for a nonterminal from the next token
+     * @param row the nonterminal being parsed
+     * @param tokens the cursor, not at EOF
+     * @return the production to parse, ERROR if none applies
+     */
+    static Production predict(Nonterminal row, TokenCursor tokens) {
+        Keyword keyword = tokens.peekKeyword();
+        int cell = row.ordinal() * KINDS + (keyword != null ? KEYWORDS + keyword.ordinal() : tokens.peekType().ordinal());
+        TokenType bracket = FOLLOWED_BY[cell];
+        if (bracket != null && tokens.peekType(1) != bracket) {
+            return TABLE[row.ordinal() * KINDS + ID_KIND]; // the keyword is read as the < id > it was lexed as
+        }
+        return TABLE[cell];
+    }
+
+    // < body > -> < body_stmt > < body > | < return_stmt >, true if the next token starts a < body_stmt >
+    static boolean startsBodyStmt(TokenCursor tokens) {
+        return predict(Nonterminal.BODY, tokens) == Production.BODY_STATEMENT;
+    }
+
+    // < body_stmt > -> < if_stmt > | < while_loop > | < asmt > | < func_call >
+    static JottTree parseBodyStmt(TokenCursor tokens) {
+        switch (predict(Nonterminal.BODY_STMT, tokens)) {
+            case IF:
+                return IfStmtNode.parseIfStmtNode(tokens);
+            case WHILE:
+                return WhileLoopNode.parseWhileLoopNode(tokens);
+            case ELSE_WITHOUT_IF:
+                throw new ParseException("parseBodyStmtNode: Unexpected 'Else' without preceding 'If'", tokens.peek());
+            case ELSEIF_WITHOUT_IF:
+                throw new ParseException("parseBodyStmtNode: Unexpected 'Elseif' without preceding 'If'", tokens.peek());
+            case CALL_STATEMENT:
+                return FunctionCallNode.parseFunctionCallNode(tokens);
+            case ASSIGN:
+                return AsmtNode.parseAsmtNode(tokens);
+            default:
+                throw new ParseException("parseBodyStmtNode: Invalid body statement", tokens.peek());
+        }
+    }
+
+    // < expr > -> < operand > < expr_tail > | < string_literal > | < bool >
+    static ExpressionNode parseExpression(TokenCursor tokens) {
+        switch (predict(Nonterminal.EXPR, tokens)) {
+            case STRING_EXPR:
+                return StringLiteralNode.parseStringLiteralNode(tokens);
+            case BOOL_EXPR:
+                return BoolNode.parseBoolNode(tokens);
+            default:
+                break; // < operand >, which reports any token that cannot start one
+        }
+        OperandNode left = OperandNode.parseOperand(tokens);
+
+        // < expr_tail > -> < relop > < operand > | < mathop > < operand > | ε
+        if (tokens.isEmpty() || predict(Nonterminal.EXPR_TAIL, tokens) == Production.SINGLE_OPERAND) {
+            return left;
+        }
+        Token operator = tokens.next();
+        if (tokens.isEmpty()) {
+            throw new ParseException("parseExpressionNode: Unexpected EOF", null);
+        }
+        return ExpressionNode.binaryExpression(left, operator, OperandNode.parseOperand(tokens));
+    }
+
+    // < operand > -> < id > | < num > | < func_call > | - < num >
+    static OperandNode parseOperand(TokenCursor tokens) {
+        switch (predict(Nonterminal.OPERAND, tokens)) {
+            case ID:
+                return IDNode.parseIDNode(tokens);
+            case NUM:
+                return NumberNode.parseNumberNode(tokens, false);
+            case CALL:
+                return FunctionCallNode.parseFunctionCallNode(tokens);
+            case NEG_NUM:
+                if (tokens.peekIs("-")) { // any other < mathop > is an error
+                    tokens.advance();
+                    if (tokens.peekType() == TokenType.NUMBER) {
+                        return NumberNode.parseNumberNode(tokens, true);
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        throw new ParseException("parseOperand: Expected <exp>, got <end_stmt>", tokens.peek());
+    }
+
+    // compiles the productions into TABLE and FOLLOWED_BY
+    private static void build() {
+        // nullable nonterminals and FIRST sets, as bit masks of token kinds, up to a fixed point
+        boolean[] nullable = new boolean[ROWS];
+        long[] first = new long[ROWS];
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Production p : PRODUCTIONS) {
+                if (p.lhs == null) {
+                    continue;
+                }
+                int row = p.lhs.ordinal();
+                long f = first[row] | first(p, nullable, first);
+                boolean n = nullable[row] || isNullable(p, nullable);
+                if (f != first[row] || n != nullable[row]) {
+                    first[row] = f;
+                    nullable[row] = n;
+                    changed = true;
+                }
+            }
+        }
+
+        // a production goes in its row under every token that can start it
+        for (Production p : PRODUCTIONS) {
+            if (p.lhs == null) {
+                continue;
+            }
+            long f = first(p, nullable, first);
+            TokenType bracket = leadingBracket(p);
+            for (int kind = 0; kind < KINDS; kind++) {
+                if ((f & (1L << kind)) == 0) {
+                    continue;
+                }
+                int cell = p.lhs.ordinal() * KINDS + kind;
+                if (TABLE[cell] != null) {
+                    throw new IllegalStateException("Jott grammar is not LL(1): " + p.lhs + " on " + kindName(kind)
+                            + " predicts both " + TABLE[cell] + " and " + p);
+                }
+                TABLE[cell] = p;
+                FOLLOWED_BY[cell] = bracket;
+            }
+        }
+
+        for (Nonterminal nt : Nonterminal.values()) {
+            int row = nt.ordinal() * KINDS;
+            // a keyword is also an < id >, except that a < body > ends at a type name
+            for (Keyword keyword : Keyword.values()) {
+                int cell = row + KEYWORDS + keyword.ordinal();
+                if (TABLE[cell] == null && !(nt == Nonterminal.BODY && keyword.isType())) {
+                    TABLE[cell] = TABLE[row + ID_KIND];
+                }
+            }
+            // the nullable production on everything else, and an error where there is none
+            Production fallback = Production.ERROR;
+            for (Production p : PRODUCTIONS) {
+                if (p.lhs == nt && isNullable(p, nullable)) {
+                    fallback = p;
+                }
+            }
+            for (int kind = 0; kind < KINDS; kind++) {
+                if (TABLE[row + kind] == null) {
+                    TABLE[row + kind] = fallback;
+                }
+            }
+        }
+    }
+
+    // FIRST of a production's right-hand side
+    private static long first(Production p, boolean[] nullable, long[] first) {
+        long f = 0;
+        for (int symbol : p.symbols) {
+            if (symbol >= 0) {
+                return f | (1L << symbol);
+            }
+            f |= first[-1 - symbol];
+            if (!nullable[-1 - symbol]) {
+                break;
+            }
+        }
+        return f;
+    }
+
+    private static boolean isNullable(Production p, boolean[] nullable) {
+        for (int symbol : p.symbols) {
+            if (symbol >= 0 || !nullable[-1 - symbol]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // for a production that starts with a keyword and then a bracket, possibly through a nonterminal
+    // with a single production, the bracket; null for any other production
+    private static TokenType leadingBracket(Production p) {
+        if (p.symbols.length == 0) {
+            return null;
+        }
+        int lead = p.symbols[0];
+        if (lead < 0) {
+            Production only = null;
+            for (Production q : PRODUCTIONS) {
+                if (q.lhs != null && q.lhs.ordinal() == -1 - lead) {
+                    if (only != null) {
+                        return null;
+                    }
+                    only = q;
+                }
+            }
+            return leadingBracket(only);
+        }
+        if (lead < KEYWORDS || p.symbols.length < 2) {
+            return null;
+        }
+        int next = p.symbols[1];
+        return next == TokenType.L_BRACKET.ordinal() || next == TokenType.L_BRACE.ordinal()
+                ? TokenType.values()[next] : null;
+    }
+
+    private static String kindName(int kind) {
+        return kind < KEYWORDS ? TokenType.values()[kind].toString() : Keyword.fromOrdinal(kind - KEYWORDS).getText();
+    }
+
+    // reads a right-hand side written like the grammar comments: "If [ < expr > ] { < body > }"
+    private static int[] symbols(String rhs) {
+        if (rhs.isEmpty() || rhs.equals("ε")) {
+            return new int[0];
+        }
+        String[] words = rhs.split(" ");
+        int[] symbols = new int[words.length];
+        int n = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (words[i].equals("<")) {
+                symbols[n++] = nonterminalOrClass(words[i + 1]);
+                i += 2; // the name and the closing >
+            } else {
+                symbols[n++] = terminal(words[i]);
+            }
+        }
+        return Arrays.copyOf(symbols, n);
+    }
+
+    private static int nonterminalOrClass(String name) {
+        switch (name) {
+            case "id":
+                return TokenType.ID_KEYWORD.ordinal();
+            case "num":
+                return TokenType.NUMBER.ordinal();
+            case "string_literal":
+                return TokenType.STRING.ordinal();
+            case "relop":
+                return TokenType.REL_OP.ordinal();
+            case "mathop":
+                return TokenType.MATH_OP.ordinal();
+            default:
+                return -1 - Nonterminal.valueOf(name.toUpperCase()).ordinal();
+        }
+    }
+
+    private static int terminal(String text) {
+        switch (text) {
+            case "[":
+                return TokenType.L_BRACKET.ordinal();
+            case "]":
+                return TokenType.R_BRACKET.ordinal();
+            case "{":
+                return TokenType.L_BRACE.ordinal();
+            case "}":
+                return TokenType.R_BRACE.ordinal();
+            case ";":
+                return TokenType.SEMICOLON.ordinal();
+            case ",":
+                return TokenType.COMMA.ordinal();
+            case "=":
+                return TokenType.ASSIGN.ordinal();
+            case "::":
+                return TokenType.FC_HEADER.ordinal();
+            case "-":
+                return TokenType.MATH_OP.ordinal();
+            default:
+                Keyword keyword = Keyword.classify(text);
+                if (keyword == null) {
+                    throw new IllegalStateException("unknown terminal in Jott grammar: " + text);
+                }
+                return KEYWORDS + keyword.ordinal();
+        }
+    }
+}
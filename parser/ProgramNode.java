@@ -1,10 +1,19 @@
 package parser;
 
+import provided.Keyword;
 import provided.Token;
-import provided.TokenType;
+import provided.TokenCursor;
 import semantics.SemanticException;
 import provided.JottTree;
+import provided.TokenBuffer;
+import provided.TokenType;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class ProgramNode implements JottTree {
     private final ArrayList<FunctionDefNode> functionDefs;
@@ -13,31 +22,148 @@ public class ProgramNode implements JottTree {
         this.functionDefs = functionDefs;
     }
 
-    public static ProgramNode parseProgramNode(ArrayList<Token> tokens) {
+    public static ProgramNode parseProgramNode(TokenCursor tokens) {
+        return parseProgramNode(tokens, false);
+    }
+
+    /**
+     * Parses a program, optionally deferring every function body until it is
+     * first needed (see FunctionDefNode.getBody). Headers are always parsed.
+     * When a header is invalid, the bodies before it are parsed first so the
+     * error thrown is the same first error the eager parser reports.
+     * @param tokens the tokens of the whole program
+     * @param lazyBodies true to defer parsing the function bodies
+     * @return the root of the parse tree
+     */
+    public static ProgramNode parseProgramNode(TokenCursor tokens, boolean lazyBodies) {
         ArrayList<FunctionDefNode> functionDefs = new ArrayList<>();
 
-        // Parse zero or more function definitions (Kleene star)
-        while (!tokens.isEmpty()) {
-            Token t = tokens.get(0);
+        try {
+            // Parse zero or more function definitions (Kleene star)
+            while (!tokens.isEmpty()) {
+                Keyword keyword = tokens.peekKeyword();
 
-            if (t.getTokenType() == TokenType.ID_KEYWORD && (t.getToken().equals("Def") || t.getToken().equals("def"))) {
-                // Will throw ParseException if it fails
-                FunctionDefNode funcDef = FunctionDefNode.parseFunctionDefNode(tokens);
-                functionDefs.add(funcDef);
-            } else {
-                break;
+                if (keyword != null && keyword.isFunctionDef()) {
+                    // Will throw ParseException if it fails
+                    FunctionDefNode funcDef = FunctionDefNode.parseFunctionDefNode(tokens, lazyBodies);
+                    functionDefs.add(funcDef);
+                } else {
+                    break;
+                }
             }
+
+            // At this point, we should have consumed all tokens (EOF)
+            if (!tokens.isEmpty()) {
+                throw new ParseException("parseProgramNode: Unexpected tokens after function definitions: '"
+                        + tokens.peek().getToken() + "'", tokens.peek());
+            }
+        } catch (RuntimeException e) {
+            // an error in an earlier, skipped body comes first
+            new ProgramNode(functionDefs).parseBodies();
+            throw e;
         }
 
-        // At this point, we should have consumed all tokens (EOF)
-        if (!tokens.isEmpty()) {
-            throw new ParseException("parseProgramNode: Unexpected tokens after function definitions: '"
-                    + tokens.get(0).getToken() + "'", tokens.get(0));
+        return new ProgramNode(functionDefs);
+    }
+
+    public ArrayList<FunctionDefNode> getFunctionDefs() {
+        return functionDefs;
+    }
+
+    /**
+     * Parses every function body that was deferred, in source order
+     * @throws ParseException for the first syntax error in any of them
+     */
+    public void parseBodies() {
+        for (FunctionDefNode funcDef : functionDefs) {
+            funcDef.getBody();
         }
+    }
 
+    /**
+     * Same result as parseProgramNode, but parses the function definitions
+     * on a pool. Function bodies are brace-delimited and never contain
+     * another Def, so counting braces finds where every top-level function
+     * ends without parsing anything. Groups of functions are then parsed
+     * independently, each with a cursor that stops at the end of its group.
+     *
+     * If the braces do not split the tokens cleanly or any group fails to
+     * parse, the whole program is parsed again sequentially. That run throws
+     * the same ParseException, for the same first error, as parseProgramNode
+     * would have.
+     * @param tokens the tokens of the whole program
+     * @param pool where the groups are parsed
+     * @return the root of the parse tree, with functions in source order
+     */
+    public static ProgramNode parseProgramNode(TokenBuffer tokens, ForkJoinPool pool) {
+        int[] ends = functionEnds(tokens);
+        if (ends == null || ends.length < 2) {
+            return parseProgramNode(new TokenCursor(tokens));
+        }
+
+        int groups = Math.min(ends.length, pool.getParallelism() * 4);
+        List<Callable<List<FunctionDefNode>>> tasks = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            int first = (int) ((long) ends.length * g / groups); // functions [first, last) of this group
+            int last = (int) ((long) ends.length * (g + 1) / groups);
+            int from = first == 0 ? 0 : ends[first - 1];
+            int to = ends[last - 1];
+            tasks.add(() -> {
+                TokenCursor cursor = new TokenCursor(tokens, from, to);
+                List<FunctionDefNode> defs = new ArrayList<>(last - first);
+                while (!cursor.isEmpty()) {
+                    defs.add(FunctionDefNode.parseFunctionDefNode(cursor));
+                }
+                return defs;
+            });
+        }
+
+        ArrayList<FunctionDefNode> functionDefs = new ArrayList<>(ends.length);
+        for (Future<List<FunctionDefNode>> f : pool.invokeAll(tasks)) {
+            try {
+                functionDefs.addAll(f.get());
+            } catch (InterruptedException | ExecutionException e) {
+                // a group did not parse; let the sequential parser find and report the first error
+                return parseProgramNode(new TokenCursor(tokens));
+            }
+        }
         return new ProgramNode(functionDefs);
     }
 
+    // index just past the closing brace of every top-level function, or null
+    // if the tokens are not a run of Def ... { ... } blocks
+    private static int[] functionEnds(TokenBuffer tokens) {
+        int[] ends = new int[16];
+        int count = 0;
+        int n = tokens.size();
+        int i = 0;
+        while (i < n) {
+            Keyword keyword = tokens.getKeyword(i);
+            if (keyword == null || !keyword.isFunctionDef()) {
+                return null;
+            }
+            int depth = 0;
+            boolean opened = false;
+            while (i < n && !(opened && depth == 0)) {
+                TokenType type = tokens.getType(i++);
+                if (type == TokenType.L_BRACE) {
+                    depth++;
+                    opened = true;
+                } else if (type == TokenType.R_BRACE && --depth < 0) {
+                    return null;
+                }
+            }
+            if (!opened || depth != 0) {
+                return null;
+            }
+            if (count == ends.length) {
+                ends = Arrays.copyOf(ends, count * 2);
+            }
+            ends[count++] = i;
+        }
+        return Arrays.copyOf(ends, count);
+    }
+
     @Override
     public String convertToJott() {
         StringBuilder sb = new StringBuilder();
@@ -65,88 +191,114 @@ public class ProgramNode implements JottTree {
     // in parser/ProgramNode.java
     @Override
     public boolean validateTree() {
+        return validateTree(new semantics.SymbolTable());
+    }
+
+    /**
+     * Validates the program against a table of its own, which should be new:
+     * the builtins and every function are declared in it, and it is passed
+     * down to every node that declares or looks up a name. Programs with
+     * separate tables can be validated at the same time on separate threads.
+     */
+    @Override
+    public boolean validateTree(semantics.SymbolTable symbolTable) {
         try {
-            semantics.SymbolTable.reset();
-            seedBuiltins();
-
-            for (FunctionDefNode f : functionDefs) {
-                // -- required tiny getters on FunctionDefNode/children --
-                // public IDNode getId()
-                // public FunctionDefParamsNode getParams()
-                // public FunctionReturnNode getReturnType()
-                // and on those:
-                // IDNode: public String getName(); public provided.Token getToken();
-                // FunctionDefParamsNode: public java.util.List<provided.Token>
-                // getParamTypeTokens();
-                // FunctionReturnNode: public provided.Token getReturnTypeToken(); public
-                // boolean isVoid();
-
-                String fname = f.getId().getName();
-                provided.Token nameTok = f.getId().getToken();
-
-                // params as Strings (what SymbolTable expects)
-                java.util.List<String> paramTypes = new java.util.ArrayList<>();
-                if (f.getParams() != null) {
-                    for (provided.Token ptok : f.getParams().getParamTypeTokens()) {
-                        String p = ptok.getToken();
-                        // sanity: only known types for phase 3
-                        if (!isKnownType(p)) {
-                            throw new semantics.SemanticException("Unknown parameter type " + p, ptok);
-                        }
-                        paramTypes.add(p);
-                    }
-                }
+            return validateOrThrow(symbolTable);
+        } catch (semantics.SemanticException se) {
+            // your SemanticException should already format:
+            // Semantic Error
+            // <message>
+            // <filename>:<line>
+            System.err.println(se.getMessage());
+            return false;
+        } catch (ParseException pe) {
+            // a function body that was parsed lazily turned out to be invalid
+            System.err.println(pe.getMessage());
+            return false;
+        }
+    }
 
-                // return type as String
-                String retType;
-                if (f.getReturnType().isVoid()) {
-                    retType = "Void";
-                } else {
-                    provided.Token rtok = f.getReturnType().getReturnTypeToken();
-                    retType = rtok.getToken();
-                    if (!isKnownType(retType)) {
-                        throw new semantics.SemanticException("Unknown return type " + retType, rtok);
+    /**
+     * Validates the program like validateTree(SymbolTable), but throws the
+     * first error instead of printing it, so a caller can keep its diagnostic
+     * @param symbolTable a new table for this program
+     * @return true if the program is valid
+     * @throws semantics.SemanticException at the first semantic error
+     * @throws ParseException if a function body parsed lazily is invalid
+     */
+    public boolean validateOrThrow(semantics.SymbolTable symbolTable) {
+        seedBuiltins(symbolTable);
+
+        for (FunctionDefNode f : functionDefs) {
+            // -- required tiny getters on FunctionDefNode/children --
+            // public IDNode getId()
+            // public FunctionDefParamsNode getParams()
+            // public FunctionReturnNode getReturnType()
+            // and on those:
+            // IDNode: public String getName(); public provided.Token getToken();
+            // FunctionDefParamsNode: public java.util.List<provided.Token>
+            // getParamTypeTokens();
+            // FunctionReturnNode: public provided.Token getReturnTypeToken(); public
+            // boolean isVoid();
+
+            String fname = f.getId().getName();
+            provided.Token nameTok = f.getId().getToken();
+
+            // params as Strings (what SymbolTable expects)
+            java.util.List<String> paramTypes = new java.util.ArrayList<>();
+            if (f.getParams() != null) {
+                for (provided.Token ptok : f.getParams().getParamTypeTokens()) {
+                    String p = ptok.getToken();
+                    // sanity: only known types for phase 3
+                    if (!isKnownType(p)) {
+                        throw new semantics.SemanticException("Unknown parameter type " + p, ptok);
                     }
+                    paramTypes.add(p);
                 }
+            }
 
-                // add to global function table; guard duplicates
-                boolean added = semantics.SymbolTable.addFunction(fname, retType, paramTypes);
-                if (!added) {
-                    throw new semantics.SemanticException("Duplicate function " + fname, nameTok);
+            // return type as String
+            String retType;
+            if (f.getReturnType().isVoid()) {
+                retType = "Void";
+            } else {
+                provided.Token rtok = f.getReturnType().getReturnTypeToken();
+                retType = rtok.getToken();
+                if (!isKnownType(retType)) {
+                    throw new semantics.SemanticException("Unknown return type " + retType, rtok);
                 }
             }
 
-            // enforce main[]:Void
-            if (!semantics.SymbolTable.functionExists("main")) {
-                throw new semantics.SemanticException("Missing main function", /* no precise token */ null);
-            }
-            if (!semantics.SymbolTable.hasMainFunction()) {
-                // your tests require Void + zero params
-                throw new semantics.SemanticException("main must be declared as main[]:Void", null);
+            // add to global function table; guard duplicates
+            boolean added = symbolTable.addFunction(fname, retType, paramTypes);
+            if (!added) {
+                throw new semantics.SemanticException("Duplicate function " + fname, nameTok);
             }
+        }
 
-            // second pass: validate each function body
-            boolean allOK = true;
-            for (FunctionDefNode f : functionDefs) {
-                // your teammates' FunctionDefNode.validateTree() should:
-                // - enterScope()
-                // - add params as initialized
-                // - check body
-                // - ensure returns (for non-Void)
-                // - exitScope()
-                boolean ok = f.validateTree();
-                allOK = allOK && ok;
-            }
+        // enforce main[]:Void
+        if (!symbolTable.functionExists("main")) {
+            throw new semantics.SemanticException("Missing main function", /* no precise token */ null);
+        }
+        if (!symbolTable.hasMainFunction()) {
+            // your tests require Void + zero params
+            throw new semantics.SemanticException("main must be declared as main[]:Void", null);
+        }
 
-            return allOK;
-        } catch (semantics.SemanticException se) {
-            // your SemanticException should already format:
-            // Semantic Error
-            // <message>
-            // <filename>:<line>
-            System.err.println(se.getMessage());
-            return false;
+        // second pass: validate each function body
+        boolean allOK = true;
+        for (FunctionDefNode f : functionDefs) {
+            // your teammates' FunctionDefNode.validateTree() should:
+            // - enterScope()
+            // - add params as initialized
+            // - check body
+            // - ensure returns (for non-Void)
+            // - exitScope()
+            boolean ok = f.validateTree(symbolTable);
+            allOK = allOK && ok;
         }
+
+        return allOK;
     }
 
     private static boolean isKnownType(String t) {
@@ -154,14 +306,14 @@ public class ProgramNode implements JottTree {
                 "Boolean".equals(t) || "Void".equals(t);
     }
 
-    private static void seedBuiltins() {
+    private static void seedBuiltins(semantics.SymbolTable symbolTable) {
         // - No overloading support, so we model print as taking a single "Any" type.
         // - Your FunctionCallNode.validateTree() should treat "Any" as matching any
         // actual arg type.
         // - concat and length use concrete signatures.
-        semantics.SymbolTable.addFunction("print", "Void", java.util.List.of("Any"));
-        semantics.SymbolTable.addFunction("concat", "String", java.util.List.of("String", "String"));
-        semantics.SymbolTable.addFunction("length", "Integer", java.util.List.of("String"));
+        symbolTable.addFunction("print", "Void", java.util.List.of("Any"));
+        symbolTable.addFunction("concat", "String", java.util.List.of("String", "String"));
+        symbolTable.addFunction("length", "Integer", java.util.List.of("String"));
     }
 
 }
@@ -1,8 +1,7 @@
 package parser;
 
-import java.util.ArrayList;
-
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.SymbolTable;
 
@@ -14,8 +13,8 @@ public class RelOpNode implements ExpressionNode {
         this.relOp = relOp;
     }
 
-    public static RelOpNode parseRelOpNode(ArrayList<Token> tokens) {
-        Token t = tokens.remove(0);
+    public static RelOpNode parseRelOpNode(TokenCursor tokens) {
+        Token t = tokens.next();
         if (t.getTokenType() == TokenType.REL_OP) {
             return new RelOpNode(t);
         }
@@ -45,6 +44,11 @@ public class RelOpNode implements ExpressionNode {
 		return true;
 	}
 
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		return validateTree(); // an operator has no names to look up
+	}
+
 	@Override
 	public String convertToC() {
 		// TODO: Implement this method
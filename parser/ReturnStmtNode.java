@@ -1,13 +1,14 @@
 package parser;
 
+import provided.Diagnostic;
+import provided.Keyword;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import provided.JottTree;
 import semantics.SemanticException;
 import semantics.SymbolTable;
 
-import java.util.ArrayList;
-
 public class ReturnStmtNode implements JottTree {
     private final Token returnToken;
     private final ExpressionNode expression;
@@ -19,22 +20,22 @@ public class ReturnStmtNode implements JottTree {
         this.isEmpty = isEmpty;
     }
 
-    public static ReturnStmtNode parseReturnStmtNode(ArrayList<Token> tokens) {
+    public static ReturnStmtNode parseReturnStmtNode(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             // Even if there is no return statement, there should be more token(s) like }
             throw new ParseException("parseReturnStmtNode: missing closing }", null);
         }
 
-        Token t = tokens.get(0);
+        Token t = tokens.peek();
 
         // Check if this is a Return statement (epsilon otherwise)
-        if (t.getTokenType() != TokenType.ID_KEYWORD || !t.getToken().equals("Return")) {
+        if (t.getKeyword() != Keyword.RETURN) {
             // Epsilon case - no return statement
             return new ReturnStmtNode(null, true, t);
         }
 
         // Consume "Return" keyword
-        tokens.remove(0);
+        tokens.advance();
 
         // Parse the expression (will throw ParseException if it fails)
         ExpressionNode expr = ExpressionNode.parseExpressionNode(tokens);
@@ -44,15 +45,15 @@ public class ReturnStmtNode implements JottTree {
             throw new ParseException("parseReturnStmtNode: Unexpected EOF", null);
         }
 
-        Token semicolon = tokens.get(0);
-        if (semicolon.getTokenType() != TokenType.SEMICOLON) {
+        if (tokens.peekType() != TokenType.SEMICOLON) {
+            Token semicolon = tokens.peek();
             throw new ParseException(
                     "parseReturnStmtNode: Expected ';' after return expression, got '" + semicolon.getToken() + "'",
                     semicolon);
         }
 
         // Consume semicolon
-        tokens.remove(0);
+        tokens.advance();
 
         return new ReturnStmtNode(expr, false, t);
     }
@@ -82,48 +83,73 @@ public class ReturnStmtNode implements JottTree {
 
     @Override
     public boolean validateTree() {
-        return validateTree("Void");
+        return validateTree(new SymbolTable(), "Void");
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(symbolTable, "Void");
     }
 
-    public boolean validateTree(String expectedReturnType) {
-        String expectedType = expectedReturnType;
+    public boolean validateTree(SymbolTable symbolTable, String expectedReturnType) {
+        Diagnostic error = checkReturn(symbolTable, expectedReturnType);
+        if (error != null) {
+            throw new SemanticException(error);
+        }
+        return true;
+    }
 
+    /**
+     * The checks of validateTree as a result instead of an exception, for
+     * callers that only want to know whether the return is valid
+     * @param symbolTable the table of the validation the return is part of
+     * @param expectedType the return type of the function
+     * @return null if the return is valid, or what is wrong with it
+     */
+    public Diagnostic checkReturn(SymbolTable symbolTable, String expectedType) {
         if (isEmpty) {
             if ("Void".equals(expectedType)) {
-                return true;
+                return null;
             }
-            throw new SemanticException(
-                    "ReturnStmtNode: Expected a return value of type '" + expectedType
-                            + "', but no value was returned.",
-                    null);
+            return new Diagnostic(Diagnostic.Code.RETURN_MISSING, null, expectedType);
         }
 
         if (expression == null) {
-            throw new SemanticException("ReturnStmtNode: Return statement without an expression.", returnToken);
+            return new Diagnostic(Diagnostic.Code.RETURN_WITHOUT_EXPRESSION, returnToken);
         }
 
-        String exprType = expression.getType(SymbolTable.globalSymbolTable);
+        String exprType = expression.getType(symbolTable);
 
         if ("Void".equals(expectedType)) {
-            throw new SemanticException("ReturnStmtNode: Void functions must not return a value.", returnToken);
+            return new Diagnostic(Diagnostic.Code.RETURN_IN_VOID, returnToken);
         }
 
         if (exprType == null) {
-            throw new SemanticException(
-                    "ReturnStmtNode: Unable to determine the type of the return expression.", returnToken);
+            return new Diagnostic(Diagnostic.Code.RETURN_UNTYPED, returnToken);
         }
 
         if (!exprType.equals(expectedType)) {
-            throw new SemanticException(
-                    "ReturnStmtNode: Return type mismatch. Expected '" + expectedType + "', but found '" + exprType
-                            + "'.",
-                    returnToken);
+            return new Diagnostic(Diagnostic.Code.RETURN_MISMATCH, returnToken, expectedType, exprType);
         }
 
-        return true;
+        return null;
     }
 
     public boolean isEmptyReturn() {
         return isEmpty;
     }
+
+    /**
+     * @return the Return keyword, or the token after an empty return
+     */
+    public Token getReturnToken() {
+        return returnToken;
+    }
+
+    /**
+     * @return the returned expression, null for an empty return
+     */
+    public ExpressionNode getExpression() {
+        return expression;
+    }
 }
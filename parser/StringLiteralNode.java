@@ -1,8 +1,7 @@
 package parser;
 
-import java.util.ArrayList;
-
 import provided.Token;
+import provided.TokenCursor;
 import semantics.SymbolTable;
 
 public class StringLiteralNode implements ExpressionNode {
@@ -13,11 +12,20 @@ public class StringLiteralNode implements ExpressionNode {
         this.stringLiteralToken = stringLiteralToken;
     }
 
-    public static StringLiteralNode parseStringLiteralNode(ArrayList<Token> tokens) {
-        Token t = tokens.remove(0);
+    public static StringLiteralNode parseStringLiteralNode(TokenCursor tokens) {
+        Token t = tokens.next();
         return new StringLiteralNode(t);
     }
 
+    /**
+     * The characters between the quotes, read from the source without copying
+     * @return the contents of the literal
+     */
+    public CharSequence getContents() {
+        CharSequence lexeme = this.stringLiteralToken.getLexeme();
+        return lexeme.subSequence(1, lexeme.length() - 1);
+    }
+
     @Override
     public String getType(SymbolTable symbolTable) {
         return "String";
@@ -38,6 +46,11 @@ public class StringLiteralNode implements ExpressionNode {
         return true; // String literals are always valid
     }
 
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // a literal has no names to look up
+    }
+
 
     @Override
     public String convertToC() {
@@ -48,4 +61,8 @@ public class StringLiteralNode implements ExpressionNode {
     public String convertToPython() {
         return "";
     }
+
+    public Token getToken() {
+        return stringLiteralToken;
+    }
 }
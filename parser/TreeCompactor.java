@@ -0,0 +1,127 @@
+package parser;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+
+import provided.JottTree;
+
+/**
+ * Rebuilds a parse tree so that it takes less heap, for programs that are
+ * kept in memory after parsing.
+ *
+ * Generated programs repeat the same literals and small expressions many
+ * times over. A compacted tree has one NumberNode, StringLiteralNode or
+ * BoolNode per distinct literal, and one BinaryExpressionNode per distinct
+ * operation on two number literals; every other use points at that node.
+ * Child lists are copied to their exact size, empty ones share the JDK's
+ * empty backing array, and every call without arguments and every If
+ * without an Else share one ParamNode and one ElseNode.
+ *
+ * Only nodes whose token never appears in an error message are shared, so
+ * validateTree reports the same errors on the same lines as on the original
+ * tree. The token of a shared literal is that of its first use. Identifiers,
+ * calls and statements are never shared.
+ */
+public final class TreeCompactor {
+    // literals by their Jott text, which is unambiguous across the three kinds
+    private final HashMap<String, ExpressionNode> literals = new HashMap<>();
+    // binary expressions on shared literals by [left, operator, right]
+    private final HashMap<List<Object>, BinaryExpressionNode> operations = new HashMap<>();
+    private final ParamNode noArgs = new ParamNode(List.of());
+    private final ElseNode noElse = new ElseNode(null, true);
+
+    private TreeCompactor() {
+    }
+
+    /**
+     * Compacts a whole program, parsing any function body that is still unparsed
+     * @param program the parse tree, left unchanged
+     * @return an equivalent tree with repeated literals and expressions shared
+     */
+    public static ProgramNode compact(ProgramNode program) {
+        TreeCompactor compactor = new TreeCompactor();
+        ArrayList<FunctionDefNode> defs = new ArrayList<>(program.getFunctionDefs().size());
+        for (FunctionDefNode def : program.getFunctionDefs()) {
+            defs.add(new FunctionDefNode(def.getDefToken(), def.getId(), def.getParams(), def.getReturnType(),
+                    compactor.functionBody(def.getBody())));
+        }
+        return new ProgramNode(defs);
+    }
+
+    private FBodyNode functionBody(FBodyNode node) {
+        return new FBodyNode(new ArrayList<>(node.getVarDecs()), body(node.getBody()));
+    }
+
+    private BodyNode body(BodyNode node) {
+        ArrayList<JottTree> statements = new ArrayList<>(node.getStatements().size());
+        BitSet isFunctionCall = new BitSet(0);
+        for (JottTree statement : node.getStatements()) {
+            if (statement instanceof FunctionCallNode) {
+                isFunctionCall.set(statements.size());
+            }
+            statements.add(statement(statement));
+        }
+        ReturnStmtNode ret = node.getReturnStmt();
+        if (!ret.isEmptyReturn()) {
+            ret = new ReturnStmtNode(expression(ret.getExpression()), false, ret.getReturnToken());
+        }
+        return new BodyNode(statements, isFunctionCall, ret);
+    }
+
+    private JottTree statement(JottTree node) {
+        if (node instanceof AsmtNode) {
+            AsmtNode asmt = (AsmtNode) node;
+            return new AsmtNode(asmt.getId(), expression(asmt.getExpression()));
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof WhileLoopNode) {
+            WhileLoopNode loop = (WhileLoopNode) node;
+            return new WhileLoopNode(loop.getWhileToken(), expression(loop.getCondition()), body(loop.getBody()));
+        }
+        IfStmtNode ifStmt = (IfStmtNode) node;
+        ArrayList<ElseIfNode> elseIfs = new ArrayList<>(ifStmt.getElseIfList().size());
+        for (ElseIfNode elseIf : ifStmt.getElseIfList()) {
+            elseIfs.add(new ElseIfNode(expression(elseIf.getCondition()), body(elseIf.getBody())));
+        }
+        ElseNode elseNode = ifStmt.getElseNode().isPresent()
+                ? new ElseNode(body(ifStmt.getElseNode().getBody()), false) : noElse;
+        return new IfStmtNode(expression(ifStmt.getCondition()), body(ifStmt.getThenBody()), elseIfs, elseNode);
+    }
+
+    private FunctionCallNode call(FunctionCallNode node) {
+        List<ExpressionNode> args = node.getParams().getArgs();
+        ParamNode params = noArgs;
+        if (!args.isEmpty()) {
+            ArrayList<ExpressionNode> compacted = new ArrayList<>(args.size());
+            for (ExpressionNode arg : args) {
+                compacted.add(expression(arg));
+            }
+            params = new ParamNode(compacted);
+        }
+        return new FunctionCallNode(node.getHeaderToken(), node.getFunctionName(), params);
+    }
+
+    private ExpressionNode expression(ExpressionNode node) {
+        if (node instanceof NumberNode || node instanceof StringLiteralNode || node instanceof BoolNode) {
+            return literals.computeIfAbsent(node.convertToJott(), text -> node);
+        }
+        if (node instanceof FunctionCallNode) {
+            return call((FunctionCallNode) node);
+        }
+        if (node instanceof BinaryExpressionNode) {
+            BinaryExpressionNode binary = (BinaryExpressionNode) node;
+            OperandNode left = (OperandNode) expression(binary.getLeft());
+            OperandNode right = (OperandNode) expression(binary.getRight());
+            if (left instanceof NumberNode && right instanceof NumberNode) {
+                return operations.computeIfAbsent(List.of(left, binary.getOperatorToken().getToken(), right),
+                        key -> new BinaryExpressionNode(left, binary.getOperatorToken(), right));
+            }
+            return new BinaryExpressionNode(left, binary.getOperatorToken(), right);
+        }
+        return node; // an IDNode keeps its own token, undeclared variables are reported at their line
+    }
+}
@@ -1,10 +1,11 @@
 package parser;
 
+import provided.Keyword;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import provided.JottTree;
-
-import java.util.ArrayList;
+import semantics.SymbolTable;
 
 public class TypeNode implements JottTree {
     private final Token typeToken;
@@ -13,25 +14,23 @@ public class TypeNode implements JottTree {
         this.typeToken = typeToken;
     }
 
-    public static TypeNode parseTypeNode(ArrayList<Token> tokens) {
+    public static TypeNode parseTypeNode(TokenCursor tokens) {
         if (tokens.isEmpty()) {
             throw new ParseException("parseTypeNode: Unexpected EOF while parsing <type>", null);
         }
         
-        Token t = tokens.get(0);
+        Token t = tokens.peek();
         if (t.getTokenType() != TokenType.ID_KEYWORD) {
             throw new ParseException("parseTypeNode: Expected type keyword, got '" + t.getToken() + "'", t);
         }
 
         // Check if the token is a valid type: Double, Integer, String, or Boolean
-        String tokenValue = t.getToken();
-        if (!tokenValue.equals("Double") && !tokenValue.equals("Integer") && 
-            !tokenValue.equals("String") && !tokenValue.equals("Boolean")) {
-            throw new ParseException("TypeNode: Expected type (Double, Integer, String, or Boolean), got '" + tokenValue + "'", t);
+        if (t.getKeyword() == null || !t.getKeyword().isType()) {
+            throw new ParseException("TypeNode: Expected type (Double, Integer, String, or Boolean), got '" + t.getToken() + "'", t);
         }
 
         // consume the token and return a new TypeNode
-        tokens.remove(0);
+        tokens.advance();
         return new TypeNode(t);
     }
 
@@ -64,4 +63,13 @@ public class TypeNode implements JottTree {
     public boolean validateTree() {
         return true; // TypeNode is always valid
     }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
+        return validateTree(); // a type has no names to look up
+    }
+
+    public Token getToken() {
+        return typeToken;
+    }
 }
@@ -1,12 +1,12 @@
 package parser;
 
+import provided.Keyword;
 import provided.JottTree;
 import provided.Token;
+import provided.TokenCursor;
 import provided.TokenType;
 import semantics.*;
 
-import java.util.ArrayList;
-
 public class VarDecNode implements JottTree {
 
     private final TypeNode typeNode;
@@ -17,7 +17,7 @@ public class VarDecNode implements JottTree {
         this.idNode = idNode;
     }
 
-    public static VarDecNode parseVarDecNode(ArrayList<Token> tokens) {
+    public static VarDecNode parseVarDecNode(TokenCursor tokens) {
         // < var_dec > -> < type > < id >;
         
         if (tokens.isEmpty()) {
@@ -35,13 +35,13 @@ public class VarDecNode implements JottTree {
             throw new ParseException("parseVarDecNode: Expected semicolon after variable declaration", null);
         }
         
-        Token semicolon = tokens.get(0);
-        if (semicolon.getTokenType() != TokenType.SEMICOLON) {
+        if (tokens.peekType() != TokenType.SEMICOLON) {
+            Token semicolon = tokens.peek();
             throw new ParseException("parseVarDecNode: Expected semicolon after variable declaration, got '" + semicolon.getToken() + "'", semicolon);
         }
         
         // Consume the semicolon
-        tokens.remove(0);
+        tokens.advance();
         
         return new VarDecNode(typeNode, idNode);
     }
@@ -54,6 +54,11 @@ public class VarDecNode implements JottTree {
 
     @Override
     public boolean validateTree() {
+        return validateTree(new SymbolTable());
+    }
+
+    @Override
+    public boolean validateTree(SymbolTable symbolTable) {
         // - Add variable to symbol table
         // - Check for duplicate declaration in current scope
         typeNode.validateTree(); // this will throw error if false
@@ -62,11 +67,11 @@ public class VarDecNode implements JottTree {
         String type = typeNode.getType();
         String name = idNode.getName();
 
-        if(name.equals("While")){
+        if(idNode.getToken().getKeyword() == Keyword.WHILE){
             throw new SemanticException("VarDecNode: While is keyword, cannot be used as id", null);
         }
 
-        boolean add_success = SymbolTable.addVariable(name, type); // will return false if variable already exists in current scope
+        boolean add_success = symbolTable.addVariable(name, type); // will return false if variable already exists in current scope
         if (!add_success) {
             throw new SemanticException("VarDecNode: Variable '" + name + "' is already declared in the current scope.", null);
         }
@@ -91,5 +96,12 @@ public class VarDecNode implements JottTree {
     
         return "";
     }
-    
+
+    public TypeNode getTypeNode() {
+        return typeNode;
+    }
+
+    public IDNode getId() {
+        return idNode;
+    }
 }
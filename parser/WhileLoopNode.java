@@ -2,8 +2,6 @@ package parser;
 import provided.*;
 import semantics.*;
 
-import java.util.ArrayList;
-
 public class WhileLoopNode implements JottTree{
 	private final Token whileToken;  // I actually dont know why we keep track of this but prof said so
 	private final ExpressionNode condition;
@@ -15,27 +13,34 @@ public class WhileLoopNode implements JottTree{
 		this.body = body;
     }
 
-    public static WhileLoopNode parseWhileLoopNode(ArrayList<Token> tokens) {
+    public static WhileLoopNode parseWhileLoopNode(TokenCursor tokens) {
 		// < while_loop > -> While [ < expr >]{ < body >}
 
 		// Check for while keyword
 		if (tokens.isEmpty()){
 			throw new ParseException("parseWhileLoopNode: Unexpected EOF", null);
 		}
-		if (!tokens.get(0).getToken().equals("While")) {
-			throw new ParseException("parseWhileLoopNode: Expected 'While' Keyword", tokens.get(0));
+		if (tokens.peekKeyword() != Keyword.WHILE) {
+			throw new ParseException("parseWhileLoopNode: Expected 'While' Keyword", tokens.peek());
 		}
-		Token whileToken = tokens.remove(0); // consume While
+		Token whileToken = tokens.next(); // consume While
 
+		ExpressionNode condition = parseHeader(tokens);
+		BodyNode body = BodyNode.parseBodyNode(tokens);
+		parseBodyEnd(tokens);
+        return new WhileLoopNode(whileToken, condition, body);
+    }
 
+	// [ < expr > ]{ after the While keyword, shared with BodyParser so both report the same errors
+	static ExpressionNode parseHeader(TokenCursor tokens) {
 		// Check for opening bracket ([)
 		if (tokens.isEmpty()){
 			throw new ParseException("parseWhileLoopNode: Unexpected EOF", null);
 		}
-		if (!(tokens.get(0).getTokenType() == TokenType.L_BRACKET)) {
-			throw new ParseException("parseWhileLoopNode: Expected '[' after 'While'", tokens.get(0));
+		if (!(tokens.peekType() == TokenType.L_BRACKET)) {
+			throw new ParseException("parseWhileLoopNode: Expected '[' after 'While'", tokens.peek());
 		}
-		tokens.remove(0); // consume ([)
+		tokens.advance(); // consume ([)
 
 		ExpressionNode condition = ExpressionNode.parseExpressionNode(tokens);
 
@@ -43,33 +48,33 @@ public class WhileLoopNode implements JottTree{
 		if (tokens.isEmpty()){
 			throw new ParseException("parseWhileLoopNode: Unexpected EOF", null);
 		}
-		if (!(tokens.get(0).getTokenType() == TokenType.R_BRACKET)) {
-			throw new ParseException("parseWhileLoopNode: Expected ']' to end condition", tokens.get(0));
+		if (!(tokens.peekType() == TokenType.R_BRACKET)) {
+			throw new ParseException("parseWhileLoopNode: Expected ']' to end condition", tokens.peek());
 		}
-		tokens.remove(0); // consume (])
+		tokens.advance(); // consume (])
 		
 		// Check for opening brace ({)
 		if (tokens.isEmpty()){
 			throw new ParseException("parseWhileLoopNode: Unexpected EOF", null);
 		}
-		if (!(tokens.get(0).getTokenType() == TokenType.L_BRACE)) {
-			throw new ParseException("parseWhileLoopNode: Expected { but got <id/keyword>", tokens.get(0));
+		if (!(tokens.peekType() == TokenType.L_BRACE)) {
+			throw new ParseException("parseWhileLoopNode: Expected { but got <id/keyword>", tokens.peek());
 		}
-		tokens.remove(0); // consume ({)
-
-		BodyNode body = BodyNode.parseBodyNode(tokens);
+		tokens.advance(); // consume ({)
+		return condition;
+	}
 
+	// the } that closes the While body
+	static void parseBodyEnd(TokenCursor tokens) {
 		// Check for closing brace (})
 		if (tokens.isEmpty()){
 			throw new ParseException("parseWhileLoopNode: Unexpected EOF", null);
 		}
-		if (!(tokens.get(0).getTokenType() == TokenType.R_BRACE)) {
-			throw new ParseException("parseWhileLoopNode: Expected '{' to end while body", tokens.get(0));
+		if (!(tokens.peekType() == TokenType.R_BRACE)) {
+			throw new ParseException("parseWhileLoopNode: Expected '{' to end while body", tokens.peek());
 		}
-		tokens.remove(0); // consume ({)
-		
-        return new WhileLoopNode(whileToken, condition, body);
-    }
+		tokens.advance(); // consume ({)
+	}
 
 	
 	@Override
@@ -86,18 +91,23 @@ public class WhileLoopNode implements JottTree{
 
 	@Override
 	public boolean validateTree() {
-		condition.validateTree(); // throws error if false
+		return validateTree(new SymbolTable());
+	}
+
+	@Override
+	public boolean validateTree(SymbolTable symbolTable) {
+		condition.validateTree(symbolTable); // throws error if false
 
 	
 		// check if condition is a boolean
-		String type = condition.getType(SymbolTable.globalSymbolTable);
+		String type = condition.getType(symbolTable);
 		if (!type.equals("Boolean")) {
 			throw new SemanticException("WhileLoopNode: While loop condition must be of type Boolean, but got '" + type + "'.", whileToken);
 		}
 		
 		// Validate body with a special marker to skip return statement validation
 		// Returns inside while loops don't count as guaranteed returns for the function
-		body.validateTree("__WHILE_LOOP_BODY__");
+		body.validateTree(symbolTable, "__WHILE_LOOP_BODY__");
 		return true;
 	}
 
@@ -112,4 +122,16 @@ public class WhileLoopNode implements JottTree{
 		// TODO: Implement conversion logic
 		return "";
 	}
+
+	public Token getWhileToken() {
+		return whileToken;
+	}
+
+	public ExpressionNode getCondition() {
+		return condition;
+	}
+
+	public BodyNode getBody() {
+		return body;
+	}
 }
@@ -0,0 +1,215 @@
+package provided;
+
+/**
+ * One error or warning about a Jott program: what went wrong as a Code, how
+ * bad it is, where it is and the values that go into its message.
+ *
+ * Nothing is formatted when a diagnostic is made. The span is read from the
+ * token, whose line and column are themselves looked up only when asked, and
+ * the message is built from the code's template and the arguments only when
+ * getMessage or render is called. A check that only wants to know whether
+ * something is wrong can make and drop diagnostics for the cost of one small
+ * object.
+ *
+ * ParseException and SemanticException each carry one diagnostic, and
+ * semantics.Jott keeps the first one of a run in its JottResult.
+ *
+ * render() gives the same text ParseException and SemanticException have
+ * always printed:
+ * <pre>
+ * Syntax Error
+ * message
+ * filename:line
+ * </pre>
+ * A LEXICAL diagnostic has no token to point at, only the line the tokenizer
+ * stopped on, and renders the way the tokenizer has always printed, with the
+ * second line indented by a tab:
+ * <pre>
+ * Syntax Error: message
+ *     Filepath: filename:line
+ * </pre>
+ */
+public final class Diagnostic {
+
+    /**
+     * How bad a diagnostic is
+     */
+    public enum Severity {
+        ERROR,
+        WARNING
+    }
+
+    /**
+     * The phase a diagnostic comes from, which is also the first line of its rendered text
+     */
+    public enum Phase {
+        LEXICAL("Syntax Error"),
+        SYNTAX("Syntax Error"),
+        SEMANTIC("Semantic Error");
+
+        private final String title;
+
+        Phase(String title) {
+            this.title = title;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+    }
+
+    /**
+     * What went wrong. Each code has a message template whose %s are filled
+     * in with the diagnostic's arguments in order. LEXICAL, SYNTAX and SEMANTIC
+     * carry a message that was already built by the caller as their one argument.
+     */
+    public enum Code {
+        LEXICAL(Phase.LEXICAL, "%s"),
+        SYNTAX(Phase.SYNTAX, "%s"),
+        SEMANTIC(Phase.SEMANTIC, "%s"),
+        RETURN_MISSING(Phase.SEMANTIC,
+                "ReturnStmtNode: Expected a return value of type '%s', but no value was returned."),
+        RETURN_WITHOUT_EXPRESSION(Phase.SEMANTIC, "ReturnStmtNode: Return statement without an expression."),
+        RETURN_IN_VOID(Phase.SEMANTIC, "ReturnStmtNode: Void functions must not return a value."),
+        RETURN_UNTYPED(Phase.SEMANTIC, "ReturnStmtNode: Unable to determine the type of the return expression."),
+        RETURN_MISMATCH(Phase.SEMANTIC, "ReturnStmtNode: Return type mismatch. Expected '%s', but found '%s'.");
+
+        private final Phase phase;
+        private final String template;
+
+        Code(Phase phase, String template) {
+            this.phase = phase;
+            this.template = template;
+        }
+
+        public Phase getPhase() {
+            return phase;
+        }
+
+        public String getTemplate() {
+            return template;
+        }
+    }
+
+    private final Code code;
+    private final Severity severity;
+    private final Token token;
+    private final String filename;
+    private final int line;
+    private final Object[] args;
+
+    /**
+     * Creates an error
+     * @param code what went wrong
+     * @param token where it went wrong, or null at an unexpected end of file
+     * @param args the values for the code's template
+     */
+    public Diagnostic(Code code, Token token, Object... args) {
+        this(code, Severity.ERROR, token, args);
+    }
+
+    /**
+     * @param code what went wrong
+     * @param severity how bad it is
+     * @param token where it went wrong, or null at an unexpected end of file
+     * @param args the values for the code's template
+     */
+    public Diagnostic(Code code, Severity severity, Token token, Object... args) {
+        this(code, severity, token, null, 0, args);
+    }
+
+    private Diagnostic(Code code, Severity severity, Token token, String filename, int line, Object[] args) {
+        this.code = code;
+        this.severity = severity;
+        this.token = token;
+        this.filename = filename;
+        this.line = line;
+        this.args = args;
+    }
+
+    /**
+     * Creates an error that has a line but no token, such as one from the tokenizer
+     * @param code what went wrong
+     * @param filename the file it went wrong in
+     * @param line the line it went wrong on
+     * @param args the values for the code's template
+     */
+    public static Diagnostic atLine(Code code, String filename, int line, Object... args) {
+        return new Diagnostic(code, Severity.ERROR, null, filename, line, args);
+    }
+
+    public Code getCode() {
+        return code;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    /**
+     * @return the token the span is taken from, or null if there is none
+     */
+    public Token getToken() {
+        return token;
+    }
+
+    /**
+     * @return the file of the span, or null if there is neither a token nor a line
+     */
+    public String getFilename() {
+        return token == null ? filename : token.getFilename();
+    }
+
+    /**
+     * @return the line of the span, or 0 if there is neither a token nor a line
+     */
+    public int getLine() {
+        return token == null ? line : token.getLineNum();
+    }
+
+    /**
+     * @return the column of the span starting at 1, or 0 if unknown
+     */
+    public int getColumn() {
+        return token == null ? 0 : token.getColumn();
+    }
+
+    /**
+     * @return the length of the span in characters, or 0 if there is no token
+     */
+    public int getLength() {
+        return token == null ? 0 : token.getLexeme().length();
+    }
+
+    /**
+     * @return a copy of the values of the message template
+     */
+    public Object[] getArgs() {
+        return args.clone();
+    }
+
+    /**
+     * @return the message alone, without the phase title and the location
+     */
+    public String getMessage() {
+        return String.format(code.template, args);
+    }
+
+    /**
+     * @return the full text of the error as it is printed, title, message and file:line
+     */
+    public String render() {
+        if (code.phase == Phase.LEXICAL) {
+            return code.phase.title + ": " + getMessage() + "\n\tFilepath: " + filename + ":" + line;
+        }
+        if (token == null) { // When reaching EOF unexpectedly, empty token list
+            return code.phase.title + "\n" + getMessage();
+        }
+        return code.phase.title + "\n" + getMessage() + "\n" + token.getFilename() + ":" + token.getLineNum();
+    }
+
+    @Override
+    public String toString() {
+        return render();
+    }
+}
@@ -0,0 +1,356 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import parser.FunctionDefNode;
+import parser.ProgramNode;
+
+/**
+ * Keeps a Jott file parsed while it is being edited.
+ * The text is held as a list of segments, each a run of whole lines with
+ * its own TokenBuffer and the FunctionDefNodes parsed from it, normally one
+ * function per segment. An edit only re-lexes and reparses the segments it
+ * touches; every other segment keeps its tokens and nodes, so an untouched
+ * FunctionDefNode is the very same object before and after the edit.
+ *
+ * Tokens find their line through their segment's LineIndex, and segments
+ * after an edit only get their first line renumbered, so reused nodes still
+ * report the right line in error messages.
+ *
+ * A segment that runs out of tokens in the middle of a function is joined
+ * with the next one, which is what the whole-file parser would read next.
+ * While the text has an error, edit() prints the same message tokenizing
+ * and parsing the whole text would print: the first lexical error if there
+ * is one, else the first syntax error.
+ */
+public class IncrementalParser {
+    private final String filename;
+    private final ArrayList<Segment> segments = new ArrayList<>();
+    private ProgramNode tree;
+    private int reparsed;
+    private int length;
+
+    // the functions of every segment that parses, in order, and how many segments do not
+    private final ArrayList<FunctionDefNode> functionDefs = new ArrayList<>();
+    private int broken;
+
+    // the segment the last edit started in, its offset and the number of functions before it,
+    // where the next search starts
+    private int lastIndex;
+    private int lastStart;
+    private int lastFunctions;
+
+    // a run of whole lines holding zero or more complete top-level functions
+    private static final class Segment {
+        final String text;
+        final int lineBreaks;
+        int firstLine;
+        TokenBuffer tokens;              // null if the text has a lexical error
+        List<FunctionDefNode> functions; // null if the text does not parse
+
+        Segment(String text, int firstLine) {
+            this.text = text;
+            this.lineBreaks = countLineBreaks(text);
+            this.firstLine = firstLine;
+        }
+    }
+
+    /**
+     * Parses the initial text of the file
+     * @param source the whole Jott source
+     * @param filename the name reported in tokens and error messages
+     */
+    public IncrementalParser(String source, String filename) {
+        this.filename = filename;
+        this.length = source.length();
+        segments.add(new Segment(source, 1));
+        update(0, 0);
+    }
+
+    /**
+     * Replaces part of the text and reparses what the change touched
+     * @param offset index of the first character to replace
+     * @param removed how many characters to remove
+     * @param inserted the text to put in their place
+     * @return the parse tree of the new text, or null if it has an error
+     */
+    public JottTree edit(int offset, int removed, String inserted) {
+        if (offset < 0 || removed < 0 || offset + removed > length) {
+            throw new IndexOutOfBoundsException("edit [" + offset + ", " + (offset + removed)
+                    + ") out of bounds for length " + length);
+        }
+        // first and last segment touched; an insert at a boundary goes to the segment after it.
+        // Edits tend to follow each other, so the search starts where the last one was.
+        int first = lastIndex;
+        int start = lastStart;
+        int functions = lastFunctions;
+        while (offset < start) {
+            Segment s = segments.get(--first);
+            start -= s.text.length();
+            functions -= functionsIn(s);
+        }
+        while (first < segments.size() - 1 && offset >= start + segments.get(first).text.length()) {
+            Segment s = segments.get(first++);
+            start += s.text.length();
+            functions += functionsIn(s);
+        }
+        int last = first;
+        int end = start;
+        while (last < segments.size() - 1 && offset + removed > end + segments.get(last).text.length()) {
+            end += segments.get(last++).text.length();
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = first; i <= last; i++) {
+            sb.append(segments.get(i).text);
+            retire(segments.get(i), functions);
+        }
+        sb.replace(offset - start, offset - start + removed, inserted);
+        Segment edited = new Segment(sb.toString(), segments.get(first).firstLine);
+        segments.subList(first + 1, last + 1).clear();
+        segments.set(first, edited);
+        length += inserted.length() - removed;
+        lastIndex = first;
+        lastStart = start;
+        lastFunctions = functions;
+        update(first, functions);
+        return tree;
+    }
+
+    /**
+     * @return the parse tree of the current text, or null if it has an error
+     */
+    public JottTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the current text of the file
+     */
+    public String getText() {
+        StringBuilder sb = new StringBuilder(length);
+        for (Segment s : segments) {
+            sb.append(s.text);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return how many function definitions the last edit had to parse
+     */
+    public int getReparsedCount() {
+        return reparsed;
+    }
+
+    // reparses the new segment at index, joining it with the following ones where needed.
+    // functions is the number of functions in the segments before it.
+    private void update(int index, int functions) {
+        reparsed = 0;
+        Segment seg = segments.get(index);
+        while (true) {
+            // a segment must end at a line break, or the next one would start in the middle of a line
+            while (index + 1 < segments.size() && !endsLine(seg.text, segments.get(index + 1).text)) {
+                seg = joinNext(index, functions);
+            }
+            TokenCursor cursor = parse(seg);
+            if (cursor == null || seg.functions != null || !cursor.isEmpty() || index + 1 == segments.size()) {
+                break;
+            }
+            seg = joinNext(index, functions); // ran out of tokens, the function goes on in the next segment
+        }
+        int untouched = segments.size() - index - 1;
+        if (seg.functions != null && seg.functions.size() > 1) {
+            split(index);
+        }
+
+        // the new segments were numbered as they were made, the ones after them only move
+        // by the change in line count, so renumbering can stop at the first one already right
+        Segment prev = segments.get(segments.size() - untouched - 1);
+        int line = prev.firstLine + prev.lineBreaks;
+        for (int i = segments.size() - untouched; i < segments.size() && segments.get(i).firstLine != line; i++) {
+            Segment s = segments.get(i);
+            s.firstLine = line;
+            if (s.tokens != null) {
+                s.tokens.getLines().setFirstLine(line);
+            }
+            line += s.lineBreaks;
+        }
+
+        ArrayList<FunctionDefNode> added = new ArrayList<>();
+        for (int i = index; i < segments.size() - untouched; i++) {
+            Segment s = segments.get(i);
+            if (s.functions == null) {
+                broken++;
+            } else {
+                added.addAll(s.functions);
+            }
+        }
+        functionDefs.addAll(functions, added);
+        tree = broken == 0 ? new ProgramNode(new ArrayList<>(functionDefs)) : null;
+        if (tree == null) {
+            reportFirstError();
+        }
+    }
+
+    private static int functionsIn(Segment s) {
+        return s.functions == null ? 0 : s.functions.size();
+    }
+
+    // takes the functions of a segment that is being replaced out of functionDefs
+    private void retire(Segment s, int at) {
+        if (s.functions == null) {
+            broken--;
+        } else {
+            functionDefs.subList(at, at + s.functions.size()).clear();
+        }
+    }
+
+    private Segment joinNext(int index, int functions) {
+        Segment seg = segments.get(index);
+        retire(segments.get(index + 1), functions);
+        Segment joined = new Segment(seg.text + segments.get(index + 1).text, seg.firstLine);
+        segments.remove(index + 1);
+        segments.set(index, joined);
+        return joined;
+    }
+
+    // lexes and parses a segment without printing anything,
+    // returns the cursor where parsing stopped or null on a lexical error
+    private TokenCursor parse(Segment seg) {
+        seg.tokens = lex(seg, null);
+        seg.functions = null;
+        if (seg.tokens == null) {
+            return null;
+        }
+        TokenCursor cursor = new TokenCursor(seg.tokens);
+        try {
+            seg.functions = ProgramNode.parseProgramNode(cursor).getFunctionDefs();
+            reparsed += seg.functions.size();
+        } catch (RuntimeException e) {
+            // reported later if this turns out to be the first error in the file
+        }
+        return cursor;
+    }
+
+    // the segment's tokens, numbered from its first line, or null with the error in failed[0]
+    private TokenBuffer lex(Segment seg, JottTokenizer.Chunk[] failed) {
+        ByteBuffer input = StandardCharsets.UTF_8.encode(CharBuffer.wrap(seg.text)).slice();
+        // like the whole-file lexer, the last segment stops before the file's final line break
+        int n = seg == segments.get(segments.size() - 1) ? JottTokenizer.sourceEnd(input) : input.limit();
+        JottTokenizer.Chunk chunk = new JottTokenizer.Chunk(new TokenBuffer(input, filename, n / 8));
+        chunk.tokens.getLines().setFirstLine(seg.firstLine);
+        if (!JottTokenizer.lex(input, 0, n, chunk)) {
+            if (failed != null) {
+                failed[0] = chunk;
+            }
+            return null;
+        }
+        return chunk.tokens;
+    }
+
+    // breaks a segment holding several functions into one segment per function
+    private void split(int index) {
+        Segment seg = segments.get(index);
+        TokenBuffer tokens = seg.tokens;
+        LineIndex lines = tokens.getLines();
+        List<Integer> cuts = new ArrayList<>();
+        int depth = 0;
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            TokenType type = tokens.getType(i);
+            if (type == TokenType.L_BRACE) {
+                depth++;
+            } else if (type == TokenType.R_BRACE && --depth == 0) {
+                // the next function starts at the start of its line, if that is past this '}'
+                int lineStart = lines.lineStart(lines.lineOf(tokens.getStart(i + 1)));
+                if (lineStart >= tokens.getStart(i) + tokens.getLength(i)) {
+                    cuts.add(charIndex(seg.text, lineStart));
+                }
+            }
+        }
+        if (cuts.isEmpty()) {
+            return;
+        }
+
+        List<Segment> pieces = new ArrayList<>(cuts.size() + 1);
+        int from = 0;
+        int line = seg.firstLine;
+        int count = reparsed;
+        cuts.add(seg.text.length());
+        for (int to : cuts) {
+            Segment piece = new Segment(seg.text.substring(from, to), line);
+            parse(piece);
+            if (piece.functions == null) {
+                reparsed = count;
+                return; // cannot happen for a text that parsed as a whole, keep it in one piece
+            }
+            pieces.add(piece);
+            line += piece.lineBreaks;
+            from = to;
+        }
+        reparsed = count;
+        segments.remove(index);
+        segments.addAll(index, pieces);
+    }
+
+    // prints what JottTokenizer and JottParser would print for the whole text
+    private void reportFirstError() {
+        for (Segment s : segments) {
+            if (s.tokens == null) {
+                JottTokenizer.Chunk[] failed = new JottTokenizer.Chunk[1];
+                lex(s, failed);
+                JottTokenizer.syntaxError(failed[0].error, filename, s.firstLine - 1 + failed[0].errorLine);
+                return;
+            }
+        }
+        for (Segment s : segments) {
+            if (s.functions == null) {
+                try {
+                    ProgramNode.parseProgramNode(new TokenCursor(s.tokens));
+                } catch (RuntimeException e) {
+                    System.err.println("JottParser: Uncaught exception: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    // true if text ends a line, so that next starts a new one
+    private static boolean endsLine(String text, String next) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char c = text.charAt(text.length() - 1);
+        return c == '\n' || (c == '\r' && !next.startsWith("\n"));
+    }
+
+    // line breaks as the tokenizer counts them: "\n", "\r\n" or a lone "\r"
+    private static int countLineBreaks(String text) {
+        int n = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '\n' || (c == '\r' && (i + 1 == text.length() || text.charAt(i + 1) != '\n'))) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    // index of the character that starts at the given offset of the UTF-8 encoding of text
+    private static int charIndex(String text, int byteOffset) {
+        int i = 0;
+        for (int bytes = 0; bytes < byteOffset; i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c)) {
+                bytes += 4;
+                i++;
+            } else {
+                bytes += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+            }
+        }
+        return i;
+    }
+}
@@ -0,0 +1,672 @@
+package provided;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.zip.CRC32C;
+
+import parser.AsmtNode;
+import parser.BinaryExpressionNode;
+import parser.BodyNode;
+import parser.BoolNode;
+import parser.ElseIfNode;
+import parser.ElseNode;
+import parser.ExpressionNode;
+import parser.FBodyNode;
+import parser.FlatTree.Kind;
+import parser.FunctionCallNode;
+import parser.FunctionDefNode;
+import parser.FunctionDefParamsNode;
+import parser.FunctionReturnNode;
+import parser.IDNode;
+import parser.IfStmtNode;
+import parser.NumberNode;
+import parser.OperandNode;
+import parser.ParamNode;
+import parser.ProgramNode;
+import parser.ReturnStmtNode;
+import parser.StringLiteralNode;
+import parser.TypeNode;
+import parser.VarDecNode;
+import parser.WhileLoopNode;
+import semantics.SymbolTable;
+
+/**
+ * A validated parse tree saved in a .jottc file next to its source, so a
+ * later run can skip tokenizing, parsing and validating.
+ *
+ * A cache file belongs to one version of the source and one build of the
+ * tokenizer, parser and validator: its header holds the SHA-256 of the
+ * source bytes, the format VERSION and the BUILD id, and load() ignores a
+ * file where any of them does not match. VERSION must be bumped whenever
+ * the format changes. BUILD is taken from the class files of the code that
+ * decides what tree a source gives and whether it is valid, so recompiling
+ * a change to that code is enough to retire old cache files.
+ *
+ * load() also checks the counts in the header against the file size and a
+ * CRC-32C of everything after the header, so a damaged file is a miss and
+ * not a bad tree.
+ *
+ * The file is laid out to be read in place. load() maps it and this class
+ * is a view over the mapping with the same node table as FlatTree: nodes
+ * are fixed-size records in the order they finish (children first, the root
+ * last), with their children as ranges of one int array. Strings are stored
+ * once each and only decoded when asked for. toParseTree() rebuilds the
+ * parse nodes from the records, making each Token from its saved text,
+ * position and number value without lexing.
+ *
+ * <pre>
+ *   header   int magic, int version, byte[32] source hash, long build,
+ *            int strings, int nodes, int children, int string bytes, int crc, int unused
+ *   strings  int[strings + 1] offsets into the string bytes, then the UTF-8 bytes
+ *   nodes    32 bytes each: int kind, int child end, int text, int text2, long pos, long aux
+ *   children int[children]
+ * </pre>
+ * Positions are packed as line &lt;&lt; 32 | column. What text, text2 and aux
+ * hold depends on the kind:
+ * <pre>
+ *   FUNCTION_DEF  Def             name          pos of the name
+ *   PARAM         name            type          pos of the type
+ *   VAR_DEC       type            name          pos of the name
+ *   CALL          ::              name          pos of the name
+ *   RETURN        its token       token type    -
+ *   NUMBER        the digits      NumberKind    the value, or double bits, before the '-'
+ *   others        the main token  -             -
+ * </pre>
+ * IF, ELSEIF, ELSE, BODY, F_BODY and PROGRAM have no token.
+ */
+public class JottCache {
+    private static final int MAGIC = 0x4A4F5443; // "JOTC"
+    /**
+     * The format version, part of the key of every cache file
+     */
+    public static final int VERSION = 2;
+
+    // classes whose code decides the saved tree, or whether it is valid
+    private static final Class<?>[] BUILD_CLASSES = {
+        JottCache.class, JottTokenizer.class, Token.class, Keyword.class, NumberKind.class,
+        ProgramNode.class, FunctionDefNode.class, FunctionDefParamsNode.class, FunctionReturnNode.class,
+        FBodyNode.class, VarDecNode.class, TypeNode.class, BodyNode.class, ReturnStmtNode.class,
+        IfStmtNode.class, ElseIfNode.class, ElseNode.class, WhileLoopNode.class, AsmtNode.class,
+        FunctionCallNode.class, ParamNode.class, ExpressionNode.class, BinaryExpressionNode.class,
+        IDNode.class, NumberNode.class, StringLiteralNode.class, BoolNode.class, SymbolTable.class
+    };
+
+    /**
+     * The id of this build, part of the key of every cache file
+     */
+    public static final long BUILD = buildId();
+
+    private static final int HASH_BYTES = 32;
+    private static final int BUILD_AT = 8 + HASH_BYTES;
+    private static final int COUNTS_AT = BUILD_AT + 8; // strings, nodes, children, string bytes, crc
+    private static final int HEADER_BYTES = COUNTS_AT + 24;
+    private static final int NODE_BYTES = 32;
+    private static final int NONE = -1;
+    private static final TokenType[] TOKEN_TYPES = TokenType.values();
+
+    private final ByteBuffer data;
+    private final String filename;
+    private final int stringCount;
+    private final int nodeCount;
+    private final int stringOffsets;
+    private final int stringBytes;
+    private final int nodes;
+    private final int children;
+
+    private JottCache(ByteBuffer data, String filename) {
+        this.data = data;
+        this.filename = filename;
+        this.stringCount = data.getInt(COUNTS_AT);
+        this.nodeCount = data.getInt(COUNTS_AT + 4);
+        int stringLength = data.getInt(COUNTS_AT + 12);
+        this.stringOffsets = HEADER_BYTES;
+        this.stringBytes = stringOffsets + 4 * (stringCount + 1);
+        this.nodes = align(stringBytes + stringLength);
+        this.children = nodes + NODE_BYTES * nodeCount;
+    }
+
+    /**
+     * @param source a Jott file
+     * @return where its cache goes: the same name with .jottc for .jott, or .jottc appended
+     */
+    public static Path cachePath(Path source) {
+        String name = source.getFileName().toString();
+        name = name.endsWith(".jott") ? name + "c" : name + ".jottc";
+        return source.resolveSibling(name);
+    }
+
+    /**
+     * Maps the cache file of a source, if there is one for exactly this content
+     * @param source the Jott file, names the tokens of the rebuilt tree
+     * @param content the current bytes of the source
+     * @return a view of the cached tree, or null if there is no cache file or
+     *         it is stale, from another build or damaged
+     * @throws IOException if the cache file exists but cannot be read
+     */
+    public static JottCache load(Path source, byte[] content) throws IOException {
+        Path path = cachePath(source);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION || data.getLong(BUILD_AT) != BUILD) {
+            return null;
+        }
+        byte[] hash = new byte[HASH_BYTES];
+        data.get(8, hash);
+        if (!Arrays.equals(hash, sha256(content))) {
+            return null;
+        }
+        int strings = data.getInt(COUNTS_AT);
+        int nodes = data.getInt(COUNTS_AT + 4);
+        int edges = data.getInt(COUNTS_AT + 8);
+        int stringLength = data.getInt(COUNTS_AT + 12);
+        if (strings < 0 || nodes < 1 || edges < 0 || stringLength < 0) {
+            return null;
+        }
+        long size = ((HEADER_BYTES + 4L * (strings + 1L) + stringLength + 7) & ~7L) + (long) NODE_BYTES * nodes
+                + 4L * edges;
+        if (size != data.capacity() || crc(data) != data.getInt(COUNTS_AT + 16)) {
+            return null; // cut short or damaged
+        }
+        return new JottCache(data, source.toString());
+    }
+
+    /**
+     * Writes the cache file of a source. The file is written beside it under
+     * a temporary name and then moved over the old one, so a concurrent load
+     * sees either the old file or the new one.
+     * @param source the Jott file
+     * @param content the bytes the tree was parsed from
+     * @param tree the parse tree of content, which should have validated
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Path source, byte[] content, ProgramNode tree) throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.program(tree);
+        ByteBuffer out = encoder.toBuffer(sha256(content));
+        Path path = cachePath(source);
+        Path tmp = Files.createTempFile(path.toAbsolutePath().getParent(), path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                while (out.hasRemaining()) {
+                    channel.write(out);
+                }
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every JDK has SHA-256
+        }
+    }
+
+    private static int crc(ByteBuffer data) {
+        CRC32C crc = new CRC32C();
+        crc.update(data.slice(HEADER_BYTES, data.capacity() - HEADER_BYTES));
+        return (int) crc.getValue();
+    }
+
+    // the first 8 bytes of the SHA-256 of the BUILD_CLASSES' class files
+    private static long buildId() {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Class<?> c : BUILD_CLASSES) {
+                String name = c.getName();
+                try (InputStream in = c.getResourceAsStream(name.substring(name.lastIndexOf('.') + 1) + ".class")) {
+                    digest.update(name.getBytes(StandardCharsets.UTF_8));
+                    if (in != null) {
+                        digest.update(in.readAllBytes());
+                    }
+                }
+            }
+            return ByteBuffer.wrap(digest.digest()).getLong();
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    private static long pack(Token token) {
+        return (long) token.getLineNum() << 32 | (token.getColumn() & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * @return the id of the PROGRAM node
+     */
+    public int getRootId() {
+        return nodeCount - 1;
+    }
+
+    public Kind getKind(int node) {
+        return Kind.fromOrdinal(data.getInt(record(node)));
+    }
+
+    public int getChildCount(int node) {
+        return data.getInt(record(node) + 4) - firstChild(node);
+    }
+
+    /**
+     * @param node a node id
+     * @param i which child, starting at 0
+     * @return the id of the child
+     */
+    public int getChild(int node, int i) {
+        return data.getInt(children + 4 * (firstChild(node) + i));
+    }
+
+    /**
+     * @param node a node id
+     * @return the text of the node's main token, or null if it has none
+     */
+    public String getText(int node) {
+        return string(data.getInt(record(node) + 8));
+    }
+
+    /**
+     * @param node a node id
+     * @return the line of the node's main token, 0 if it has none
+     */
+    public int getLine(int node) {
+        return (int) (data.getLong(record(node) + 16) >>> 32);
+    }
+
+    /**
+     * @param node a node id
+     * @return the column of the node's main token, 0 if it has none
+     */
+    public int getColumn(int node) {
+        return (int) data.getLong(record(node) + 16);
+    }
+
+    /**
+     * @param node a NUMBER or NEG_NUMBER node
+     * @return the kind of the literal
+     */
+    public NumberKind getNumberKind(int node) {
+        return NumberKind.fromOrdinal(data.getInt(record(node) + 12));
+    }
+
+    /**
+     * @param node a NUMBER or NEG_NUMBER node
+     * @return the value of the literal with its sign applied, as a double
+     */
+    public double getNumberValue(int node) {
+        long bits = data.getLong(record(node) + 24);
+        double value = getNumberKind(node) == NumberKind.DOUBLE ? Double.longBitsToDouble(bits) : bits;
+        return getKind(node) == Kind.NEG_NUMBER ? -value : value;
+    }
+
+    private int record(int node) {
+        return nodes + NODE_BYTES * node;
+    }
+
+    private int firstChild(int node) {
+        return node == 0 ? 0 : data.getInt(record(node - 1) + 4);
+    }
+
+    private String string(int id) {
+        if (id == NONE) {
+            return null;
+        }
+        int start = data.getInt(stringOffsets + 4 * id);
+        int end = data.getInt(stringOffsets + 4 * (id + 1));
+        return StandardCharsets.UTF_8.decode(data.slice(stringBytes + start, end - start)).toString();
+    }
+
+    /**
+     * Rebuilds the parse tree the cache was written from. Every Token gets
+     * its saved text, line and column, so error messages and convertToJott
+     * are the same as for the original tree.
+     * @return the root of the tree
+     */
+    public ProgramNode toParseTree() {
+        return (ProgramNode) new Decoder().build(getRootId());
+    }
+
+    // rebuilds parse nodes, with one String per distinct text
+    private final class Decoder {
+        private final String[] strings = new String[stringCount];
+
+        private Object build(int node) {
+            int at = record(node);
+            int n = getChildCount(node);
+            switch (getKind(node)) {
+                case PROGRAM: {
+                    ArrayList<FunctionDefNode> functionDefs = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        functionDefs.add((FunctionDefNode) child(node, i));
+                    }
+                    return new ProgramNode(functionDefs);
+                }
+                case FUNCTION_DEF: {
+                    FunctionDefParamsNode params = new FunctionDefParamsNode();
+                    for (int i = 0; i < n - 2; i++) {
+                        int param = record(getChild(node, i));
+                        params.getParamEntries().add(new FunctionDefParamsNode.ParamDecl(word(param, 8, 16),
+                                word(param, 12, 24)));
+                    }
+                    return new FunctionDefNode(word(at, 8, 16), new IDNode(word(at, 12, 24)), params,
+                            (FunctionReturnNode) child(node, n - 2), (FBodyNode) child(node, n - 1));
+                }
+                case RETURN_TYPE: {
+                    Token type = word(at, 8, 16);
+                    return new FunctionReturnNode(type, type.getKeyword() == Keyword.VOID);
+                }
+                case F_BODY: {
+                    ArrayList<VarDecNode> varDecs = new ArrayList<>(n - 1);
+                    for (int i = 0; i < n - 1; i++) {
+                        varDecs.add((VarDecNode) child(node, i));
+                    }
+                    return new FBodyNode(varDecs, (BodyNode) child(node, n - 1));
+                }
+                case VAR_DEC:
+                    return new VarDecNode(new TypeNode(word(at, 8, 16)), new IDNode(word(at, 12, 24)));
+                case BODY: {
+                    ArrayList<JottTree> statements = new ArrayList<>(n - 1);
+                    BitSet isFunctionCall = new BitSet(n - 1);
+                    for (int i = 0; i < n - 1; i++) {
+                        statements.add((JottTree) child(node, i));
+                        isFunctionCall.set(i, getKind(getChild(node, i)) == Kind.CALL);
+                    }
+                    return new BodyNode(statements, isFunctionCall, (ReturnStmtNode) child(node, n - 1));
+                }
+                case RETURN: {
+                    Token token = token(at, 8, 16, TOKEN_TYPES[data.getInt(at + 12)]);
+                    return n == 0 ? new ReturnStmtNode(null, true, token)
+                            : new ReturnStmtNode((ExpressionNode) child(node, 0), false, token);
+                }
+                case IF: {
+                    ArrayList<ElseIfNode> elseIfs = new ArrayList<>(n - 3);
+                    for (int i = 2; i < n - 1; i++) {
+                        elseIfs.add((ElseIfNode) child(node, i));
+                    }
+                    return new IfStmtNode((ExpressionNode) child(node, 0), (BodyNode) child(node, 1), elseIfs,
+                            (ElseNode) child(node, n - 1));
+                }
+                case ELSEIF:
+                    return new ElseIfNode((ExpressionNode) child(node, 0), (BodyNode) child(node, 1));
+                case ELSE:
+                    return n == 0 ? new ElseNode(null, true) : new ElseNode((BodyNode) child(node, 0), false);
+                case WHILE:
+                    return new WhileLoopNode(word(at, 8, 16), (ExpressionNode) child(node, 0),
+                            (BodyNode) child(node, 1));
+                case ASSIGN:
+                    return new AsmtNode(new IDNode(word(at, 8, 16)), (ExpressionNode) child(node, 0));
+                case CALL: {
+                    ArrayList<ExpressionNode> args = new ArrayList<>(n);
+                    for (int i = 0; i < n; i++) {
+                        args.add((ExpressionNode) child(node, i));
+                    }
+                    return new FunctionCallNode(token(at, 8, 16, TokenType.FC_HEADER), new IDNode(word(at, 12, 24)),
+                            new ParamNode(args));
+                }
+                case BINARY: {
+                    String op = text(data.getInt(at + 8));
+                    TokenType type = op.equals("+") || op.equals("-") || op.equals("*") || op.equals("/")
+                            ? TokenType.MATH_OP : TokenType.REL_OP;
+                    return ExpressionNode.binaryExpression((OperandNode) child(node, 0), token(at, 8, 16, type),
+                            (OperandNode) child(node, 1));
+                }
+                case ID:
+                    return new IDNode(word(at, 8, 16));
+                case NUMBER:
+                case NEG_NUMBER: {
+                    long pos = data.getLong(at + 16);
+                    Token digits = new Token(text(data.getInt(at + 8)), filename, (int) (pos >>> 32), (int) pos,
+                            TokenType.NUMBER, null, -1, NumberKind.fromOrdinal(data.getInt(at + 12)),
+                            data.getLong(at + 24));
+                    return new NumberNode(digits, getKind(node) == Kind.NEG_NUMBER);
+                }
+                case STRING:
+                    return new StringLiteralNode(token(at, 8, 16, TokenType.STRING));
+                case BOOL:
+                    return new BoolNode(word(at, 8, 16));
+                default:
+                    throw new IllegalStateException("unknown node kind " + getKind(node));
+            }
+        }
+
+        private Object child(int node, int i) {
+            return build(getChild(node, i));
+        }
+
+        // an ID_KEYWORD token from the text at one offset of a record and the position at another
+        private Token word(int at, int textOffset, int posOffset) {
+            return token(at, textOffset, posOffset, TokenType.ID_KEYWORD);
+        }
+
+        private Token token(int at, int textOffset, int posOffset, TokenType type) {
+            String text = text(data.getInt(at + textOffset));
+            long pos = data.getLong(at + posOffset);
+            Keyword keyword = type == TokenType.ID_KEYWORD ? Keyword.classify(text) : null;
+            return new Token(text, filename, (int) (pos >>> 32), (int) pos, type, keyword, -1, null, 0);
+        }
+
+        private String text(int id) {
+            if (strings[id] == null) {
+                strings[id] = string(id);
+            }
+            return strings[id];
+        }
+    }
+
+    // lays a parse tree out as records, in the order FlatTree numbers its nodes
+    private static final class Encoder {
+        private final HashMap<String, Integer> ids = new HashMap<>();
+        private final ArrayList<byte[]> strings = new ArrayList<>();
+        private int stringLength;
+        private ByteBuffer records = ByteBuffer.allocate(NODE_BYTES * 256);
+        private int[] childIds = new int[256];
+        private int edges;
+        private int count;
+
+        // ids of finished nodes still waiting for their parent
+        private int[] pending = new int[64];
+        private int pendingCount;
+
+        void program(ProgramNode program) {
+            int mark = pendingCount;
+            for (FunctionDefNode def : program.getFunctionDefs()) {
+                function(def);
+            }
+            finish(Kind.PROGRAM, mark, NONE, NONE, 0, 0);
+        }
+
+        private void function(FunctionDefNode def) {
+            int mark = pendingCount;
+            for (FunctionDefParamsNode.ParamDecl param : def.getParams().getParamEntries()) {
+                node(Kind.PARAM, param.getNameToken(), param.getTypeToken());
+            }
+            node(Kind.RETURN_TYPE, def.getReturnType().getReturnTypeToken(), null);
+            FBodyNode fbody = def.getBody();
+            int bodyMark = pendingCount;
+            for (VarDecNode v : fbody.getVarDecs()) {
+                node(Kind.VAR_DEC, v.getTypeNode().getToken(), v.getId().getToken());
+            }
+            body(fbody.getBody());
+            finish(Kind.F_BODY, bodyMark, NONE, NONE, 0, 0);
+            Token name = def.getId().getToken();
+            finish(Kind.FUNCTION_DEF, mark, id(def.getDefToken()), id(name), pack(def.getDefToken()), pack(name));
+        }
+
+        private void body(BodyNode body) {
+            int mark = pendingCount;
+            for (JottTree statement : body.getStatements()) {
+                statement(statement);
+            }
+            ReturnStmtNode ret = body.getReturnStmt();
+            int returnMark = pendingCount;
+            if (!ret.isEmptyReturn()) {
+                expression(ret.getExpression());
+            }
+            Token token = ret.getReturnToken();
+            finish(Kind.RETURN, returnMark, id(token), token.getTokenType().ordinal(), pack(token), 0);
+            finish(Kind.BODY, mark, NONE, NONE, 0, 0);
+        }
+
+        private void statement(JottTree node) {
+            int mark = pendingCount;
+            if (node instanceof AsmtNode) {
+                AsmtNode asmt = (AsmtNode) node;
+                expression(asmt.getExpression());
+                Token id = asmt.getId().getToken();
+                finish(Kind.ASSIGN, mark, id(id), NONE, pack(id), 0);
+            } else if (node instanceof FunctionCallNode) {
+                expression((FunctionCallNode) node);
+            } else if (node instanceof WhileLoopNode) {
+                WhileLoopNode loop = (WhileLoopNode) node;
+                expression(loop.getCondition());
+                body(loop.getBody());
+                finish(Kind.WHILE, mark, id(loop.getWhileToken()), NONE, pack(loop.getWhileToken()), 0);
+            } else {
+                IfStmtNode ifStmt = (IfStmtNode) node;
+                expression(ifStmt.getCondition());
+                body(ifStmt.getThenBody());
+                for (ElseIfNode elseIf : ifStmt.getElseIfList()) {
+                    int elseIfMark = pendingCount;
+                    expression(elseIf.getCondition());
+                    body(elseIf.getBody());
+                    finish(Kind.ELSEIF, elseIfMark, NONE, NONE, 0, 0);
+                }
+                int elseMark = pendingCount;
+                if (ifStmt.getElseNode().isPresent()) {
+                    body(ifStmt.getElseNode().getBody());
+                }
+                finish(Kind.ELSE, elseMark, NONE, NONE, 0, 0);
+                finish(Kind.IF, mark, NONE, NONE, 0, 0);
+            }
+        }
+
+        private void expression(ExpressionNode node) {
+            int mark = pendingCount;
+            if (node instanceof IDNode) {
+                node(Kind.ID, ((IDNode) node).getToken(), null);
+            } else if (node instanceof NumberNode) {
+                NumberNode number = (NumberNode) node;
+                Token digits = number.getToken();
+                long value = number.getKind() == NumberKind.DOUBLE
+                        ? Double.doubleToRawLongBits(digits.getDoubleValue()) : digits.getLongValue();
+                finish(number.isNegative() ? Kind.NEG_NUMBER : Kind.NUMBER, mark, id(digits),
+                        number.getKind().ordinal(), pack(digits), value);
+            } else if (node instanceof StringLiteralNode) {
+                node(Kind.STRING, ((StringLiteralNode) node).getToken(), null);
+            } else if (node instanceof BoolNode) {
+                node(Kind.BOOL, ((BoolNode) node).getToken(), null);
+            } else if (node instanceof FunctionCallNode) {
+                FunctionCallNode call = (FunctionCallNode) node;
+                for (ExpressionNode arg : call.getParams().getArgs()) {
+                    expression(arg);
+                }
+                Token name = call.getFunctionName().getToken();
+                finish(Kind.CALL, mark, id(call.getHeaderToken()), id(name), pack(call.getHeaderToken()), pack(name));
+            } else {
+                BinaryExpressionNode binary = (BinaryExpressionNode) node;
+                expression(binary.getLeft());
+                expression(binary.getRight());
+                Token op = binary.getOperatorToken();
+                finish(Kind.BINARY, mark, id(op), NONE, pack(op), 0);
+            }
+        }
+
+        // a node without children whose text2 and aux, if any, come from a second token
+        private void node(Kind kind, Token token, Token second) {
+            finish(kind, pendingCount, id(token), second == null ? NONE : id(second), pack(token),
+                    second == null ? 0 : pack(second));
+        }
+
+        private int id(Token token) {
+            String text = token.getToken();
+            Integer id = ids.get(text);
+            if (id == null) {
+                id = strings.size();
+                ids.put(text, id);
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                strings.add(bytes);
+                stringLength += bytes.length;
+            }
+            return id;
+        }
+
+        // adds a node whose children are the pending nodes from mark on
+        private void finish(Kind kind, int mark, int text, int text2, long pos, long aux) {
+            int n = pendingCount - mark;
+            if (edges + n > childIds.length) {
+                childIds = Arrays.copyOf(childIds, Math.max(childIds.length * 2, edges + n));
+            }
+            System.arraycopy(pending, mark, childIds, edges, n);
+            edges += n;
+            pendingCount = mark;
+
+            if (!records.hasRemaining()) {
+                records = ByteBuffer.allocate(records.capacity() * 2).put(records.flip());
+            }
+            records.putInt(kind.ordinal()).putInt(edges).putInt(text).putInt(text2).putLong(pos).putLong(aux);
+
+            if (pendingCount == pending.length) {
+                pending = Arrays.copyOf(pending, pendingCount * 2);
+            }
+            pending[pendingCount++] = count++;
+        }
+
+        ByteBuffer toBuffer(byte[] hash) {
+            int stringBytes = HEADER_BYTES + 4 * (strings.size() + 1);
+            int nodes = align(stringBytes + stringLength);
+            ByteBuffer out = ByteBuffer.allocate(nodes + NODE_BYTES * count + 4 * edges);
+            out.putInt(MAGIC).putInt(VERSION).put(hash).putLong(BUILD);
+            out.putInt(strings.size()).putInt(count).putInt(edges).putInt(stringLength);
+            out.position(HEADER_BYTES);
+            int offset = 0;
+            for (byte[] s : strings) {
+                out.putInt(offset);
+                offset += s.length;
+            }
+            out.putInt(offset);
+            for (byte[] s : strings) {
+                out.put(s);
+            }
+            out.position(nodes);
+            out.put(records.flip());
+            for (int i = 0; i < edges; i++) {
+                out.putInt(childIds[i]);
+            }
+            out.putInt(COUNTS_AT + 16, crc(out));
+            return out.flip();
+        }
+    }
+}
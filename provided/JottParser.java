@@ -8,8 +8,12 @@ package provided;
  */
 
 import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
 
+import parser.FlatTree;
+import parser.ParseException;
 import parser.ProgramNode;
+import parser.TreeCompactor;
 
 public class JottParser {
 
@@ -20,12 +24,142 @@ public class JottParser {
      *         or null upon an error in parsing.
      */
     public static JottTree parse(ArrayList<Token> tokens){
+      return parse(new TokenCursor(tokens));
+    }
+
+    /**
+     * Parses tokens as they are pulled from a stream or scanner, so the whole
+     * token list never has to exist at once.
+     * @param tokens the source of Jott tokens to parse
+     * @return the root of the Jott Parse Tree represented by the tokens.
+     *         or null upon an error in tokenizing or parsing.
+     */
+    public static JottTree parse(TokenSource tokens){
+      JottTree root = parse(new TokenCursor(tokens), tokens);
+      return tokens.hasError() ? null : root;
+    }
+
+    /**
+     * Tokenizes and parses a file in one pass: the parser pulls each token
+     * from a TokenScanner as it needs it, so no token list is built and the
+     * parse tree is all that is left in memory.
+     * @param filename the Jott file to parse
+     * @return the root of the Jott Parse Tree of the file.
+     *         or null upon an error in reading, tokenizing or parsing.
+     */
+    public static JottTree parseOnDemand(String filename){
+      TokenScanner tokens = JottTokenizer.tokenizeOnDemand(filename);
+      return tokens == null ? null : parse(tokens);
+    }
+
+    /**
+     * Parses the tokens under a cursor into a Jott Parse Tree.
+     * The cursor is advanced but the tokens behind it are never modified.
+     * @param tokens the cursor over the Jott tokens to parse
+     * @return the root of the Jott Parse Tree represented by the tokens.
+     *         or null upon an error in parsing.
+     */
+    public static JottTree parse(TokenCursor tokens){
+      return parse(tokens, null);
+    }
+
+    /**
+     * Parses like parse, then compacts the tree with TreeCompactor so that
+     * repeated literals and constant expressions are stored once. Use it for
+     * trees that stay in memory; validateTree reports the same errors.
+     * @param tokens the cursor over the Jott tokens to parse
+     * @return the root of the compacted Jott Parse Tree.
+     *         or null upon an error in parsing.
+     */
+    public static JottTree parseCompact(TokenCursor tokens){
+      JottTree root = parse(tokens, null);
+      return root == null ? null : TreeCompactor.compact((ProgramNode) root);
+    }
+
+    /**
+     * Parses the function headers now and each function body only when it
+     * is first used, e.g. by convertToJott or validateTree. Tools that only
+     * need names, parameters and return types never pay for the bodies.
+     * A syntax error in a body is reported when that body is parsed; call
+     * ProgramNode.parseBodies() to force all of them.
+     * @param tokens the cursor over the Jott tokens to parse
+     * @return the root of the Jott Parse Tree represented by the tokens.
+     *         or null upon an error in parsing.
+     */
+    public static JottTree parseLazy(TokenCursor tokens){
+      try {
+        return ProgramNode.parseProgramNode(tokens, true);
+      } catch (Exception e) {
+        System.err.println("JottParser: Uncaught exception: " + e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Same result as parse, but parses the function definitions in parallel
+     * on the common ForkJoinPool.
+     * @param tokens the Jott tokens to parse
+     * @return the root of the Jott Parse Tree represented by the tokens.
+     *         or null upon an error in parsing.
+     */
+    public static JottTree parseParallel(TokenBuffer tokens){
+      return parseParallel(tokens, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same result as parse, but parses the function definitions in parallel
+     * on the given pool. Syntax errors are reported exactly as parse reports
+     * them.
+     * @param tokens the Jott tokens to parse
+     * @param pool where the function definitions are parsed
+     * @return the root of the Jott Parse Tree represented by the tokens.
+     *         or null upon an error in parsing.
+     */
+    public static JottTree parseParallel(TokenBuffer tokens, ForkJoinPool pool){
+      try {
+        return ProgramNode.parseProgramNode(tokens, pool);
+      } catch (Exception e) {
+        System.err.println("JottParser: Uncaught exception: " + e.getMessage());
+        return null;
+      }
+    }
+
+    /**
+     * Parses a token buffer into a FlatTree, which keeps the whole tree in a
+     * few primitive arrays instead of one object per node. The root of the
+     * result, getRoot(), can be used anywhere a Jott Parse Tree is expected.
+     * Only convertToJott reads the arrays; validating or converting it to
+     * another language builds and keeps the whole parse node tree as well, so
+     * the memory is saved only for trees that are never validated.
+     * Syntax errors are the flat parser's own, worded differently from parse's.
+     * @param tokens the Jott tokens to parse
+     * @return the flat tree, or null upon an error in parsing.
+     */
+    public static FlatTree parseFlat(TokenBuffer tokens){
+      try {
+        return FlatTree.parse(tokens);
+      } catch (ParseException e) {
+        System.err.println("JottParser: Uncaught exception: " + e.getMessage());
+        return null;
+      }
+    }
+
+    private static JottTree parse(TokenCursor tokens, TokenSource source){
       ProgramNode root = null;
       
       try {
         root = ProgramNode.parseProgramNode(tokens);
         return root;
       } catch (Exception e) {
+        if (source != null) {
+          // a lexing error further on is what tokenizing the whole file first would have reported
+          while (source.hasNext()) {
+            source.next();
+          }
+          if (source.hasError()) {
+            return null;
+          }
+        }
         System.err.println("JottParser: Uncaught exception: " + e.getMessage());
         return null;
       }
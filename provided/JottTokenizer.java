@@ -1,10 +1,28 @@
 package provided;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import parser.ParseException;
 
 public class JottTokenizer { // Tokenizes Jott source files into a list of Tokens
   private static final String WHITESPACE = " ";
   private static final String NEWLINE = "\n";
+  private static final String CARRIAGE_RETURN = "\r";
   private static final String COMMENT = "#";
   private static final String COMMA = ",";
   private static final String RBRACKET = "]";
@@ -23,190 +41,560 @@ public class JottTokenizer { // Tokenizes Jott source files into a list of Token
   private static final String EXCLAMATION = "!";
   private static final String QUOTE = "\"";
 
+  // files smaller than this are not worth splitting for the parallel tokenizer
+  private static final int MIN_PARALLEL_CHUNK = 64 * 1024;
+
+  // Character classes; every byte >= 128 is OTHER
+  private static final byte OTHER = 0;
+  private static final byte SPACE = 1;
+  private static final byte NEWLINE_CLASS = 2;
+  private static final byte COMMENT_START = 3;
+  private static final byte STRING_START = 4;
+  private static final byte LETTER = 5;
+  private static final byte DIGIT = 6;
+  private static final byte DOT = 7;
+  private static final byte PUNCT = 8;     // always a one character token
+  private static final byte OPERATOR = 9;  // may start a two character token
+  private static final byte[] CHAR_CLASS = new byte[128];
+
+  // One character tokens by character, and the operator DFA: OP_STATE maps the first character
+  // to a state, TWO_CHAR[state][second] is the token type when the pair is accepted
+  private static final TokenType[] ONE_CHAR = new TokenType[128];
+  private static final byte[] OP_STATE = new byte[128];
+  private static final TokenType[][] TWO_CHAR = new TokenType[6][128];
+
+  static {
+    CHAR_CLASS[WHITESPACE.charAt(0)] = SPACE;
+    CHAR_CLASS['\t'] = SPACE;
+    CHAR_CLASS[NEWLINE.charAt(0)] = NEWLINE_CLASS;
+    CHAR_CLASS[CARRIAGE_RETURN.charAt(0)] = NEWLINE_CLASS;
+    CHAR_CLASS[COMMENT.charAt(0)] = COMMENT_START;
+    CHAR_CLASS[QUOTE.charAt(0)] = STRING_START;
+    CHAR_CLASS[DECIMAL.charAt(0)] = DOT;
+    for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = LETTER;
+    for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = LETTER;
+    for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT;
+
+    punct(COMMA, TokenType.COMMA);
+    punct(LBRACKET, TokenType.L_BRACKET);
+    punct(RBRACKET, TokenType.R_BRACKET);
+    punct(LBRACE, TokenType.L_BRACE);
+    punct(RBRACE, TokenType.R_BRACE);
+    punct(SEMICOLON, TokenType.SEMICOLON);
+    punct(ADD, TokenType.MATH_OP);
+    punct(SUBTRACT, TokenType.MATH_OP);
+    punct(MULTIPLY, TokenType.MATH_OP);
+    punct(DIVIDE, TokenType.MATH_OP);
+
+    operator(COLON, TokenType.COLON, 1);
+    operator(LRARROW.substring(0, 1), TokenType.REL_OP, 2);
+    operator(LRARROW.substring(1), TokenType.REL_OP, 3);
+    operator(EQUALS, TokenType.ASSIGN, 4);
+    operator(EXCLAMATION, null, 5); // "!" is only valid as part of "!="
+
+    TWO_CHAR[1][':'] = TokenType.FC_HEADER;   // ::
+    TWO_CHAR[2]['>'] = TokenType.REL_OP;      // <>
+    TWO_CHAR[2]['='] = TokenType.REL_OP;      // <=
+    TWO_CHAR[3]['='] = TokenType.REL_OP;      // >=
+    TWO_CHAR[4]['='] = TokenType.REL_OP;      // ==
+    TWO_CHAR[5]['='] = TokenType.REL_OP;      // !=
+  }
+
+  // Powers of ten that are exact doubles, and the largest mantissa a double holds exactly
+  private static final double[] POW10 = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  // Word-at-a-time scanning: spaces, comments and identifier runs are skipped 8 bytes per step
+  // with SWAR bit tricks on ByteBuffer.getLong. Chosen per call, the scalar loops are the fallback;
+  // -Djott.wordScanning=true only sets the default for calls that do not choose
+  private static final boolean WORD_SCANNING = Boolean.getBoolean("jott.wordScanning");
+
+  private static final long ONES = 0x0101010101010101L;
+  private static final long HIGH = 0x8080808080808080L;
+  private static final long LOW7 = 0x7F7F7F7F7F7F7F7FL;
+
+  private static void punct(String lexeme, TokenType type) {
+    CHAR_CLASS[lexeme.charAt(0)] = PUNCT;
+    ONE_CHAR[lexeme.charAt(0)] = type;
+  }
+
+  private static void operator(String lexeme, TokenType type, int state) {
+    CHAR_CLASS[lexeme.charAt(0)] = OPERATOR;
+    ONE_CHAR[lexeme.charAt(0)] = type;
+    OP_STATE[lexeme.charAt(0)] = (byte) state;
+  }
+
   // Reads file and returns a list of tokens
   public static ArrayList<Token> tokenize(String filename) {
-    String input = readFile(filename);
+    return toList(tokenizeToBuffer(filename));
+  }
+
+  // In-memory versions of tokenize; sourceName is what tokens and error messages report as the file
+  public static ArrayList<Token> tokenize(CharSequence source, String sourceName) {
+    return toList(tokenizeToBuffer(source, sourceName));
+  }
+
+  public static ArrayList<Token> tokenize(byte[] source, String sourceName) {
+    return toList(tokenizeToBuffer(source, sourceName));
+  }
+
+  public static ArrayList<Token> tokenize(ByteBuffer source, String sourceName) {
+    return toList(tokenizeToBuffer(source, sourceName));
+  }
+
+  public static ArrayList<Token> tokenize(Reader source, String sourceName) {
+    return toList(tokenizeToBuffer(source, sourceName));
+  }
+
+  // Reads file and returns its tokens in a compact TokenBuffer, no Token objects are created
+  public static TokenBuffer tokenizeToBuffer(String filename) {
+    return tokenizeToBuffer(filename, WORD_SCANNING);
+  }
+
+  // Same, choosing word-at-a-time scanning for this call; the tokens produced are the same either way
+  public static TokenBuffer tokenizeToBuffer(String filename, boolean wordScanning) {
+    ByteBuffer input = readFile(filename);
     if (input == null) return null;
+    return tokenizeToBuffer(input, filename, wordScanning);
+  }
 
-    ArrayList<Token> tokens = new ArrayList<>();
-    int i = 0;
-    int line = 1;
+  public static TokenBuffer tokenizeToBuffer(CharSequence source, String sourceName) {
+    return tokenizeToBuffer(StandardCharsets.UTF_8.encode(CharBuffer.wrap(source)), sourceName);
+  }
+
+  public static TokenBuffer tokenizeToBuffer(byte[] source, String sourceName) {
+    return tokenizeToBuffer(ByteBuffer.wrap(source), sourceName);
+  }
 
-    while (i < input.length()) {
-      Result r = matchAllTokens(input, i, line, filename); // match next token
-      if (r == null) return null;
-      i = r.nextIndex;
-      line = r.nextLine;
-      if (r.token != null) addToken(tokens, r.token); // add to list if a token was found
+  // Reads the whole Reader first, a Jott program has to be in memory to be parsed anyway
+  public static TokenBuffer tokenizeToBuffer(Reader source, String sourceName) {
+    StringBuilder sb = new StringBuilder();
+    char[] chunk = new char[8192];
+    try {
+      for (int n; (n = source.read(chunk)) >= 0; ) sb.append(chunk, 0, n);
+    } catch (IOException e) {
+      System.err.println("Error reading file: " + e.getMessage());
+      return null;
     }
-    return tokens;
+    return tokenizeToBuffer(sb, sourceName);
   }
 
-  // Adds a token to the output list
-  private static void addToken(ArrayList<Token> tokens, Token t) {
-    tokens.add(t);
+  // Tokenizes the UTF-8 bytes between the buffer's position and limit
+  public static TokenBuffer tokenizeToBuffer(ByteBuffer source, String sourceName) {
+    return tokenizeToBuffer(source, sourceName, WORD_SCANNING);
   }
 
-  // Matches and returns the next token (or skips whitespace/comments)
-  private static Result matchAllTokens(String input, int i, int line, String filename) {
-    int n = input.length();
-    while (i < n) {
-      char c = input.charAt(i);
-      if (isSpace(c)) { i++; continue; }
-      if (isNewline(c)) { line++; i++; continue; }
-      if (match(input, i, COMMENT)) { i = skipCommentToEOL(input, i); continue; }
-      break;
-    }
-    if (i >= n) return new Result(null, i, line);
-
-    char c = input.charAt(i);
-    if (match(input, i, QUOTE)) return scanString(input, i, line, filename);
-    if (isLetter(c)) return scanIdentifier(input, i, line, filename);
-    if (isDigit(c) || (c == '.' && i + 1 < n && isDigit(input.charAt(i + 1)))) return scanNumber(input, i, line, filename);
-
-    if (i + 1 < n) {
-      String two = input.substring(i, i + 2);
-      if (two.equals(LRARROW) || two.equals("==") || two.equals("!=") || two.equals("<=") || two.equals(">="))
-        return new Result(makeToken(two, filename, line, TokenType.REL_OP), i + 2, line);
-      if (two.equals("::"))
-        return new Result(makeToken(two, filename, line, TokenType.FC_HEADER), i + 2, line);
-    }
-
-    if (match(input, i, COMMA)) return new Result(makeToken(COMMA, filename, line, TokenType.COMMA), i + 1, line);
-    if (match(input, i, LBRACKET)) return new Result(makeToken(LBRACKET, filename, line, TokenType.L_BRACKET), i + 1, line);
-    if (match(input, i, RBRACKET)) return new Result(makeToken(RBRACKET, filename, line, TokenType.R_BRACKET), i + 1, line);
-    if (match(input, i, LBRACE)) return new Result(makeToken(LBRACE, filename, line, TokenType.L_BRACE), i + 1, line);
-    if (match(input, i, RBRACE)) return new Result(makeToken(RBRACE, filename, line, TokenType.R_BRACE), i + 1, line);
-    if (match(input, i, SEMICOLON)) return new Result(makeToken(SEMICOLON, filename, line, TokenType.SEMICOLON), i + 1, line);
-    if (match(input, i, COLON)) return new Result(makeToken(COLON, filename, line, TokenType.COLON), i + 1, line);
-
-    if (c == '<' || c == '>') return new Result(makeToken(String.valueOf(c), filename, line, TokenType.REL_OP), i + 1, line);
-    if (match(input, i, EQUALS)) return new Result(makeToken(EQUALS, filename, line, TokenType.ASSIGN), i + 1, line);
-
-    if (match(input, i, EXCLAMATION)) {
-      syntaxError("Invalid token \"!\". \"!\" expects following \"=\".", filename, line);
+  public static TokenBuffer tokenizeToBuffer(ByteBuffer source, String sourceName, boolean wordScanning) {
+    try {
+      return tokenizeOrThrow(source, sourceName, wordScanning);
+    } catch (ParseException e) {
+      System.err.println(e.getMessage());
       return null;
     }
+  }
 
-    if (match(input, i, ADD) || match(input, i, SUBTRACT) || match(input, i, MULTIPLY) || match(input, i, DIVIDE))
-      return new Result(makeToken(String.valueOf(c), filename, line, TokenType.MATH_OP), i + 1, line);
+  // Like tokenizeToBuffer, but throws the first error as a LEXICAL diagnostic instead of printing it
+  public static TokenBuffer tokenizeOrThrow(ByteBuffer source, String sourceName) {
+    return tokenizeOrThrow(source, sourceName, WORD_SCANNING);
+  }
+
+  public static TokenBuffer tokenizeOrThrow(ByteBuffer source, String sourceName, boolean wordScanning) {
+    ByteBuffer input = source.slice(); // token offsets are relative to the position
+    int n = sourceEnd(input);
+    Chunk chunk = new Chunk(new TokenBuffer(input, sourceName, n / 8));
+    chunk.wordScanning = wordScanning;
+    if (!lex(input, 0, n, chunk)) {
+      throw new ParseException(Diagnostic.atLine(Diagnostic.Code.LEXICAL, sourceName, chunk.errorLine, chunk.error));
+    }
+    return chunk.tokens;
+  }
 
-    if (match(input, i, DECIMAL)) {
-      syntaxError("Invalid standalone decimal point.", filename, line);
+  private static ArrayList<Token> toList(TokenBuffer tokens) {
+    return tokens == null ? null : tokens.toList();
+  }
+
+  // Opens the file as a TokenStream, which lexes it a window at a time instead of all at once
+  public static TokenStream tokenizeStream(String filename) {
+    try {
+      return tokenizeStream(FileChannel.open(Paths.get(filename), StandardOpenOption.READ), filename);
+    } catch (IOException | RuntimeException e) {
+      System.err.println("Error reading file: " + e.getMessage());
       return null;
     }
+  }
+
+  // Lexes Jott source from any channel (a file, a pipe, ...) on demand with bounded memory
+  public static TokenStream tokenizeStream(ReadableByteChannel channel, String filename) {
+    return new TokenStream(channel, filename);
+  }
+
+  // Maps the file and lexes it one token at a time as the tokens are asked for, no token list is ever built
+  public static TokenScanner tokenizeOnDemand(String filename) {
+    ByteBuffer input = readFile(filename);
+    if (input == null) return null;
+    return new TokenScanner(input, filename);
+  }
+
+  public static TokenScanner tokenizeOnDemand(ByteBuffer source, String sourceName) {
+    return new TokenScanner(source, sourceName);
+  }
+
+  // Same result as tokenizeToBuffer, but lexes line-aligned slices of the file on the common ForkJoinPool
+  public static TokenBuffer tokenizeParallel(String filename) {
+    return tokenizeParallel(filename, ForkJoinPool.commonPool());
+  }
+
+  // Same result as tokenizeToBuffer, but lexes line-aligned slices of the file on the given pool.
+  // Strings cannot span lines and comments end at EOL, so every newline is a safe place to split.
+  public static TokenBuffer tokenizeParallel(String filename, ForkJoinPool pool) {
+    ByteBuffer input = readFile(filename);
+    if (input == null) return null;
+
+    int n = sourceEnd(input);
+    int chunkSize = Math.max(MIN_PARALLEL_CHUNK, n / (pool.getParallelism() * 4) + 1);
+    List<Callable<Chunk>> tasks = new ArrayList<>();
+    int from = 0;
+    while (from < n) {
+      int to = Math.min(n, from + chunkSize);
+      while (to < n && charAt(input, to - 1) != '\n') to++; // end each slice just after a newline
+      int start = from;
+      int end = to;
+      tasks.add(() -> {
+        Chunk chunk = new Chunk(new TokenBuffer(input, filename, (end - start) / 8, new SymbolPool(), start));
+        lex(input, start, end, chunk);
+        return chunk;
+      });
+      from = to;
+    }
+
+    List<Future<Chunk>> results = pool.invokeAll(tasks);
+    TokenBuffer tokens = new TokenBuffer(input, filename, n / 8);
+    int lineOffset = 0;
+    for (Future<Chunk> f : results) {
+      Chunk chunk;
+      try {
+        chunk = f.get();
+      } catch (InterruptedException | ExecutionException e) {
+        System.err.println("Error tokenizing file: " + e.getMessage());
+        return null;
+      }
+      if (chunk.error != null) { // report the first bad line, exactly like the sequential lexer
+        syntaxError(chunk.error, filename, chunk.errorLine + lineOffset);
+        return null;
+      }
+      tokens.append(chunk.tokens);
+      lineOffset += chunk.lineBreaks;
+    }
+    return tokens;
+  }
+
+  // Lexes input[from, to) into the chunk, recording where every line starts; false if a syntax error was hit
+  static boolean lex(ByteBuffer input, int from, int to, Chunk out) {
+    LineIndex lines = out.tokens.getLines();
+    int i = from;
+
+    while (i < to) {
+      byte cls = classOf(charAt(input, i));
+      if (cls == SPACE) { i = skipSpaces(input, to, i + 1, out.wordScanning); continue; }
+      if (cls == NEWLINE_CLASS) { i = skipNewline(input, to, i); lines.add(i); continue; }
+      if (cls == COMMENT_START) { i = skipCommentToEOL(input, to, i, out.wordScanning); continue; }
+
+      i = matchToken(input, to, i, cls, out); // match next token
+      if (i < 0) return false;
+    }
+    out.lineBreaks = lines.lineCount() - 1;
+    return true;
+  }
 
-    syntaxError("Invalid token \"" + c + "\".", filename, line);
-    return null;
+  // Lexes input from i up to and including the next token or line break, whichever comes first, for
+  // TokenScanner; returns the index after it (to at the end of input) or -1 if a syntax error was hit
+  static int lexStep(ByteBuffer input, int i, int to, Chunk out) {
+    while (i < to) {
+      byte cls = classOf(charAt(input, i));
+      if (cls == SPACE) { i = skipSpaces(input, to, i + 1, out.wordScanning); continue; }
+      if (cls == NEWLINE_CLASS) { out.lineBreaks++; return skipNewline(input, to, i); }
+      if (cls == COMMENT_START) { i = skipCommentToEOL(input, to, i, out.wordScanning); continue; }
+      return matchToken(input, to, i, cls, out);
+    }
+    return i;
+  }
+
+  // Skips the rest of a block for SignatureIndex's header-only scan: from just after a '{' to just after its
+  // matching '}', counting braces outside strings and comments and recording line breaks. Nothing else is
+  // checked and no token is made. Returns -1 if the block or a string in it is not closed.
+  static int skipBlock(ByteBuffer input, int i, int to, Chunk out) {
+    LineIndex lines = out.tokens.getLines();
+    int depth = 1;
+    while (i < to) {
+      char c = charAt(input, i);
+      byte cls = classOf(c);
+      if (cls == NEWLINE_CLASS) { i = skipNewline(input, to, i); lines.add(i); continue; }
+      if (cls == COMMENT_START) { i = skipCommentToEOL(input, to, i, out.wordScanning); continue; }
+      if (cls == STRING_START) {
+        for (i++; i < to && charAt(input, i) != QUOTE.charAt(0); i++) {
+          if (isNewline(charAt(input, i))) return out.fail("String literal cannot span lines.");
+        }
+        if (i == to) return out.fail("Unterminated string literal.");
+        i++;
+        continue;
+      }
+      if (c == '{') depth++;
+      else if (c == '}' && --depth == 0) return i + 1;
+      i++;
+    }
+    return -1;
+  }
+
+  // Matches the token starting at i and adds it to the chunk, returns the index after it or -1 on error
+  private static int matchToken(ByteBuffer input, int n, int i, byte cls, Chunk out) {
+    switch (cls) {
+      case STRING_START:
+        return scanString(input, n, i, out);
+      case LETTER:
+        return scanIdentifier(input, n, i, out);
+      case DIGIT:
+        return scanNumber(input, n, i, out);
+      case DOT:
+        if (i + 1 < n && isDigit(charAt(input, i + 1))) return scanNumber(input, n, i, out);
+        return out.fail("Invalid standalone decimal point.");
+      case PUNCT:
+        return addToken(out.tokens, ONE_CHAR[charAt(input, i)], i, 1);
+      case OPERATOR: {
+        char c = charAt(input, i);
+        if (i + 1 < n) {
+          char next = charAt(input, i + 1);
+          TokenType pair = next < 128 ? TWO_CHAR[OP_STATE[c]][next] : null;
+          if (pair != null) return addToken(out.tokens, pair, i, 2);
+        }
+        if (ONE_CHAR[c] != null) return addToken(out.tokens, ONE_CHAR[c], i, 1);
+        return out.fail("Invalid token \"!\". \"!\" expects following \"=\".");
+      }
+      default:
+        return out.fail("Invalid token \"" + codePointAt(input, n, i) + "\".");
+    }
+  }
+
+  // Adds a token to the output buffer and returns the index just past it
+  private static int addToken(TokenBuffer tokens, TokenType type, int start, int length) {
+    tokens.add(type, start, length);
+    return start + length;
   }
 
   // Character checks
-  private static boolean isSpace(char c) { return c == WHITESPACE.charAt(0) || c == '\t' || c == '\r'; }
-  private static boolean isNewline(char c) { return c == NEWLINE.charAt(0); }
-  private static boolean match(String s, int i, String lit) { return i < s.length() && s.charAt(i) == lit.charAt(0); }
-  private static boolean isDigit(char c) { return c >= '0' && c <= '9'; }
-  private static boolean isLetter(char c) { return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'); }
-  private static boolean isIdChar(char c) { return isLetter(c) || isDigit(c) || c == '_'; }
+  private static byte classOf(char c) { return c < 128 ? CHAR_CLASS[c] : OTHER; }
+  private static boolean isNewline(char c) { return classOf(c) == NEWLINE_CLASS; }
+  private static boolean isDigit(char c) { return classOf(c) == DIGIT; }
+  private static boolean isIdChar(char c) { byte cls = classOf(c); return cls == LETTER || cls == DIGIT || c == '_'; }
+
+  // Raw byte at i widened to a char; anything >= 0x80 is part of a UTF-8 sequence
+  private static char charAt(ByteBuffer input, int i) { return (char) (input.get(i) & 0xFF); }
+
+  // A "\r\n" pair counts as one line break, same as BufferedReader.readLine
+  private static int skipNewline(ByteBuffer input, int n, int i) {
+    if (charAt(input, i) == '\r' && i + 1 < n && charAt(input, i + 1) == '\n') return i + 2;
+    return i + 1;
+  }
+
+  // Skip spaces and tabs, returns the index of the first other character
+  private static int skipSpaces(ByteBuffer input, int n, int i, boolean wordScanning) {
+    if (wordScanning) {
+      for (; i + 8 <= n; i += 8) {
+        long x = word(input, i);
+        long miss = ~(eqMask(x, ' ') | eqMask(x, '\t')) & HIGH;
+        if (miss != 0) return i + firstByte(miss);
+      }
+    }
+    while (i < n && classOf(charAt(input, i)) == SPACE) i++;
+    return i;
+  }
 
   // Skip characters to end of line for a comment
-  private static int skipCommentToEOL(String input, int i) {
-    while (i < input.length() && input.charAt(i) != '\n') i++;
+  private static int skipCommentToEOL(ByteBuffer input, int n, int i, boolean wordScanning) {
+    if (wordScanning) {
+      for (; i + 8 <= n; i += 8) {
+        long x = word(input, i);
+        long hit = eqMask(x, '\n') | eqMask(x, '\r');
+        if (hit != 0) return i + firstByte(hit);
+      }
+    }
+    while (i < n && !isNewline(charAt(input, i))) i++;
+    return i;
+  }
+
+  // Skip letters, digits and underscores, returns the index just past the identifier
+  private static int skipIdChars(ByteBuffer input, int n, int i, boolean wordScanning) {
+    if (wordScanning) {
+      for (; i + 8 <= n; i += 8) {
+        long x = word(input, i);
+        long id = rangeMask(x | (ONES * 0x20), 'a', 'z') // setting bit 5 folds A-Z onto a-z and nothing else onto it
+            | rangeMask(x, '0', '9') | eqMask(x, '_');
+        long miss = ~id & HIGH;
+        if (miss != 0) return i + firstByte(miss);
+      }
+    }
+    while (i < n && isIdChar(charAt(input, i))) i++;
     return i;
   }
 
+  // 8 bytes starting at i with the first byte in the most significant position
+  private static long word(ByteBuffer input, int i) {
+    long x = input.getLong(i);
+    return input.order() == ByteOrder.BIG_ENDIAN ? x : Long.reverseBytes(x);
+  }
+
+  // High bit set in every byte of x equal to b. Carry free, so no false hits next to a real one
+  private static long eqMask(long x, char b) {
+    long y = x ^ (ONES * b);
+    return ~(((y & LOW7) + LOW7) | y | LOW7);
+  }
+
+  // High bit set in every ASCII byte of x within [lo, hi]
+  private static long rangeMask(long x, char lo, char hi) {
+    long low7 = x & LOW7;
+    long aboveHi = low7 + ONES * (127 - hi);   // high bit set where byte > hi
+    long atLeastLo = low7 + ONES * (128 - lo); // high bit set where byte >= lo
+    return atLeastLo & ~aboveHi & ~x & HIGH;
+  }
+
+  // Offset of the first byte whose high bit is set in a mask built from word()
+  private static int firstByte(long mask) {
+    return Long.numberOfLeadingZeros(mask) >>> 3;
+  }
+
   // Scans a quoted string token
-  private static Result scanString(String input, int i, int line, String filename) {
+  private static int scanString(ByteBuffer input, int n, int i, Chunk out) {
+    int start = i;
     i++;
-    StringBuilder sb = new StringBuilder();
-    while (i < input.length()) {
-      char c = input.charAt(i);
-      if (c == NEWLINE.charAt(0)) {
-        syntaxError("String literal cannot span lines.", filename, line);
-        return null;
+    while (i < n) {
+      char c = charAt(input, i);
+      if (isNewline(c)) {
+        return out.fail("String literal cannot span lines.");
       }
       if (c == QUOTE.charAt(0)) {
         i++;
-        String lexeme = QUOTE + sb + QUOTE;
-        return new Result(makeToken(lexeme, filename, line, TokenType.STRING), i, line);
+        return addToken(out.tokens, TokenType.STRING, start, i - start);
       }
-      sb.append(c);
       i++;
     }
-    syntaxError("Unterminated string literal.", filename, line);
-    return null;
+    return out.fail("Unterminated string literal.");
   }
 
   // Scans an identifier or keyword
-  private static Result scanIdentifier(String input, int i, int line, String filename) {
+  private static int scanIdentifier(ByteBuffer input, int n, int i, Chunk out) {
+    TokenBuffer tokens = out.tokens;
     int start = i;
-    i++;
-    while (i < input.length() && isIdChar(input.charAt(i))) i++;
-    String lexeme = input.substring(start, i);
-    return new Result(makeToken(lexeme, filename, line, TokenType.ID_KEYWORD), i, line);
+    i = skipIdChars(input, n, i + 1, out.wordScanning);
+    // classify keywords once here so the parser never has to compare strings
+    Keyword keyword = Keyword.classify(input, start, i - start);
+    int symbol = keyword == null ? tokens.getSymbols().intern(input, start, i - start) : -1;
+    tokens.add(TokenType.ID_KEYWORD, start, i - start, keyword, symbol);
+    return i;
   }
 
-  // Scans a number token
-  private static Result scanNumber(String input, int i, int line, String filename) {
+  // Scans a number token and decodes its value
+  private static int scanNumber(ByteBuffer input, int n, int i, Chunk out) {
     int start = i;
-    if (input.charAt(i) == DECIMAL.charAt(0)) {
+    long mantissa = 0;
+    boolean exact = true;    // false once the digits no longer fit in a long
+    int fractionDigits = -1; // digits after the decimal point, -1 while there is none
+    if (charAt(input, i) == DECIMAL.charAt(0)) {
       i++;
-      if (i >= input.length() || !isDigit(input.charAt(i))) {
-        syntaxError("Invalid number: missing digits after decimal point.", filename, line);
-        return null;
+      if (i >= n || !isDigit(charAt(input, i))) {
+        return out.fail("Invalid number: missing digits after decimal point.");
       }
-      while (i < input.length() && isDigit(input.charAt(i))) i++;
-    } else {
-      while (i < input.length() && isDigit(input.charAt(i))) i++;
-      if (i < input.length() && input.charAt(i) == DECIMAL.charAt(0)) {
-        i++;
-        while (i < input.length() && isDigit(input.charAt(i))) i++;
+      fractionDigits = 0;
+    }
+    for (; i < n; i++) {
+      char c = charAt(input, i);
+      if (isDigit(c)) {
+        int d = c - '0';
+        if (exact && mantissa <= (Long.MAX_VALUE - d) / 10) mantissa = mantissa * 10 + d;
+        else exact = false;
+        if (fractionDigits >= 0) fractionDigits++;
+      } else if (c == DECIMAL.charAt(0) && fractionDigits < 0) {
+        fractionDigits = 0;
+      } else {
+        break;
       }
     }
-    String lexeme = input.substring(start, i);
-    return new Result(makeToken(lexeme, filename, line, TokenType.NUMBER), i, line);
+
+    if (fractionDigits < 0) {
+      if (!exact) return out.fail(NumberKind.outOfRange(utf8(input, start, i)));
+      out.tokens.addNumber(start, i - start, NumberKind.INTEGER, mantissa);
+    } else {
+      // mantissa and 10^k are both exact doubles here, so one division rounds correctly
+      double value = exact && mantissa <= MAX_EXACT_MANTISSA && fractionDigits < POW10.length
+          ? mantissa / POW10[fractionDigits]
+          : Double.parseDouble(utf8(input, start, i));
+      out.tokens.addNumber(start, i - start, NumberKind.DOUBLE, Double.doubleToRawLongBits(value));
+    }
+    return i;
+  }
+
+  // Decodes a UTF-8 byte range
+  private static String utf8(ByteBuffer input, int start, int end) {
+    byte[] b = new byte[end - start];
+    input.get(start, b);
+    return new String(b, StandardCharsets.UTF_8);
   }
 
-  // Creates a token instance
-  private static Token makeToken(String lexeme, String filename, int line, TokenType type) {
-    return new Token(lexeme, filename, line, type);
+  // Decodes the whole UTF-8 character starting at i, for error messages
+  private static String codePointAt(ByteBuffer input, int n, int i) {
+    int lead = input.get(i) & 0xFF;
+    int len = lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : lead >= 0xC0 ? 2 : 1;
+    return utf8(input, i, Math.min(n, i + len));
   }
 
   // Prints a syntax error
-  private static void syntaxError(String msg, String filename, int line) {
-    System.err.print("Syntax Error: ");
-    System.err.println(msg);
-    System.err.println("\tFilepath: " + filename + ":" + line);
-  }
-
-  // Reads entire file into a string
-  private static String readFile(String filename) {
-    java.io.File file = new java.io.File(filename);
-    try (java.io.FileReader fr = new java.io.FileReader(file);
-         java.io.BufferedReader br = new java.io.BufferedReader(fr)) {
-      StringBuilder sb = new StringBuilder();
-      String line;
-      boolean first = true;
-      while ((line = br.readLine()) != null) {
-        if (!first) sb.append('\n');
-        sb.append(line);
-        first = false;
+  static void syntaxError(String msg, String filename, int line) {
+    System.err.println(Diagnostic.atLine(Diagnostic.Code.LEXICAL, filename, line, msg).render());
+  }
+
+  // Maps the file read-only; the lexer works on the UTF-8 bytes in place
+  private static ByteBuffer readFile(String filename) {
+    try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size > Integer.MAX_VALUE) {
+        System.err.println("Error reading file: " + filename + " is too large");
+        return null;
       }
-      return sb.toString();
-    } catch (Exception e) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    } catch (IOException | RuntimeException e) {
       System.err.println("Error reading file: " + e.getMessage());
       return null;
     }
   }
 
-  // Holds a token and position info after a scan
-  private static class Result {
-    final Token token;
-    final int nextIndex;
-    final int nextLine;
-    Result(Token t, int idx, int line) {
-      this.token = t;
-      this.nextIndex = idx;
-      this.nextLine = line;
+  // The old readLine()-based reader dropped the final line terminator, so lexing stops before it
+  static int sourceEnd(ByteBuffer input) {
+    int n = input.limit();
+    if (n > 0 && charAt(input, n - 1) == '\n') {
+      n--;
+      if (n > 0 && charAt(input, n - 1) == '\r') n--;
+    } else if (n > 0 && charAt(input, n - 1) == '\r') {
+      n--;
+    }
+    return n;
+  }
+
+  // Output of lexing one slice of a file; errors are recorded here and printed by the caller
+  static class Chunk {
+    final TokenBuffer tokens;
+    int lineBreaks;
+    String error;
+    int errorLine;
+    boolean wordScanning = WORD_SCANNING; // how spaces, comments and identifiers are skipped
+    Chunk(TokenBuffer tokens) {
+      this.tokens = tokens;
+    }
+    // the error is on the line being lexed, which is the last one recorded so far
+    int fail(String msg) {
+      this.error = msg;
+      this.errorLine = tokens.getLines().lineCount();
+      return -1;
     }
   }
 }
@@ -1,5 +1,7 @@
 package provided;
 
+import semantics.SymbolTable;
+
 /**
  * Interface for all Jott parse tree nodes
  *
@@ -37,4 +39,13 @@ public interface JottTree {
      * @return true if valid Jott code; false otherwise
      */
     public boolean validateTree();
+
+    /**
+     * Validates this tree as part of a program whose functions and variables
+     * in scope are in the given table. Every node implements this itself, so a
+     * node that needs the table cannot silently fall back to validateTree().
+     * @param symbolTable the table of the validation this tree is part of
+     * @return true if valid Jott code; false otherwise
+     */
+    public boolean validateTree(SymbolTable symbolTable);
 }
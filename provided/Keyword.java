@@ -0,0 +1,125 @@
+package provided;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The reserved words of Jott. Keywords are still ID_KEYWORD tokens, but the
+ * tokenizer classifies them once while lexing so the parser can compare enum
+ * constants instead of re-checking the lexeme with String.equals.
+ */
+public enum Keyword {
+    DEF("Def"),
+    DEF_LOWERCASE("def"),
+    IF("If"),
+    ELSEIF("Elseif"),
+    ELSE("Else"),
+    WHILE("While"),
+    RETURN("Return"),
+    INTEGER("Integer"),
+    DOUBLE("Double"),
+    STRING("String"),
+    BOOLEAN("Boolean"),
+    VOID("Void"),
+    TRUE("True"),
+    FALSE("False");
+
+    private static final Keyword[] VALUES = values();
+
+    private final String text;
+
+    Keyword(String text) {
+        this.text = text;
+    }
+
+    /**
+     * @return the exact spelling of the keyword
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return true for the keywords that name a variable type (Double, Integer, String, Boolean)
+     */
+    public boolean isType() {
+        return this == INTEGER || this == DOUBLE || this == STRING || this == BOOLEAN;
+    }
+
+    /**
+     * @return true for Def and def, both start a function definition
+     */
+    public boolean isFunctionDef() {
+        return this == DEF || this == DEF_LOWERCASE;
+    }
+
+    /**
+     * Looks up a keyword by ordinal, the inverse of ordinal()
+     * @param ordinal the ordinal of the keyword
+     * @return the keyword
+     */
+    public static Keyword fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Classifies an identifier lexeme held in a byte buffer. The length and
+     * first character pick the only possible candidate, which is then
+     * compared byte by byte, so at most one comparison is done per lexeme.
+     * @param src the source bytes
+     * @param start offset of the lexeme
+     * @param len length of the lexeme
+     * @return the keyword, or null if the lexeme is a plain identifier
+     */
+    public static Keyword classify(ByteBuffer src, int start, int len) {
+        Keyword k = candidate(len, (char) (src.get(start) & 0xFF));
+        if (k == null) {
+            return null;
+        }
+        String text = k.text;
+        for (int i = 1; i < len; i++) {
+            if ((src.get(start + i) & 0xFF) != text.charAt(i)) {
+                return null;
+            }
+        }
+        return k;
+    }
+
+    /**
+     * Classifies an identifier lexeme
+     * @param lexeme the token text
+     * @return the keyword, or null if the lexeme is a plain identifier
+     */
+    public static Keyword classify(String lexeme) {
+        if (lexeme.isEmpty()) {
+            return null;
+        }
+        Keyword k = candidate(lexeme.length(), lexeme.charAt(0));
+        return k != null && k.text.equals(lexeme) ? k : null;
+    }
+
+    // the one keyword a lexeme of this length and first char could be
+    private static Keyword candidate(int len, char first) {
+        switch (len) {
+            case 2:
+                return first == 'I' ? IF : null;
+            case 3:
+                return first == 'D' ? DEF : first == 'd' ? DEF_LOWERCASE : null;
+            case 4:
+                return first == 'E' ? ELSE : first == 'V' ? VOID : first == 'T' ? TRUE : null;
+            case 5:
+                return first == 'W' ? WHILE : first == 'F' ? FALSE : null;
+            case 6:
+                switch (first) {
+                    case 'E': return ELSEIF;
+                    case 'R': return RETURN;
+                    case 'D': return DOUBLE;
+                    case 'S': return STRING;
+                    default: return null;
+                }
+            case 7:
+                return first == 'I' ? INTEGER : first == 'B' ? BOOLEAN : null;
+            default:
+                return null;
+        }
+    }
+}
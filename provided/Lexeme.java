@@ -0,0 +1,107 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The text of a token as a view over the source buffer.
+ * Nothing is copied when a Lexeme is created; the bytes are read straight
+ * from the shared source as characters are asked for, and a String is only
+ * decoded (once) by toString().
+ *
+ * Jott source is UTF-8, but everything outside string literals is ASCII.
+ * For an all-ASCII slice every byte is one char, so charAt and subSequence
+ * work on the buffer directly. A slice with multi-byte characters falls back
+ * to its decoded String.
+ */
+public final class Lexeme implements CharSequence {
+    private final ByteBuffer source;
+    private final int start;
+    private final int length;
+    private String text;
+    private byte ascii; // 0 not checked yet, 1 all ASCII, 2 has multi-byte characters
+
+    /**
+     * Creates a view of part of a source buffer
+     * @param source the UTF-8 bytes of the file
+     * @param start byte offset of the first character
+     * @param length length of the slice in bytes
+     */
+    public Lexeme(ByteBuffer source, int start, int length) {
+        this.source = source;
+        this.start = start;
+        this.length = length;
+    }
+
+    @Override
+    public int length() {
+        return isAscii() ? length : toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (!isAscii()) {
+            return toString().charAt(index);
+        }
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + " out of bounds for length " + length);
+        }
+        return (char) (source.get(start + index) & 0xFF);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        if (!isAscii()) {
+            return toString().subSequence(from, to);
+        }
+        if (from < 0 || to > length || from > to) {
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") out of bounds for length " + length);
+        }
+        return new Lexeme(source, start + from, to - from);
+    }
+
+    /**
+     * Compares the characters of the slice with any other character sequence
+     * @param other the text to compare with
+     * @return true if both hold exactly the same characters
+     */
+    public boolean contentEquals(CharSequence other) {
+        int n = length();
+        if (n != other.length()) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            if (charAt(i) != other.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the slice decoded into a String, cached after the first call
+     */
+    @Override
+    public String toString() {
+        if (text == null) {
+            byte[] b = new byte[length];
+            source.get(start, b);
+            text = new String(b, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    private boolean isAscii() {
+        if (ascii == 0) {
+            byte state = 1;
+            for (int i = 0; i < length; i++) {
+                if (source.get(start + i) < 0) {
+                    state = 2;
+                    break;
+                }
+            }
+            ascii = state;
+        }
+        return ascii == 1;
+    }
+}
@@ -0,0 +1,117 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Byte offsets of the start of every line of a source file.
+ * The tokenizer records one entry per line break instead of stamping a line
+ * number on every token. Line and column of an offset are looked up by
+ * binary search, which only happens when someone actually asks, usually
+ * while formatting an error message.
+ */
+public class LineIndex {
+    private final ByteBuffer source;
+    private int[] starts = new int[64];
+    private int count;
+    private int firstLine = 1;
+
+    /**
+     * Creates an index whose first line starts at the given offset
+     * @param source the UTF-8 bytes of the file, used to count columns
+     * @param firstLineStart byte offset of line 1, 0 for a whole file
+     */
+    public LineIndex(ByteBuffer source, int firstLineStart) {
+        this.source = source;
+        this.starts[0] = firstLineStart;
+        this.count = 1;
+    }
+
+    /**
+     * Records the start of the next line
+     * @param offset byte offset just past a line break
+     */
+    public void add(int offset) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+        }
+        starts[count++] = offset;
+    }
+
+    /**
+     * Appends the lines of an index that continues this one. Its first line
+     * is the line this index already recorded last, so that entry is skipped.
+     * @param other the index of the text that follows
+     */
+    void append(LineIndex other) {
+        int extra = other.count - 1;
+        if (count + extra > starts.length) {
+            starts = Arrays.copyOf(starts, Math.max(count + extra, count * 2));
+        }
+        System.arraycopy(other.starts, 1, starts, count, extra);
+        count += extra;
+    }
+
+    /**
+     * Numbers the lines of this index starting at firstLine instead of 1,
+     * for source that is a part of a larger file. It can be changed at any
+     * time, tokens look their line up again every time they are asked.
+     * @param firstLine the number of the first line of this index
+     */
+    public void setFirstLine(int firstLine) {
+        this.firstLine = firstLine;
+    }
+
+    public int getFirstLine() {
+        return firstLine;
+    }
+
+    /**
+     * @return the number of lines recorded so far
+     */
+    public int lineCount() {
+        return count;
+    }
+
+    /**
+     * @param line a line number, starting at the first line
+     * @return the byte offset of the first character of that line
+     */
+    public int lineStart(int line) {
+        return starts[line - firstLine];
+    }
+
+    /**
+     * @param offset a byte offset into the source
+     * @return the line the offset is on, starting at the first line
+     */
+    public int lineOf(int offset) {
+        int lo = 0;
+        int hi = count - 1;
+        while (lo < hi) { // last line whose start is <= offset
+            int mid = (lo + hi + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return lo + firstLine;
+    }
+
+    /**
+     * Column of an offset in characters, so a multi-byte UTF-8 character
+     * earlier on the line counts once
+     * @param offset a byte offset into the source
+     * @return the column the offset is at, starting at 1
+     */
+    public int columnOf(int offset) {
+        int column = 1;
+        for (int i = lineStart(lineOf(offset)); i < offset; i++) {
+            if ((source.get(i) & 0xC0) != 0x80) { // skip UTF-8 continuation bytes
+                column++;
+            }
+        }
+        return column;
+    }
+}
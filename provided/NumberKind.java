@@ -0,0 +1,103 @@
+package provided;
+
+/**
+ * Whether a NUMBER token is an Integer or a Double literal. The tokenizer
+ * decides this once, together with the literal's value, so later stages never
+ * have to look at the digits again.
+ *
+ * Integer values are stored as a long and Double values as the raw bits of a
+ * double (Double.doubleToRawLongBits), so both fit in one long slot.
+ */
+public enum NumberKind {
+    INTEGER("Integer"),
+    DOUBLE("Double");
+
+    private static final NumberKind[] VALUES = values();
+
+    private final String typeName;
+
+    NumberKind(String typeName) {
+        this.typeName = typeName;
+    }
+
+    /**
+     * @return the Jott type of literals of this kind, "Integer" or "Double"
+     */
+    public String getTypeName() {
+        return typeName;
+    }
+
+    /**
+     * Looks up a kind by ordinal, the inverse of ordinal()
+     * @param ordinal the ordinal of the kind
+     * @return the kind
+     */
+    public static NumberKind fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Classifies a number lexeme, a decimal point makes it a Double
+     * @param lexeme the digits of the literal
+     * @return the kind of the literal
+     */
+    public static NumberKind of(CharSequence lexeme) {
+        for (int i = 0; i < lexeme.length(); i++) {
+            if (lexeme.charAt(i) == '.') {
+                return DOUBLE;
+            }
+        }
+        return INTEGER;
+    }
+
+    /**
+     * Decodes a number lexeme into the long slot used by tokens. The lexeme has
+     * to be what the tokenizer accepts as a number: digits with at most one
+     * decimal point, and at least one digit
+     * @param lexeme the digits of the literal
+     * @param kind the kind returned by of(lexeme)
+     * @return the long value, or the bits of the double value
+     * @throws IllegalArgumentException if the lexeme is not a number literal of that kind,
+     *         or is an Integer literal too large for a long
+     */
+    public static long decode(CharSequence lexeme, NumberKind kind) {
+        String s = lexeme.toString();
+        if (!isLiteral(s, kind)) {
+            throw new IllegalArgumentException("Invalid " + kind.typeName + " literal \"" + s + "\".");
+        }
+        if (kind == DOUBLE) {
+            return Double.doubleToRawLongBits(Double.parseDouble(s));
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(outOfRange(s));
+        }
+    }
+
+    /**
+     * The error for an Integer literal too large for a long, shared with the tokenizer
+     * @param lexeme the digits of the literal
+     * @return the message
+     */
+    public static String outOfRange(CharSequence lexeme) {
+        return "Integer literal \"" + lexeme + "\" is out of range.";
+    }
+
+    // digits with one decimal point for a Double and none for an Integer, and at least one digit
+    private static boolean isLiteral(String s, NumberKind kind) {
+        boolean digit = false;
+        boolean point = false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digit = true;
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                return false;
+            }
+        }
+        return digit && point == (kind == DOUBLE);
+    }
+}
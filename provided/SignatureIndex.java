@@ -0,0 +1,374 @@
+package provided;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import parser.FunctionDefNode;
+import parser.FunctionDefParamsNode;
+import parser.ParseException;
+
+/**
+ * The function signatures of a set of Jott files, for looking up a function
+ * by name across a whole workspace.
+ *
+ * Files are scanned header-only: every function header is lexed and read
+ * by FunctionDefNode.parseHeader, and every body is skipped by counting
+ * braces outside strings and comments, so no body token or node is made and
+ * bodies are not checked. Files are scanned in parallel. A file with an
+ * error in a header, an unclosed block or string, or a lexical error
+ * between functions contributes the functions that come before the error.
+ *
+ * An index can be saved to disk and loaded again. update() then rescans
+ * only the files whose size or modification time has changed.
+ */
+public class SignatureIndex {
+    private static final int MAGIC = 0x4A534958; // "JSIX"
+    private static final int VERSION = 1;
+
+    private final LinkedHashMap<String, FileEntry> files;
+    private final HashMap<String, List<Signature>> byName = new HashMap<>();
+
+    /**
+     * The signature of one function definition
+     */
+    public static final class Signature {
+        private final String name;
+        private final Keyword[] paramTypes;
+        private final Keyword returnType;
+        private final String file;
+        private final int line;
+
+        Signature(String name, Keyword[] paramTypes, Keyword returnType, String file, int line) {
+            this.name = name;
+            this.paramTypes = paramTypes;
+            this.returnType = returnType;
+            this.file = file;
+            this.line = line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the parameter types in order, e.g. ["Integer", "String"]
+         */
+        public List<String> getParamTypes() {
+            List<String> types = new ArrayList<>(paramTypes.length);
+            for (Keyword type : paramTypes) {
+                types.add(type.getText());
+            }
+            return types;
+        }
+
+        /**
+         * @return the return type, Void included
+         */
+        public String getReturnType() {
+            return returnType.getText();
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        /**
+         * @return the line of the function's name
+         */
+        public int getLine() {
+            return line;
+        }
+
+        @Override
+        public String toString() {
+            return name + getParamTypes() + ":" + getReturnType() + " (" + file + ":" + line + ")";
+        }
+    }
+
+    // the signatures scanned from one file, and the size and modification time it had then
+    private static final class FileEntry {
+        final String file;
+        final long size;
+        final long modified;
+        final List<Signature> signatures;
+        final boolean complete; // false if scanning stopped at an error
+
+        FileEntry(String file, long size, long modified, List<Signature> signatures, boolean complete) {
+            this.file = file;
+            this.size = size;
+            this.modified = modified;
+            this.signatures = signatures;
+            this.complete = complete;
+        }
+    }
+
+    private SignatureIndex(LinkedHashMap<String, FileEntry> files) {
+        this.files = files;
+        for (FileEntry entry : files.values()) {
+            for (Signature s : entry.signatures) {
+                byName.computeIfAbsent(s.name, k -> new ArrayList<>(1)).add(s);
+            }
+        }
+    }
+
+    /**
+     * Scans files on the common ForkJoinPool
+     * @param paths the Jott files to index
+     * @return the index
+     * @throws IOException if a file cannot be read
+     */
+    public static SignatureIndex build(List<Path> paths) throws IOException {
+        return build(paths, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Scans files in parallel on the given pool
+     * @param paths the Jott files to index
+     * @param pool where the files are scanned
+     * @return the index
+     * @throws IOException if a file cannot be read
+     */
+    public static SignatureIndex build(List<Path> paths, ForkJoinPool pool) throws IOException {
+        return new SignatureIndex(new LinkedHashMap<>()).update(paths, pool);
+    }
+
+    /**
+     * Brings the index up to date with a set of files. Files whose size
+     * and modification time are unchanged keep their signatures, the others
+     * are scanned again, and files not in paths are dropped.
+     * @param paths the Jott files to index
+     * @param pool where the changed files are scanned
+     * @return the new index, this one is left as it was
+     * @throws IOException if a file cannot be read
+     */
+    public SignatureIndex update(List<Path> paths, ForkJoinPool pool) throws IOException {
+        LinkedHashMap<String, FileEntry> next = new LinkedHashMap<>();
+        List<Path> changed = new ArrayList<>();
+        for (Path path : paths) {
+            String file = path.toString();
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            FileEntry old = files.get(file);
+            if (old != null && old.size == attributes.size()
+                    && old.modified == attributes.lastModifiedTime().toMillis()) {
+                next.put(file, old);
+            } else if (!next.containsKey(file)) {
+                next.put(file, null);
+                changed.add(path);
+            }
+        }
+
+        int groups = Math.min(changed.size(), pool.getParallelism() * 4);
+        List<Callable<List<FileEntry>>> tasks = new ArrayList<>(groups);
+        for (int g = 0; g < groups; g++) {
+            List<Path> group = changed.subList(changed.size() * g / groups, changed.size() * (g + 1) / groups);
+            tasks.add(() -> {
+                List<FileEntry> entries = new ArrayList<>(group.size());
+                for (Path path : group) {
+                    entries.add(scan(path));
+                }
+                return entries;
+            });
+        }
+        for (Future<List<FileEntry>> f : pool.invokeAll(tasks)) {
+            try {
+                for (FileEntry entry : f.get()) {
+                    next.put(entry.file, entry);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while scanning", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return new SignatureIndex(next);
+    }
+
+    // header-only scan of one file: only the headers are lexed, bodies are skimmed by JottTokenizer.skipBlock
+    private static FileEntry scan(Path path) throws IOException {
+        String file = path.toString();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        ByteBuffer input = ByteBuffer.wrap(Files.readAllBytes(path));
+        int n = JottTokenizer.sourceEnd(input);
+        JottTokenizer.Chunk chunk = new JottTokenizer.Chunk(new TokenBuffer(input, file, 64));
+        TokenBuffer tokens = chunk.tokens;
+
+        List<Signature> signatures = new ArrayList<>();
+        boolean complete = true;
+        int i = 0;
+        while (complete) {
+            // the header's tokens, up to and including the '{' of the body
+            int first = tokens.size();
+            while (i >= 0 && i < n
+                    && (tokens.size() == first || tokens.getType(tokens.size() - 1) != TokenType.L_BRACE)) {
+                i = JottTokenizer.lexStep(input, i, n, chunk);
+                if (chunk.lineBreaks > 0) {
+                    tokens.getLines().add(i);
+                    chunk.lineBreaks = 0;
+                }
+            }
+            if (i < 0) {
+                complete = false; // a lexical error, the functions before it are still indexed
+            } else if (tokens.size() > first) {
+                try {
+                    FunctionDefNode.Header def = FunctionDefNode.parseHeader(new TokenCursor(tokens, first, tokens.size()));
+                    i = JottTokenizer.skipBlock(input, i, n, chunk);
+                    complete = i >= 0;
+                    if (complete) {
+                        signatures.add(signature(def, file));
+                    }
+                } catch (ParseException e) {
+                    complete = false;
+                }
+            } else {
+                break; // end of file
+            }
+        }
+        return new FileEntry(file, attributes.size(), attributes.lastModifiedTime().toMillis(), signatures, complete);
+    }
+
+    private static Signature signature(FunctionDefNode.Header def, String file) {
+        List<FunctionDefParamsNode.ParamDecl> params = def.getParams().getParamEntries();
+        Keyword[] paramTypes = new Keyword[params.size()];
+        for (int i = 0; i < paramTypes.length; i++) {
+            paramTypes[i] = params.get(i).getTypeToken().getKeyword();
+        }
+        Token name = def.getId().getToken();
+        return new Signature(name.getToken(), paramTypes, def.getReturnType().getReturnTypeToken().getKeyword(), file,
+                name.getLineNum());
+    }
+
+    /**
+     * @param name a function name
+     * @return every function with that name, in file order; empty if there is none
+     */
+    public List<Signature> lookup(String name) {
+        List<Signature> found = byName.get(name);
+        return found == null ? Collections.emptyList() : Collections.unmodifiableList(found);
+    }
+
+    /**
+     * @param file a file of the index
+     * @return its functions in source order; empty if it is not in the index
+     */
+    public List<Signature> getSignatures(Path file) {
+        FileEntry entry = files.get(file.toString());
+        return entry == null ? Collections.emptyList() : Collections.unmodifiableList(entry.signatures);
+    }
+
+    /**
+     * @return the files whose scan stopped at a lexical or syntax error
+     */
+    public List<String> getIncompleteFiles() {
+        List<String> incomplete = new ArrayList<>();
+        for (FileEntry entry : files.values()) {
+            if (!entry.complete) {
+                incomplete.add(entry.file);
+            }
+        }
+        return incomplete;
+    }
+
+    public int getFileCount() {
+        return files.size();
+    }
+
+    /**
+     * @return the number of signatures in the index
+     */
+    public int size() {
+        int n = 0;
+        for (FileEntry entry : files.values()) {
+            n += entry.signatures.size();
+        }
+        return n;
+    }
+
+    /**
+     * Writes the index to a file, types are stored as keyword ordinals
+     * @param path where to write it
+     * @throws IOException if it cannot be written
+     */
+    public void save(Path path) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(files.size());
+            for (FileEntry entry : files.values()) {
+                out.writeUTF(entry.file);
+                out.writeLong(entry.size);
+                out.writeLong(entry.modified);
+                out.writeBoolean(entry.complete);
+                out.writeInt(entry.signatures.size());
+                for (Signature s : entry.signatures) {
+                    out.writeUTF(s.name);
+                    out.writeInt(s.line);
+                    out.writeByte(s.returnType.ordinal());
+                    out.writeInt(s.paramTypes.length);
+                    for (Keyword type : s.paramTypes) {
+                        out.writeByte(type.ordinal());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads an index written by save
+     * @param path the file to read
+     * @return the index as it was saved
+     * @throws IOException if it cannot be read or was not written by this version
+     */
+    public static SignatureIndex load(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException(path + " is not a Jott signature index");
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException(path + " is a version " + version + " signature index, expected " + VERSION);
+            }
+            int fileCount = in.readInt();
+            LinkedHashMap<String, FileEntry> files = new LinkedHashMap<>(fileCount * 2);
+            for (int f = 0; f < fileCount; f++) {
+                String file = in.readUTF();
+                long size = in.readLong();
+                long modified = in.readLong();
+                boolean complete = in.readBoolean();
+                int count = in.readInt();
+                List<Signature> signatures = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    String name = in.readUTF();
+                    int line = in.readInt();
+                    Keyword returnType = Keyword.fromOrdinal(in.readByte());
+                    Keyword[] paramTypes = new Keyword[in.readInt()];
+                    for (int p = 0; p < paramTypes.length; p++) {
+                        paramTypes[p] = Keyword.fromOrdinal(in.readByte());
+                    }
+                    signatures.add(new Signature(name, paramTypes, returnType, file, line));
+                }
+                files.put(file, new FileEntry(file, size, modified, signatures, complete));
+            }
+            return new SignatureIndex(files);
+        }
+    }
+}
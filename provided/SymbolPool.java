@@ -0,0 +1,143 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Per-compilation pool of identifier names.
+ * Every distinct identifier gets a small integer id and one canonical String,
+ * so repeated occurrences of a name share a single String instance and can be
+ * compared by id (or by reference) instead of character by character.
+ * The canonical names are plain Strings owned by the pool, not String.intern()ed:
+ * they are only the same instance within one compilation, and the JVM-wide
+ * string table is never touched, so the pool and its names go away with it.
+ */
+public class SymbolPool {
+    private String[] names = new String[16];
+    private int[] hashes = new int[16];
+    private int count;
+
+    // open addressing table of id + 1, 0 marks an empty slot
+    private int[] table = new int[32];
+
+    /**
+     * Interns an ASCII identifier straight from the source bytes.
+     * No String is created if the name has been seen before.
+     * @param src the source bytes
+     * @param start offset of the identifier
+     * @param len length of the identifier
+     * @return the id of the name
+     */
+    public int intern(ByteBuffer src, int start, int len) {
+        int h = 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + (src.get(start + i) & 0xFF);
+        }
+        int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                byte[] b = new byte[len];
+                src.get(start, b);
+                return insert(slot, new String(b, StandardCharsets.ISO_8859_1), h);
+            }
+            if (hashes[id] == h && sameBytes(names[id], src, start, len)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Interns a name given as a String
+     * @param name the identifier
+     * @return the id of the name
+     */
+    public int intern(String name) {
+        int h = name.hashCode();
+        int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                return insert(slot, name, h);
+            }
+            if (hashes[id] == h && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Finds the id of a name without adding it
+     * @param name the identifier
+     * @return the id, or -1 if the name is not in the pool
+     */
+    public int lookup(String name) {
+        int h = name.hashCode();
+        int mask = table.length - 1;
+        for (int slot = h & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == h && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * @param id an id returned by intern
+     * @return the canonical String for that id
+     */
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return the number of distinct names in the pool
+     */
+    public int size() {
+        return count;
+    }
+
+    private int insert(int slot, String name, int h) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            hashes = Arrays.copyOf(hashes, count * 2);
+        }
+        int id = count++;
+        names[id] = name;
+        hashes[id] = h;
+        table[slot] = id + 1;
+        if (count * 2 > table.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    private void rehash() {
+        int[] bigger = new int[table.length * 2];
+        int mask = bigger.length - 1;
+        for (int id = 0; id < count; id++) {
+            int slot = hashes[id] & mask;
+            while (bigger[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            bigger[slot] = id + 1;
+        }
+        table = bigger;
+    }
+
+    private static boolean sameBytes(String name, ByteBuffer src, int start, int len) {
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (name.charAt(i) != (src.get(start + i) & 0xFF)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
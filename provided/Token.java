@@ -6,10 +6,18 @@ package provided;
  */
 public class Token {
 
-    private final String token;
+    private final CharSequence lexeme;
+    private String token; // created from lexeme the first time someone asks for it
     private final String filename;
-    private final int lineNum;
+    private final int lineNum; // 0 when resolved from lines
+    private final int column;  // 0 when resolved from lines or unknown
+    private final LineIndex lines; // null when the line was given up front
+    private final int offset;      // byte offset in the source, -1 if unknown
     private final TokenType type;
+    private final Keyword keyword;
+    private final int symbolId;
+    private final NumberKind numberKind;
+    private final long value; // long value or double bits of a NUMBER token
 
     /**
      * Creates an instance of a token
@@ -17,12 +25,60 @@ public class Token {
      * @param filename the name of the file the token came from
      * @param lineNum the number of the line in the file that the token appears on
      * @param type the type of this token
+     * @throws IllegalArgumentException if a NUMBER token's text is not a number literal the tokenizer accepts
      */
     public Token(String token, String filename, int lineNum, TokenType type) {
-        this.token = token;
+        this(token, filename, lineNum, type, type == TokenType.ID_KEYWORD ? Keyword.classify(token) : null, -1);
+    }
+
+    /**
+     * Creates an instance of a token that was already classified by the tokenizer
+     * @param token the token text, e.g. a Lexeme over the source buffer
+     * @param filename the name of the file the token came from
+     * @param lineNum the number of the line in the file that the token appears on
+     * @param type the type of this token
+     * @param keyword the keyword this token spells, or null
+     * @param symbolId the id of the identifier in its SymbolPool, or -1
+     * @throws IllegalArgumentException if a NUMBER token's text is not a number literal the tokenizer accepts
+     */
+    public Token(CharSequence token, String filename, int lineNum, TokenType type, Keyword keyword, int symbolId) {
+        this(token, filename, lineNum, type, keyword, symbolId,
+                type == TokenType.NUMBER ? NumberKind.of(token) : null);
+    }
+
+    private Token(CharSequence token, String filename, int lineNum, TokenType type, Keyword keyword, int symbolId,
+                  NumberKind numberKind) {
+        this(token, filename, lineNum, 0, type, keyword, symbolId, numberKind,
+                numberKind == null ? 0 : NumberKind.decode(token, numberKind));
+    }
+
+    // used by TokenStream, which knows the position and has already decoded number literals
+    Token(CharSequence token, String filename, int lineNum, int column, TokenType type, Keyword keyword, int symbolId,
+          NumberKind numberKind, long value) {
+        this(token, filename, null, -1, lineNum, column, type, keyword, symbolId, numberKind, value);
+    }
+
+    // used by TokenBuffer; line and column are looked up in the file's LineIndex only when asked for,
+    // and every time, so they follow the index when its first line is renumbered
+    Token(CharSequence token, String filename, LineIndex lines, int offset, TokenType type, Keyword keyword,
+          int symbolId, NumberKind numberKind, long value) {
+        this(token, filename, lines, offset, 0, 0, type, keyword, symbolId, numberKind, value);
+    }
+
+    private Token(CharSequence token, String filename, LineIndex lines, int offset, int lineNum, int column,
+                  TokenType type, Keyword keyword, int symbolId, NumberKind numberKind, long value) {
+        this.lexeme = token;
+        this.token = token instanceof String ? (String) token : null;
         this.filename = filename;
+        this.lines = lines;
+        this.offset = offset;
         this.lineNum = lineNum;
+        this.column = column;
         this.type = type;
+        this.keyword = keyword;
+        this.symbolId = symbolId;
+        this.numberKind = numberKind;
+        this.value = value;
     }
 
     /**
@@ -30,9 +86,20 @@ public class Token {
      * @return the token string
      */
     public String getToken() {
+        if (token == null) {
+            token = lexeme.toString();
+        }
         return token;
     }
 
+    /**
+     * Getter for the token text without forcing a String to be created
+     * @return the token text, possibly a view over the source buffer
+     */
+    public CharSequence getLexeme() {
+        return lexeme;
+    }
+
     /**
      * Getter for the token file name
      * @return the token file name
@@ -44,7 +111,23 @@ public class Token {
      * @return the line number of the token
      */
     public int getLineNum() {
-        return lineNum;
+        return lines != null ? lines.lineOf(offset) : lineNum;
+    }
+
+    /**
+     * Getter for the token column
+     * @return the column of the first character of the token starting at 1, or 0 if unknown
+     */
+    public int getColumn() {
+        return lines != null ? lines.columnOf(offset) : column;
+    }
+
+    /**
+     * Getter for the position of the token in its source
+     * @return the byte offset of the token, or -1 if unknown
+     */
+    public int getOffset() {
+        return offset;
     }
 
     /**
@@ -54,4 +137,47 @@ public class Token {
     public TokenType getTokenType() {
         return type;
     }
+
+    /**
+     * Getter for the keyword of an ID_KEYWORD token
+     * @return the keyword, or null if the token is not a keyword
+     */
+    public Keyword getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * Getter for the interned id of an identifier token
+     * @return the id in the SymbolPool of the token's file, or -1 if not interned
+     */
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    /**
+     * Getter for the kind of a NUMBER token
+     * @return INTEGER or DOUBLE, or null if the token is not a number
+     */
+    public NumberKind getNumberKind() {
+        return numberKind;
+    }
+
+    /**
+     * Getter for the value of an Integer literal
+     * @return the decoded value, 0 if the token is not an Integer literal
+     */
+    public long getLongValue() {
+        return numberKind == NumberKind.INTEGER ? value : 0;
+    }
+
+    /**
+     * Getter for the value of a number literal as a double
+     * @return the decoded value, 0 if the token is not a number
+     */
+    public double getDoubleValue() {
+        if (numberKind == null) {
+            return 0;
+        }
+        return numberKind == NumberKind.DOUBLE ? Double.longBitsToDouble(value) : value;
+    }
 }
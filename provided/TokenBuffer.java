@@ -0,0 +1,397 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Compact storage for the tokens of one source file.
+ * Instead of one Token object per lexeme, the type, start offset, length and
+ * line of every token are kept in parallel primitive arrays that point into
+ * the shared source buffer. Token objects are only created when someone asks
+ * for one through get(i), so the buffer can also be used anywhere a
+ * List of Tokens is expected.
+ *
+ * Identifiers carry the keyword they spell (if any) and, for plain names,
+ * their id in the buffer's SymbolPool.
+ *
+ * Tokens do not store a line number. The buffer keeps a LineIndex of where
+ * each line starts and a token's line is looked up from its offset.
+ */
+public class TokenBuffer extends AbstractList<Token> implements RandomAccess {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final int INITIAL_CAPACITY = 64;
+
+    // punctuation and operators are one or two ASCII characters, so their text is shared instead of decoded
+    private static final String[] ONE_CHAR_TEXT = new String[128];
+    private static final String[] TWO_CHAR_TEXT = {"<>", "==", "!=", "<=", ">=", "::"};
+
+    static {
+        for (char c = 0; c < ONE_CHAR_TEXT.length; c++) {
+            ONE_CHAR_TEXT[c] = String.valueOf(c).intern();
+        }
+    }
+
+    private final ByteBuffer source;
+    private final String filename;
+    private byte[] types;
+    private int[] starts;
+    private int[] lengths;
+    private byte[] keywords; // keyword ordinal + 1, 0 when not a keyword
+    private int[] symbols;   // SymbolPool id, -1 when not an identifier
+    private long[] values;   // NUMBER tokens: the long value or the bits of the double value
+    private byte[] numberKinds; // NUMBER tokens: NumberKind ordinal + 1, 0 otherwise
+    private int size;
+    private final SymbolPool symbolPool;
+    private final LineIndex lineIndex;
+
+    /**
+     * Creates an empty buffer over a source file
+     * @param source the UTF-8 bytes of the file, token offsets index into this
+     * @param filename the name of the file, used when tokens are materialized
+     */
+    public TokenBuffer(ByteBuffer source, String filename) {
+        this(source, filename, INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates an empty buffer with room for a number of tokens
+     * @param source the UTF-8 bytes of the file, token offsets index into this
+     * @param filename the name of the file, used when tokens are materialized
+     * @param capacity how many tokens to make room for up front
+     */
+    public TokenBuffer(ByteBuffer source, String filename, int capacity) {
+        this(source, filename, capacity, new SymbolPool(), 0);
+    }
+
+    // buffers lexed from one TokenStream share a pool so identifier ids stay stable across windows,
+    // and a buffer for a slice of a file numbers its lines from the start of the slice
+    TokenBuffer(ByteBuffer source, String filename, int capacity, SymbolPool symbolPool, int firstLineStart) {
+        this.source = source;
+        this.symbolPool = symbolPool;
+        this.lineIndex = new LineIndex(source, firstLineStart);
+        this.filename = filename;
+        capacity = Math.max(capacity, 1);
+        this.types = new byte[capacity];
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.keywords = new byte[capacity];
+        this.symbols = new int[capacity];
+        this.values = new long[capacity];
+        this.numberKinds = new byte[capacity];
+    }
+
+    /**
+     * Appends a token
+     * @param type the type of the token
+     * @param start byte offset of the first character of the lexeme
+     * @param length length of the lexeme in bytes
+     */
+    public void add(TokenType type, int start, int length) {
+        add(type, start, length, null, -1);
+    }
+
+    /**
+     * Appends an identifier or keyword token
+     * @param type the type of the token
+     * @param start byte offset of the first character of the lexeme
+     * @param length length of the lexeme in bytes
+     * @param keyword the keyword the lexeme spells, or null
+     * @param symbolId the id of the lexeme in getSymbols(), or -1
+     */
+    public void add(TokenType type, int start, int length, Keyword keyword, int symbolId) {
+        if (size == types.length) {
+            grow(size * 2);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        keywords[size] = (byte) (keyword == null ? 0 : keyword.ordinal() + 1);
+        symbols[size] = symbolId;
+        values[size] = 0;
+        numberKinds[size] = 0;
+        size++;
+    }
+
+    /**
+     * Appends a NUMBER token whose value the tokenizer has already decoded
+     * @param start byte offset of the first character of the lexeme
+     * @param length length of the lexeme in bytes
+     * @param kind whether the literal is an Integer or a Double
+     * @param value the long value, or Double.doubleToRawLongBits of the double value
+     */
+    public void addNumber(int start, int length, NumberKind kind, long value) {
+        add(TokenType.NUMBER, start, length);
+        values[size - 1] = value;
+        numberKinds[size - 1] = (byte) (kind.ordinal() + 1);
+    }
+
+    /**
+     * Removes every token but keeps the arrays, so a buffer that only ever
+     * holds the token being lexed (see TokenScanner) is never reallocated
+     */
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends every token of another buffer over the same source, used to
+     * stitch together slices that were lexed separately. Identifier ids are
+     * re-interned into this buffer's pool and the other buffer's lines are
+     * added to this buffer's LineIndex.
+     * @param other the tokens of the text that directly follows this buffer's
+     */
+    public void append(TokenBuffer other) {
+        SymbolPool otherPool = other.symbolPool;
+        int[] remap = new int[otherPool.size()];
+        for (int id = 0; id < remap.length; id++) {
+            remap[id] = symbolPool.intern(otherPool.name(id));
+        }
+        int total = size + other.size;
+        if (total > types.length) {
+            grow(Math.max(total, size * 2));
+        }
+        System.arraycopy(other.types, 0, types, size, other.size);
+        System.arraycopy(other.starts, 0, starts, size, other.size);
+        System.arraycopy(other.lengths, 0, lengths, size, other.size);
+        System.arraycopy(other.keywords, 0, keywords, size, other.size);
+        System.arraycopy(other.values, 0, values, size, other.size);
+        System.arraycopy(other.numberKinds, 0, numberKinds, size, other.size);
+        lineIndex.append(other.lineIndex);
+        for (int i = 0; i < other.size; i++) {
+            int id = other.symbols[i];
+            symbols[size + i] = id < 0 ? -1 : remap[id];
+        }
+        size = total;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    public ByteBuffer getSource() {
+        return source;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return the pool identifier names of this file are interned in
+     */
+    public SymbolPool getSymbols() {
+        return symbolPool;
+    }
+
+    public TokenType getType(int i) {
+        return TYPES[types[checkIndex(i)]];
+    }
+
+    public int getStart(int i) {
+        return starts[checkIndex(i)];
+    }
+
+    public int getLength(int i) {
+        return lengths[checkIndex(i)];
+    }
+
+    /**
+     * @param i index of the token
+     * @return the line the token is on, found in the LineIndex
+     */
+    public int getLine(int i) {
+        return lineIndex.lineOf(starts[checkIndex(i)]);
+    }
+
+    /**
+     * @param i index of the token
+     * @return the column of the token's first character, starting at 1
+     */
+    public int getColumn(int i) {
+        return lineIndex.columnOf(starts[checkIndex(i)]);
+    }
+
+    /**
+     * @return where every line of the source starts
+     */
+    public LineIndex getLines() {
+        return lineIndex;
+    }
+
+    /**
+     * @param i index of the token
+     * @return the keyword the token spells, or null
+     */
+    public Keyword getKeyword(int i) {
+        int k = keywords[checkIndex(i)];
+        return k == 0 ? null : Keyword.fromOrdinal(k - 1);
+    }
+
+    /**
+     * @param i index of the token
+     * @return the SymbolPool id of an identifier token, or -1
+     */
+    public int getSymbolId(int i) {
+        return symbols[checkIndex(i)];
+    }
+
+    /**
+     * @param i index of the token
+     * @return INTEGER or DOUBLE for a NUMBER token, null otherwise
+     */
+    public NumberKind getNumberKind(int i) {
+        int k = numberKinds[checkIndex(i)];
+        return k == 0 ? null : NumberKind.fromOrdinal(k - 1);
+    }
+
+    /**
+     * @param i index of the token
+     * @return the value of an Integer literal, 0 for any other token
+     */
+    public long getLongValue(int i) {
+        return getNumberKind(i) == NumberKind.INTEGER ? values[i] : 0;
+    }
+
+    /**
+     * @param i index of the token
+     * @return the value of a number literal as a double, 0 for any other token
+     */
+    public double getDoubleValue(int i) {
+        NumberKind kind = getNumberKind(i);
+        if (kind == null) {
+            return 0;
+        }
+        return kind == NumberKind.DOUBLE ? Double.longBitsToDouble(values[i]) : values[i];
+    }
+
+    // the raw long slot of a NUMBER token, as taken by Token's package-private constructor
+    long getValueBits(int i) {
+        return values[checkIndex(i)];
+    }
+
+    /**
+     * Text of a token. Keywords, identifiers, punctuation and operators
+     * return shared canonical Strings, anything else is decoded into a new String
+     * @param i index of the token
+     * @return the token text
+     */
+    public String getText(int i) {
+        checkIndex(i);
+        if (keywords[i] != 0) {
+            return Keyword.fromOrdinal(keywords[i] - 1).getText();
+        }
+        if (symbols[i] >= 0) {
+            return symbolPool.name(symbols[i]);
+        }
+        if (types[i] != TokenType.STRING.ordinal() && types[i] != TokenType.NUMBER.ordinal()) {
+            String shared = sharedText(starts[i], lengths[i]);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        byte[] b = new byte[lengths[i]];
+        source.get(starts[i], b);
+        return new String(b, types[i] == TokenType.STRING.ordinal()
+                ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Text of a token without copying it. Keywords, identifiers, punctuation
+     * and operators return their shared String, numbers and string literals
+     * a Lexeme view over the source buffer
+     * @param i index of the token
+     * @return the token text
+     */
+    public CharSequence getLexeme(int i) {
+        checkIndex(i);
+        if (types[i] == TokenType.STRING.ordinal() || types[i] == TokenType.NUMBER.ordinal()) {
+            return new Lexeme(source, starts[i], lengths[i]);
+        }
+        return getText(i);
+    }
+
+    /**
+     * Compares the lexeme of a token with an ASCII string without decoding it
+     * @param i index of the token
+     * @param text the text to compare with
+     * @return true if the lexeme is exactly text
+     */
+    public boolean textEquals(int i, String text) {
+        checkIndex(i);
+        int len = lengths[i];
+        if (len != text.length()) {
+            return false;
+        }
+        int start = starts[i];
+        for (int k = 0; k < len; k++) {
+            if ((source.get(start + k) & 0xFF) != text.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Materializes a token object
+     * @param i index of the token
+     * @return a new Token equal to what the list based tokenizer produced,
+     *         its text is only decoded if getToken() is called
+     */
+    @Override
+    public Token get(int i) {
+        return new Token(getLexeme(i), filename, lineIndex, getStart(i), getType(i), getKeyword(i), getSymbolId(i),
+                getNumberKind(i), getValueBits(i));
+    }
+
+    /**
+     * Materializes every token, for callers that need a mutable list
+     * @return a new ArrayList holding one Token per entry
+     */
+    public ArrayList<Token> toList() {
+        ArrayList<Token> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(get(i));
+        }
+        return list;
+    }
+
+    // the preallocated String for a one or two character lexeme, or null
+    private String sharedText(int start, int length) {
+        int first = source.get(start) & 0xFF;
+        if (length == 1) {
+            return first < ONE_CHAR_TEXT.length ? ONE_CHAR_TEXT[first] : null;
+        }
+        if (length == 2) {
+            int second = source.get(start + 1) & 0xFF;
+            for (String text : TWO_CHAR_TEXT) {
+                if (text.charAt(0) == first && text.charAt(1) == second) {
+                    return text;
+                }
+            }
+        }
+        return null;
+    }
+
+    private void grow(int capacity) {
+        types = Arrays.copyOf(types, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        keywords = Arrays.copyOf(keywords, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+        values = Arrays.copyOf(values, capacity);
+        numberKinds = Arrays.copyOf(numberKinds, capacity);
+    }
+
+    private int checkIndex(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Token index " + i + " out of bounds for size " + size);
+        }
+        return i;
+    }
+}
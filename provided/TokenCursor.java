@@ -0,0 +1,338 @@
+package provided;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Read-only cursor over a sequence of Jott tokens.
+ * The parser used to consume tokens with ArrayList.remove(0), which shifts
+ * the whole list on every call. The cursor just moves an index instead, so
+ * peek and advance are O(1) and the backing list is never modified.
+ *
+ * When the cursor walks a TokenBuffer, peekType/peekIs/advance read the
+ * primitive arrays directly and a Token object is only created by peek()
+ * or next(), i.e. when a parse node actually wants to keep the token.
+ *
+ * A cursor can also pull tokens from an Iterator such as a TokenStream. It
+ * then only holds the few tokens the parser has looked ahead at, so it cannot
+ * move backwards and does not know how many tokens remain.
+ *
+ * A cursor also carries the parse options of the parse that reads it, so
+ * two parses in one JVM can use different ones. Each option starts at the
+ * value of its -Djott system property, false if it is not set, and is
+ * handed on to every cursor made by range().
+ */
+public class TokenCursor {
+    private final List<Token> tokens;
+    private final TokenBuffer buffer;
+    private final int end; // index just past the last token, -1 for the end of the list
+    private int pos;
+
+    // the last token materialized by peek(), so repeated peeks share one object
+    private Token cached;
+    private int cachedPos = -1;
+
+    // streaming mode: ring of tokens pulled from the iterator but not yet consumed
+    private final Iterator<Token> stream;
+    private Token[] ahead;
+    private int aheadHead;
+    private int aheadCount;
+
+    // parse options, see setIterativeBodies and setTableDispatch
+    private static final boolean ITERATIVE_BODIES = Boolean.getBoolean("jott.iterativeParsing");
+    private static final boolean TABLE_DISPATCH = Boolean.getBoolean("jott.tableParsing");
+    private boolean iterativeBodies = ITERATIVE_BODIES;
+    private boolean tableDispatch = TABLE_DISPATCH;
+
+    /**
+     * Creates a cursor positioned at the first token
+     * @param tokens the tokens to walk over, not copied or modified
+     */
+    public TokenCursor(List<Token> tokens) {
+        this.tokens = tokens;
+        this.buffer = tokens instanceof TokenBuffer ? (TokenBuffer) tokens : null;
+        this.stream = null;
+        this.end = -1;
+        this.pos = 0;
+    }
+
+    /**
+     * Creates a cursor over part of a list, which ends at to as if the
+     * tokens after it did not exist
+     * @param tokens the tokens to walk over, not copied or modified
+     * @param from index of the first token
+     * @param to index just past the last token
+     */
+    public TokenCursor(List<Token> tokens, int from, int to) {
+        this.tokens = tokens;
+        this.buffer = tokens instanceof TokenBuffer ? (TokenBuffer) tokens : null;
+        this.stream = null;
+        this.end = to;
+        this.pos = from;
+    }
+
+    /**
+     * Creates a cursor that pulls tokens on demand
+     * @param stream where the tokens come from, e.g. a TokenStream
+     */
+    public TokenCursor(Iterator<Token> stream) {
+        this.tokens = null;
+        this.buffer = null;
+        this.end = -1;
+        this.stream = stream;
+        this.ahead = new Token[4];
+        this.pos = 0;
+    }
+
+    /**
+     * @return true if every token has been consumed
+     */
+    public boolean isEmpty() {
+        if (stream != null) {
+            return lookahead(0) == null;
+        }
+        return pos >= size();
+    }
+
+    /**
+     * @return true if tokens are pulled from an Iterator, so the cursor can
+     *         neither rewind nor hand out ranges
+     */
+    public boolean isStreaming() {
+        return stream != null;
+    }
+
+    /**
+     * @return the number of tokens not yet consumed
+     * @throws UnsupportedOperationException for a streaming cursor
+     */
+    public int remaining() {
+        if (stream != null) {
+            throw new UnsupportedOperationException("a token stream does not know its length");
+        }
+        return size() - pos;
+    }
+
+    /**
+     * Looks at the current token without consuming it
+     * @return the current token, or null at EOF
+     */
+    public Token peek() {
+        return peek(0);
+    }
+
+    /**
+     * Looks ahead of the current token without consuming anything
+     * @param offset how far past the current token to look, 0 is the current token
+     * @return the token at that offset, or null if it is past EOF
+     */
+    public Token peek(int offset) {
+        if (stream != null) {
+            return lookahead(offset);
+        }
+        int i = pos + offset;
+        if (i >= size()) {
+            return null;
+        }
+        if (buffer == null) {
+            return tokens.get(i);
+        }
+        if (cachedPos != i) {
+            cached = buffer.get(i);
+            cachedPos = i;
+        }
+        return cached;
+    }
+
+    /**
+     * Type of the current token without materializing it
+     * @return the token type, or null at EOF
+     */
+    public TokenType peekType() {
+        return peekType(0);
+    }
+
+    /**
+     * Type of a lookahead token without materializing it
+     * @param offset how far past the current token to look
+     * @return the token type, or null if it is past EOF
+     */
+    public TokenType peekType(int offset) {
+        if (stream != null) {
+            Token t = lookahead(offset);
+            return t == null ? null : t.getTokenType();
+        }
+        int i = pos + offset;
+        if (i >= size()) {
+            return null;
+        }
+        return buffer != null ? buffer.getType(i) : tokens.get(i).getTokenType();
+    }
+
+    /**
+     * Keyword of the current token without materializing it
+     * @return the keyword, or null if the token is not a keyword or at EOF
+     */
+    public Keyword peekKeyword() {
+        return peekKeyword(0);
+    }
+
+    /**
+     * Keyword of a lookahead token without materializing it
+     * @param offset how far past the current token to look
+     * @return the keyword, or null if the token is not a keyword or past EOF
+     */
+    public Keyword peekKeyword(int offset) {
+        if (stream != null) {
+            Token t = lookahead(offset);
+            return t == null ? null : t.getKeyword();
+        }
+        int i = pos + offset;
+        if (i >= size()) {
+            return null;
+        }
+        return buffer != null ? buffer.getKeyword(i) : tokens.get(i).getKeyword();
+    }
+
+    /**
+     * Checks the text of the current token without materializing it
+     * @param text the lexeme to compare with
+     * @return true if the current token is exactly text, false otherwise or at EOF
+     */
+    public boolean peekIs(String text) {
+        return peekIs(0, text);
+    }
+
+    /**
+     * Checks the text of a lookahead token without materializing it
+     * @param offset how far past the current token to look
+     * @param text the lexeme to compare with
+     * @return true if that token is exactly text, false otherwise or past EOF
+     */
+    public boolean peekIs(int offset, String text) {
+        if (stream != null) {
+            Token t = lookahead(offset);
+            return t != null && t.getToken().equals(text);
+        }
+        int i = pos + offset;
+        if (i >= size()) {
+            return false;
+        }
+        return buffer != null ? buffer.textEquals(i, text) : tokens.get(i).getToken().equals(text);
+    }
+
+    /**
+     * Consumes the current token and returns it
+     * @return the token that was consumed
+     * @throws IndexOutOfBoundsException if the cursor is already at EOF
+     */
+    public Token next() {
+        Token t = peek();
+        advance();
+        return t;
+    }
+
+    /**
+     * Consumes the current token without materializing it
+     * @throws IndexOutOfBoundsException if the cursor is already at EOF
+     */
+    public void advance() {
+        if (isEmpty()) {
+            throw new IndexOutOfBoundsException("advance past end of token stream");
+        }
+        if (stream != null) {
+            ahead[aheadHead] = null;
+            aheadHead = (aheadHead + 1) & (ahead.length - 1);
+            aheadCount--;
+        }
+        pos++;
+    }
+
+    /**
+     * @return index of the current token in the backing list
+     */
+    public int position() {
+        return pos;
+    }
+
+    /**
+     * Moves the cursor back (or forward) to a position returned by position()
+     * @param position the index to move to
+     * @throws UnsupportedOperationException if a streaming cursor is moved
+     */
+    public void reset(int position) {
+        if (stream != null && position != pos) {
+            throw new UnsupportedOperationException("a token stream cannot be rewound");
+        }
+        this.pos = position;
+    }
+
+    /**
+     * Creates an independent cursor over part of the same tokens, with the
+     * same parse options
+     * @param from index of the first token, as returned by position()
+     * @param to index just past the last token
+     * @return a cursor positioned at from that ends at to
+     * @throws UnsupportedOperationException for a streaming cursor
+     */
+    public TokenCursor range(int from, int to) {
+        if (stream != null) {
+            throw new UnsupportedOperationException("a token stream cannot be split into ranges");
+        }
+        TokenCursor range = new TokenCursor(tokens, from, to);
+        range.iterativeBodies = iterativeBodies;
+        range.tableDispatch = tableDispatch;
+        return range;
+    }
+
+    /**
+     * Chooses how nested bodies read from this cursor are parsed: with an
+     * explicit stack (see parser.BodyParser), for programs nested deeper than
+     * the thread stack allows, or by the recursive parser. Both build the
+     * same tree. The default is -Djott.iterativeParsing.
+     * @param enabled true for the explicit stack
+     */
+    public void setIterativeBodies(boolean enabled) {
+        this.iterativeBodies = enabled;
+    }
+
+    public boolean isIterativeBodies() {
+        return iterativeBodies;
+    }
+
+    /**
+     * Chooses how the parser reading this cursor picks the production of a
+     * statement, expression or operand: by lookup in the predictive table
+     * (see parser.PredictiveParser) or by the node classes' hand-written
+     * tests. Both build the same tree. The default is -Djott.tableParsing.
+     * @param enabled true for the table
+     */
+    public void setTableDispatch(boolean enabled) {
+        this.tableDispatch = enabled;
+    }
+
+    public boolean isTableDispatch() {
+        return tableDispatch;
+    }
+
+    private int size() {
+        return end >= 0 ? end : tokens.size();
+    }
+
+    // pulls tokens from the stream until the one at offset is buffered, null if the stream ends first
+    private Token lookahead(int offset) {
+        while (aheadCount <= offset && stream.hasNext()) {
+            if (aheadCount == ahead.length) {
+                Token[] bigger = new Token[ahead.length * 2];
+                for (int k = 0; k < aheadCount; k++) {
+                    bigger[k] = ahead[(aheadHead + k) & (ahead.length - 1)];
+                }
+                ahead = bigger;
+                aheadHead = 0;
+            }
+            ahead[(aheadHead + aheadCount) & (ahead.length - 1)] = stream.next();
+            aheadCount++;
+        }
+        return offset < aheadCount ? ahead[(aheadHead + offset) & (ahead.length - 1)] : null;
+    }
+}
@@ -0,0 +1,109 @@
+package provided;
+
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
+
+/**
+ * Lexer that produces one token each time the parser asks for the next one.
+ * Unlike TokenStream, which lexes a whole window of source ahead, nothing is
+ * lexed before it is needed: with a TokenCursor on top, only the one or two
+ * tokens of lookahead the grammar uses exist at any time, and tokens the
+ * parse nodes do not keep are garbage right away. The source is read once,
+ * in place.
+ *
+ * The lexing itself is JottTokenizer's, one step at a time, so the tokens and
+ * syntax errors are the same as JottTokenizer.tokenize gives. After an error
+ * the scanner ends and hasError() returns true.
+ */
+public class TokenScanner implements TokenSource {
+    private final ByteBuffer input;
+    private final String filename;
+    private final int end;
+    private final JottTokenizer.Chunk scratch; // holds only the token being lexed
+    private int pos;
+    private int line = 1;
+
+    // the column of the character at columnPos, carried forward so no byte is counted twice
+    private int columnPos;
+    private int column = 1;
+
+    private Token next;
+    private boolean done;
+    private boolean error;
+
+    /**
+     * Creates a scanner over the UTF-8 bytes between the buffer's position and limit
+     * @param source the Jott source, read in place and never modified
+     * @param filename the name reported in tokens and error messages
+     */
+    public TokenScanner(ByteBuffer source, String filename) {
+        this.input = source.slice();
+        this.filename = filename;
+        this.end = JottTokenizer.sourceEnd(input);
+        this.scratch = new JottTokenizer.Chunk(new TokenBuffer(input, filename, 1));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = scan();
+        }
+        return next != null;
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Token t = next;
+        next = null;
+        return t;
+    }
+
+    /**
+     * @return true if lexing stopped on a syntax error
+     */
+    @Override
+    public boolean hasError() {
+        return error;
+    }
+
+    // lexes up to the next token, null at the end of the source or on a syntax error
+    private Token scan() {
+        TokenBuffer tokens = scratch.tokens;
+        while (true) {
+            tokens.clear();
+            scratch.lineBreaks = 0;
+            int i = JottTokenizer.lexStep(input, pos, end, scratch);
+            if (i < 0) {
+                JottTokenizer.syntaxError(scratch.error, filename, line);
+                error = true;
+                done = true;
+                return null;
+            }
+            pos = i;
+            if (scratch.lineBreaks > 0) {
+                line++;
+                columnPos = i;
+                column = 1;
+            } else if (tokens.size() > 0) {
+                return token(tokens);
+            } else if (pos >= end) {
+                done = true;
+                return null;
+            }
+        }
+    }
+
+    private Token token(TokenBuffer tokens) {
+        int start = tokens.getStart(0);
+        for (; columnPos < start; columnPos++) {
+            if ((input.get(columnPos) & 0xC0) != 0x80) { // skip UTF-8 continuation bytes
+                column++;
+            }
+        }
+        return new Token(tokens.getLexeme(0), filename, line, column, tokens.getType(0), tokens.getKeyword(0),
+                tokens.getSymbolId(0), tokens.getNumberKind(0), tokens.getValueBits(0));
+    }
+}
@@ -0,0 +1,17 @@
+package provided;
+
+import java.util.Iterator;
+
+/**
+ * Tokens that are lexed while the parser pulls them, rather than all up front.
+ * Lexing errors are printed by the source itself, after which it simply ends,
+ * so whoever reads it has to ask hasError() to tell a lexing error apart from
+ * the end of the file.
+ */
+public interface TokenSource extends Iterator<Token> {
+
+    /**
+     * @return true if lexing stopped on an error
+     */
+    boolean hasError();
+}
@@ -0,0 +1,145 @@
+package provided;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.NoSuchElementException;
+
+/**
+ * Pull-based tokenizer over a byte channel.
+ * The source is read into a fixed-size window and only the complete lines in
+ * the window are lexed, so memory stays bounded by the window size instead of
+ * the file size. Tokens never span lines, which is what makes it safe to stop
+ * at a line break and carry the partial last line over to the next read.
+ *
+ * A line longer than the window grows the window to fit it. Syntax errors are
+ * printed exactly like JottTokenizer.tokenize prints them, after which the
+ * stream ends and hasError() returns true.
+ */
+public class TokenStream implements TokenSource, Closeable {
+    public static final int DEFAULT_WINDOW = 64 * 1024;
+
+    private final ReadableByteChannel channel;
+    private final String filename;
+    private final SymbolPool symbolPool = new SymbolPool();
+    private final ArrayDeque<Token> pending = new ArrayDeque<>();
+    private ByteBuffer window;
+    private int lineOffset;
+    private boolean eof;
+    private boolean done;
+    private boolean error;
+
+    /**
+     * Creates a stream with the default window size
+     * @param channel where the Jott source is read from, closed by close()
+     * @param filename the name reported in tokens and error messages
+     */
+    public TokenStream(ReadableByteChannel channel, String filename) {
+        this(channel, filename, DEFAULT_WINDOW);
+    }
+
+    /**
+     * Creates a stream
+     * @param channel where the Jott source is read from, closed by close()
+     * @param filename the name reported in tokens and error messages
+     * @param windowSize how many bytes of source to hold at once
+     */
+    public TokenStream(ReadableByteChannel channel, String filename, int windowSize) {
+        this.channel = channel;
+        this.filename = filename;
+        this.window = ByteBuffer.allocate(Math.max(windowSize, 16));
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (pending.isEmpty() && !done) {
+            refill();
+        }
+        return !pending.isEmpty();
+    }
+
+    @Override
+    public Token next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return pending.poll();
+    }
+
+    /**
+     * @return true if lexing stopped on a syntax or read error
+     */
+    @Override
+    public boolean hasError() {
+        return error;
+    }
+
+    /**
+     * @return the pool identifier names of this stream are interned in
+     */
+    public SymbolPool getSymbols() {
+        return symbolPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // reads more source and lexes every complete line in the window
+    private void refill() {
+        try {
+            while (!eof && window.hasRemaining()) {
+                if (channel.read(window) < 0) {
+                    eof = true;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading file: " + e.getMessage());
+            error = true;
+            done = true;
+            return;
+        }
+        window.flip();
+        int cut = eof ? window.limit() : lastLineEnd(window);
+        if (cut < 0) { // a single line fills the window, make room for the rest of it
+            ByteBuffer bigger = ByteBuffer.allocate(window.capacity() * 2);
+            bigger.put(window);
+            window = bigger;
+            return;
+        }
+
+        JottTokenizer.Chunk chunk = new JottTokenizer.Chunk(new TokenBuffer(window, filename, cut / 8, symbolPool, 0));
+        if (!JottTokenizer.lex(window, 0, cut, chunk)) {
+            JottTokenizer.syntaxError(chunk.error, filename, chunk.errorLine + lineOffset);
+            error = true;
+            done = true;
+            return;
+        }
+        TokenBuffer tokens = chunk.tokens;
+        for (int i = 0; i < tokens.size(); i++) {
+            // the window is reused, so positions are resolved now rather than kept as offsets
+            pending.add(new Token(tokens.getText(i), filename, tokens.getLine(i) + lineOffset, tokens.getColumn(i),
+                    tokens.getType(i), tokens.getKeyword(i), tokens.getSymbolId(i), tokens.getNumberKind(i),
+                    tokens.getValueBits(i)));
+        }
+        lineOffset += chunk.lineBreaks;
+        window.position(cut);
+        window.compact();
+        done = eof && window.position() == 0;
+    }
+
+    // index just past the last line break in the buffer, or -1 if there is none.
+    // A '\r' in the last byte does not count, the '\n' of a "\r\n" may still be unread.
+    private static int lastLineEnd(ByteBuffer buf) {
+        for (int i = buf.limit() - 1; i >= 0; i--) {
+            byte b = buf.get(i);
+            if (b == '\n' || (b == '\r' && i + 1 < buf.limit())) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+}
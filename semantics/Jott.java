@@ -1,29 +1,136 @@
 package semantics;
 
+import provided.JottCache;
 import provided.JottTokenizer;
-import provided.JottTree;
-import provided.JottParser;
-import provided.Token;
+import provided.TokenBuffer;
+import provided.TokenCursor;
 import parser.ParseException;
+import parser.ProgramNode;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class Jott {
     public static void main(String[] args){
+        JottResult result = runFile(args[0]);
+        if (result.getMessage() != null) {
+            System.err.println(result.getMessage());
+        }
+        System.exit(result.isSuccess() ? 0 : 1);
+    }
+
+    /**
+     * Tokenizes, parses and validates a Jott file
+     * @param filename the path of the file
+     * @return the outcome, never null
+     */
+    public static JottResult runFile(String filename) {
+        byte[] content;
+        try {
+            content = Files.readAllBytes(Paths.get(filename));
+        } catch (IOException e) {
+            return readError(filename, e);
+        }
+        return run(content, filename);
+    }
+
+    /**
+     * Like runFile, but reuses the tree saved in the file's .jottc cache when
+     * the source has not changed since, and saves it after a successful run
+     * when it has. A cache that cannot be read, decoded or written is ignored.
+     * @param filename the path of the file
+     * @return the outcome, never null
+     */
+    public static JottResult runFileCached(String filename) {
+        Path source = Paths.get(filename);
+        byte[] content;
         try {
-            ArrayList<Token> tokens = JottTokenizer.tokenize(args[0]);
-            JottTree root = JottParser.parse(tokens);
-            root.validateTree();
-            System.exit(0);
+            content = Files.readAllBytes(source);
+        } catch (IOException e) {
+            return readError(filename, e);
+        }
+        try {
+            JottCache cache = JottCache.load(source, content);
+            if (cache != null) {
+                return JottResult.success(filename, cache.toParseTree());
+            }
+        } catch (IOException | RuntimeException e) {
+            // a cache file that cannot be read or decoded is a miss, run from source below
+        }
+        JottResult result = run(content, filename);
+        if (result.isSuccess()) {
+            try {
+                JottCache.write(source, content, (ProgramNode) result.getTree());
+            } catch (IOException e) {
+                // a read-only directory only costs the next run its head start
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Tokenizes, parses and validates a Jott program held in memory
+     * @param source the program text
+     * @param sourceName the name diagnostics report as the file
+     * @return the outcome, never null
+     */
+    public static JottResult run(CharSequence source, String sourceName) {
+        return run(StandardCharsets.UTF_8.encode(CharBuffer.wrap(source)), sourceName);
+    }
+
+    public static JottResult run(byte[] source, String sourceName) {
+        return run(ByteBuffer.wrap(source), sourceName);
+    }
+
+    public static JottResult run(Reader source, String sourceName) {
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[8192];
+        try {
+            for (int n; (n = source.read(chunk)) >= 0; ) {
+                sb.append(chunk, 0, n);
+            }
+        } catch (IOException e) {
+            return readError(sourceName, e);
+        }
+        return run(sb, sourceName);
+    }
+
+    /**
+     * Runs the pipeline without printing anything: the first error of any
+     * stage ends up in the result, as its diagnostic
+     */
+    public static JottResult run(ByteBuffer source, String sourceName) {
+        TokenBuffer tokens;
+        try {
+            tokens = JottTokenizer.tokenizeOrThrow(source, sourceName);
+        } catch (ParseException pe) {
+            return JottResult.failureWith(sourceName, null, JottResult.Stage.TOKENIZE, pe.getDiagnostic());
+        }
+        ProgramNode root = null;
+        try {
+            root = ProgramNode.parseProgramNode(new TokenCursor(tokens));
+            if (!root.validateOrThrow(new SymbolTable())) {
+                return JottResult.failure(sourceName, root, JottResult.Stage.VALIDATE, null);
+            }
+            return JottResult.success(sourceName, root);
         } catch (SemanticException se) {
-            System.err.println(se.getMessage());
-            System.exit(1);
+            return JottResult.failureWith(sourceName, root, JottResult.Stage.VALIDATE, se.getDiagnostic());
         } catch (ParseException pe) {
-            System.err.println(pe.getMessage());
-            System.exit(1);
+            return JottResult.failureWith(sourceName, root, JottResult.Stage.PARSE, pe.getDiagnostic());
         } catch (Exception e) {
-            System.err.println("Unexpected error: " + e.getMessage());
-            System.exit(1);
+            return JottResult.failure(sourceName, root, root == null ? JottResult.Stage.PARSE : JottResult.Stage.VALIDATE,
+                    "Unexpected error: " + e.getMessage());
         }
     }
+
+    // the same message the tokenizer prints when it cannot read a file
+    private static JottResult readError(String sourceName, IOException e) {
+        return JottResult.failure(sourceName, null, JottResult.Stage.TOKENIZE, "Error reading file: " + e.getMessage());
+    }
 }
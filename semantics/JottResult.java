@@ -0,0 +1,94 @@
+package semantics;
+
+import provided.Diagnostic;
+import provided.JottTree;
+
+/**
+ * Outcome of running a Jott program through tokenize, parse and validate.
+ * Returned by the Jott library entry points instead of an exit code, so a
+ * caller can check many programs in one JVM.
+ */
+public class JottResult {
+
+    /**
+     * The step of the pipeline a program failed in
+     */
+    public enum Stage {
+        TOKENIZE,
+        PARSE,
+        VALIDATE
+    }
+
+    private final String sourceName;
+    private final JottTree tree;
+    private final Stage failedStage;
+    private final String message;
+    private final Diagnostic diagnostic;
+
+    private JottResult(String sourceName, JottTree tree, Stage failedStage, String message, Diagnostic diagnostic) {
+        this.sourceName = sourceName;
+        this.tree = tree;
+        this.failedStage = failedStage;
+        this.message = message;
+        this.diagnostic = diagnostic;
+    }
+
+    static JottResult success(String sourceName, JottTree tree) {
+        return new JottResult(sourceName, tree, null, null, null);
+    }
+
+    static JottResult failure(String sourceName, JottTree tree, Stage stage, String message) {
+        return new JottResult(sourceName, tree, stage, message, null);
+    }
+
+    static JottResult failureWith(String sourceName, JottTree tree, Stage stage, Diagnostic diagnostic) {
+        return new JottResult(sourceName, tree, stage, null, diagnostic);
+    }
+
+    /**
+     * @return true if the program tokenized, parsed and validated
+     */
+    public boolean isSuccess() {
+        return failedStage == null;
+    }
+
+    /**
+     * @return the name the source was given, used in every diagnostic
+     */
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    /**
+     * @return the parse tree, or null if the program did not parse
+     */
+    public JottTree getTree() {
+        return tree;
+    }
+
+    /**
+     * @return the stage that failed, or null on success
+     */
+    public Stage getFailedStage() {
+        return failedStage;
+    }
+
+    /**
+     * The text of the error that stopped the pipeline, as the tokenizer, the
+     * parser or the validator would have printed it. Nothing is printed by the
+     * Jott entry points themselves; Jott.main prints this.
+     * @return the message, or null on success
+     */
+    public String getMessage() {
+        return diagnostic != null ? diagnostic.render() : message;
+    }
+
+    /**
+     * The lexical, syntax or semantic error that stopped the pipeline, with
+     * its code and position
+     * @return the diagnostic, or null on success or when the file could not be read
+     */
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+}
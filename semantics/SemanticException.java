@@ -1,23 +1,34 @@
 package semantics;
 
+import provided.Diagnostic;
 import provided.Token;
 
+/**
+ * A semantic error. Like ParseException it only carries its Diagnostic,
+ * renders the message when getMessage is called and captures no stack trace.
+ */
 public class SemanticException extends RuntimeException {
+    private final Diagnostic diagnostic;
 
     public SemanticException(String message, Token token) {
         // For any semantic error
-        super(buildMessage(message, token));
+        this(new Diagnostic(Diagnostic.Code.SEMANTIC, token, message));
     }
 
-    private static String buildMessage(String message, Token token) {
-        // builds Error message
-        if (token == null) { // When reaching EOF unexpectedly, empty token list
-            return "Semantic Error\n" +
-                    message;
-        } else {
-            return "Semantic Error\n" +
-               message + "\n" +
-               token.getFilename() + ":" + token.getLineNum();
-        }
+    public SemanticException(Diagnostic diagnostic) {
+        super(null, null, false, false);
+        this.diagnostic = diagnostic;
     }
-}
\ No newline at end of file
+
+    public Diagnostic getDiagnostic() {
+        return diagnostic;
+    }
+
+    @Override
+    public String getMessage() {
+        // Semantic Error
+        // <message>
+        // <filename>:<line>
+        return diagnostic.render();
+    }
+}
@@ -5,6 +5,12 @@ import java.util.*;
 /**
  * SymbolTable manages variable and function definitions with their types.
  * Supports scoping for nested scopes (e.g., function bodies).
+ *
+ * One table belongs to one validation: ProgramNode.validateTree makes a new
+ * one and passes it down the tree to every node that declares or looks up a
+ * name. A table is not synchronized, and does not need to be, since it is
+ * only used by the thread validating its program; programs validated on
+ * different threads each have their own.
  */
 public class SymbolTable {
 
@@ -58,48 +64,30 @@ public class SymbolTable {
         }
     }
 
-    // Stack of scopes, where each scope is a map of variable name -> VariableInfo
-    private final Stack<Map<String, VariableInfo>> variableScopes;
+    // Scopes, innermost first, where each scope is a map of variable name -> VariableInfo
+    private final ArrayDeque<Map<String, VariableInfo>> variableScopes;
 
     // Global function table (functions are not scoped)
     private final Map<String, FunctionInfo> functions;
 
-    public static final SymbolTable globalSymbolTable = new SymbolTable();
-
     public SymbolTable() {
-        this.variableScopes = new Stack<>();
+        this.variableScopes = new ArrayDeque<>();
         this.functions = new HashMap<>();
-        // Start with a global scope — but do it on `this`, not via the static wrapper.
+        // Start with a global scope
         this.variableScopes.push(new HashMap<>());
     }
 
     /** Enter a new scope (e.g., when entering a function body). */
-    public static void enterScope() {
-        if (globalSymbolTable == null) {
-            // defensive: should never happen after the constructor fix, but… belt &
-            // suspenders.
-            return;
-        }
-        globalSymbolTable.variableScopes.push(new HashMap<>());
+    public void enterScope() {
+        variableScopes.push(new HashMap<>());
     }
 
     /** Exit the current scope (e.g., when leaving a function body). */
-    public static void exitScope() {
-        if (globalSymbolTable == null)
-            return;
-        if (globalSymbolTable.variableScopes.size() <= 1) {
+    public void exitScope() {
+        if (variableScopes.size() <= 1) {
             throw new IllegalStateException("Cannot exit the global scope");
         }
-        globalSymbolTable.variableScopes.pop();
-    }
-
-    public static void reset() {
-        if (globalSymbolTable == null)
-            return;
-        globalSymbolTable.functions.clear();
-        globalSymbolTable.variableScopes.clear();
-        // re-create the global scope
-        globalSymbolTable.variableScopes.push(new HashMap<>());
+        variableScopes.pop();
     }
 
     /**
@@ -110,8 +98,8 @@ public class SymbolTable {
      * @return true if added successfully, false if variable already exists in
      *         current scope
      */
-    public static boolean addVariable(String name, String type) {
-        Map<String, VariableInfo> currentScope = globalSymbolTable.variableScopes.peek();
+    public boolean addVariable(String name, String type) {
+        Map<String, VariableInfo> currentScope = variableScopes.peek();
         if (currentScope.containsKey(name)) {
             return false; // Variable already declared in this scope
         }
@@ -126,14 +114,8 @@ public class SymbolTable {
      * @param name The variable name
      * @return true if the variable exists, false otherwise
      */
-    public static boolean variableExists(String name) {
-        // Search from current scope up to global scope
-        for (int i = globalSymbolTable.variableScopes.size() - 1; i >= 0; i--) {
-            if (globalSymbolTable.variableScopes.get(i).containsKey(name)) {
-                return true;
-            }
-        }
-        return false;
+    public boolean variableExists(String name) {
+        return getVariable(name) != null;
     }
 
     /**
@@ -142,10 +124,10 @@ public class SymbolTable {
      * @param name The variable name
      * @return VariableInfo if found, null otherwise
      */
-    public static VariableInfo getVariable(String name) {
+    public VariableInfo getVariable(String name) {
         // Search from current scope up to global scope
-        for (int i = globalSymbolTable.variableScopes.size() - 1; i >= 0; i--) {
-            VariableInfo info = globalSymbolTable.variableScopes.get(i).get(name);
+        for (Map<String, VariableInfo> scope : variableScopes) {
+            VariableInfo info = scope.get(name);
             if (info != null) {
                 return info;
             }
@@ -159,7 +141,7 @@ public class SymbolTable {
      * @param name The variable name
      * @return The type string if found, null otherwise
      */
-    public static String getVariableType(String name) {
+    public String getVariableType(String name) {
         VariableInfo info = getVariable(name);
         return info != null ? info.getType() : null;
     }
@@ -170,7 +152,7 @@ public class SymbolTable {
      * @param name The variable name
      * @return true if variable was found and marked, false otherwise
      */
-    public static boolean initializeVariable(String name) {
+    public boolean initializeVariable(String name) {
         VariableInfo info = getVariable(name);
         if (info != null) {
             info.setInitialized(true);
@@ -188,11 +170,11 @@ public class SymbolTable {
      * @param paramTypes List of parameter types in order
      * @return true if added successfully, false if function already exists
      */
-    public static boolean addFunction(String name, String returnType, List<String> paramTypes) {
-        if (globalSymbolTable.functions.containsKey(name)) {
+    public boolean addFunction(String name, String returnType, List<String> paramTypes) {
+        if (functions.containsKey(name)) {
             return false; // Function already defined
         }
-        globalSymbolTable.functions.put(name, new FunctionInfo(returnType, paramTypes));
+        functions.put(name, new FunctionInfo(returnType, paramTypes));
         return true;
     }
 
@@ -202,8 +184,8 @@ public class SymbolTable {
      * @param name The function name
      * @return true if the function exists, false otherwise
      */
-    public static boolean functionExists(String name) {
-        return globalSymbolTable.functions.containsKey(name);
+    public boolean functionExists(String name) {
+        return functions.containsKey(name);
     }
 
     /**
@@ -212,8 +194,8 @@ public class SymbolTable {
      * @param name The function name
      * @return FunctionInfo if found, null otherwise
      */
-    public static FunctionInfo getFunction(String name) {
-        return globalSymbolTable.functions.get(name);
+    public FunctionInfo getFunction(String name) {
+        return functions.get(name);
     }
 
     /**
@@ -222,9 +204,9 @@ public class SymbolTable {
      * @param name The function name
      * @return The return type string if found, null otherwise
      */
-    public static String getFunctionReturnType(String name) {
-        FunctionInfo info = globalSymbolTable.functions.get(name);
-        return info != null ? globalSymbolTable.functions.get(name).getReturnType() : null;
+    public String getFunctionReturnType(String name) {
+        FunctionInfo info = functions.get(name);
+        return info != null ? info.getReturnType() : null;
     }
 
     /**
@@ -232,8 +214,8 @@ public class SymbolTable {
      * 
      * @return true if main function exists with correct signature
      */
-    public static boolean hasMainFunction() {
-        FunctionInfo main = globalSymbolTable.functions.get("main");
+    public boolean hasMainFunction() {
+        FunctionInfo main = functions.get("main");
         if (main == null) {
             return false;
         }
@@ -0,0 +1,1089 @@
+package testers;
+
+/*
+  Rough timing harness for the Jott front end. Not a unit test; it just
+  generates large synthetic Jott programs and prints how long each stage
+  takes so scaling problems show up. A mode whose result differs from the
+  plain front end's stops with an exception; testers.JottModeTester checks
+  every mode against it on the test case files.
+
+  Usage: java testers.JottBenchmark [parse|tokenize|word-scan|tokenize-parallel|parse-parallel|lazy|incremental|stream|fused|deep|table|index|cache|lower|compact|diagnostics|concurrent|memory]
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import ast.Lowering;
+import ast.Program;
+import parser.FlatTree;
+import parser.TreeCompactor;
+import parser.ProgramNode;
+import provided.IncrementalParser;
+import provided.JottCache;
+import provided.JottParser;
+import provided.JottTokenizer;
+import provided.JottTree;
+import provided.SignatureIndex;
+import provided.Token;
+import provided.TokenBuffer;
+import provided.TokenCursor;
+import provided.TokenStream;
+import semantics.Jott;
+
+public class JottBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int TIMED_ROUNDS = 5;
+
+    // one generated function, roughly 60 tokens
+    private static String functionSource(int n) {
+        return "Def f" + n + "[x:Integer, s:String]:Integer{\n"
+                + "    Integer y;\n"
+                + "    Double d;\n"
+                + "    y = x + " + n + ";\n"
+                + "    d = 1.5 * 2.0;\n"
+                + "    While [y < 100]{\n"
+                + "        y = y * 2;\n"
+                + "    }\n"
+                + "    If [y > 3]{\n"
+                + "        ::print[::concat[s, \"done\"]];\n"
+                + "    }\n"
+                + "    Elseif [y == 2]{\n"
+                + "        ::print[y];\n"
+                + "    }\n"
+                + "    Else {\n"
+                + "        y = -1;\n"
+                + "    }\n"
+                + "    Return y;\n"
+                + "}\n";
+    }
+
+    /**
+     * Builds a valid Jott program with at least the given number of tokens
+     * @param targetTokens how many tokens the program should have (approximately)
+     * @return the program text
+     */
+    static String generateProgram(int targetTokens) {
+        int perFunction = countTokens(functionSource(0));
+        int functions = Math.max(1, targetTokens / perFunction);
+        StringBuilder sb = new StringBuilder(functions * 300);
+        for (int i = 0; i < functions; i++) {
+            sb.append(functionSource(i));
+        }
+        sb.append("Def main[]:Void{\n    ::print[\"hi\"];\n}\n");
+        return sb.toString();
+    }
+
+    private static int countTokens(String source) {
+        try {
+            Path tmp = writeTemp(source);
+            int n = JottTokenizer.tokenizeToBuffer(tmp.toString()).size();
+            Files.delete(tmp);
+            return n;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    static Path writeTemp(String source) throws IOException {
+        Path tmp = Files.createTempFile("jottbench", ".jott");
+        Files.write(tmp, source.getBytes(StandardCharsets.UTF_8));
+        tmp.toFile().deleteOnExit();
+        return tmp;
+    }
+
+    // tokenize + parse at 1K..1M tokens, parse time per token should stay flat
+    private static void benchParse() throws IOException {
+        System.out.printf("%10s %12s %12s %12s%n", "tokens", "lex ms", "parse ms", "parse ns/tok");
+        for (int target = 1_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            TokenBuffer tokens = null;
+            long lexNanos = Long.MAX_VALUE;
+            long parseNanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+                long t1 = System.nanoTime();
+                JottTree root = JottParser.parse(new TokenCursor(tokens));
+                long t2 = System.nanoTime();
+                if (root == null) {
+                    throw new IllegalStateException("generated program failed to parse");
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    lexNanos = Math.min(lexNanos, t1 - t0);
+                    parseNanos = Math.min(parseNanos, t2 - t1);
+                }
+            }
+            System.out.printf("%10d %12.2f %12.2f %12.1f%n", tokens.size(), lexNanos / 1e6, parseNanos / 1e6,
+                    (double) parseNanos / tokens.size());
+            Files.delete(file);
+        }
+    }
+
+    // the phase3testcases files that tokenize cleanly, repeated until the source is about targetBytes long
+    private static String scaledCorpus(int targetBytes) throws IOException {
+        StringBuilder corpus = new StringBuilder();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get("phase3testcases"), "*.jott")) {
+            for (Path f : files) {
+                if (JottTokenizer.tokenizeToBuffer(f.toString()) != null) {
+                    corpus.append(new String(Files.readAllBytes(f), StandardCharsets.UTF_8)).append('\n');
+                }
+            }
+        }
+        if (corpus.length() == 0) {
+            throw new IOException("no phase3testcases found, run from the repository root");
+        }
+        StringBuilder sb = new StringBuilder(targetBytes + corpus.length());
+        while (sb.length() < targetBytes) {
+            sb.append(corpus);
+        }
+        return sb.toString();
+    }
+
+    // lexer throughput on the scaled-up phase3testcases corpus
+    private static void benchTokenize() throws IOException {
+        System.out.printf("%10s %12s %12s %14s%n", "KiB", "tokens", "lex ms", "Mtokens/s");
+        for (int kib = 64; kib <= 64 * 1024; kib *= 8) {
+            Path file = writeTemp(scaledCorpus(kib * 1024));
+            long nanos = Long.MAX_VALUE;
+            int count = 0;
+            for (int round = 0; round < WARMUP_ROUNDS * 2 + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                count = JottTokenizer.tokenizeToBuffer(file.toString()).size();
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS * 2) {
+                    nanos = Math.min(nanos, t1 - t0);
+                }
+            }
+            System.out.printf("%10d %12d %12.2f %14.1f%n", kib, count, nanos / 1e6, count * 1e3 / nanos);
+            Files.delete(file);
+        }
+    }
+
+    // scalar vs word-at-a-time skipping of spaces, comments and identifiers on the same corpus
+    private static void benchWordScan() throws IOException {
+        System.out.printf("%10s %12s %12s %12s %10s%n", "KiB", "tokens", "scalar ms", "word ms", "speedup");
+        for (int kib = 512; kib <= 64 * 1024; kib *= 8) {
+            Path file = writeTemp(scaledCorpus(kib * 1024));
+            long[] nanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            TokenBuffer[] tokens = new TokenBuffer[2];
+            for (int round = 0; round < WARMUP_ROUNDS * 2 + TIMED_ROUNDS; round++) {
+                for (int mode = 0; mode < 2; mode++) {
+                    long t0 = System.nanoTime();
+                    tokens[mode] = JottTokenizer.tokenizeToBuffer(file.toString(), mode == 1);
+                    long t1 = System.nanoTime();
+                    if (round >= WARMUP_ROUNDS * 2) {
+                        nanos[mode] = Math.min(nanos[mode], t1 - t0);
+                    }
+                }
+            }
+            if (!sameTokens(tokens[0], tokens[1])) {
+                throw new IllegalStateException("word scanning changed the tokens");
+            }
+            System.out.printf("%10d %12d %12.2f %12.2f %10.2f%n", kib, tokens[0].size(), nanos[0] / 1e6,
+                    nanos[1] / 1e6, (double) nanos[0] / nanos[1]);
+            Files.delete(file);
+        }
+    }
+
+    // sequential vs parallel tokenizing of one large file, for every pool size up to the core count
+    private static void benchTokenizeParallel() throws IOException {
+        Path file = writeTemp(generateProgram(2_000_000));
+        String name = file.toString();
+        long seqNanos = Long.MAX_VALUE;
+        TokenBuffer expected = null;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            expected = JottTokenizer.tokenizeToBuffer(name);
+            long t1 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                seqNanos = Math.min(seqNanos, t1 - t0);
+            }
+        }
+        System.out.printf("%d tokens, %d cores available%n", expected.size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%10s %12s %10s%n", "threads", "lex ms", "speedup");
+        System.out.printf("%10s %12.2f %10.2f%n", "seq", seqNanos / 1e6, 1.0);
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long parNanos = Long.MAX_VALUE;
+            TokenBuffer actual = null;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                actual = JottTokenizer.tokenizeParallel(name, pool);
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    parNanos = Math.min(parNanos, t1 - t0);
+                }
+            }
+            pool.shutdown();
+            if (!sameTokens(expected, actual)) {
+                throw new IllegalStateException("parallel tokens differ from sequential with " + threads + " threads");
+            }
+            System.out.printf("%10d %12.2f %10.2f%n", threads, parNanos / 1e6, (double) seqNanos / parNanos);
+        }
+        Files.delete(file);
+    }
+
+    // sequential vs parallel parsing of one large token buffer, for every pool size up to the core count
+    private static void benchParseParallel() throws IOException {
+        Path file = writeTemp(generateProgram(2_000_000));
+        TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+        long seqNanos = Long.MAX_VALUE;
+        String expected = null;
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            long t0 = System.nanoTime();
+            JottTree root = JottParser.parse(new TokenCursor(tokens));
+            long t1 = System.nanoTime();
+            expected = root.convertToJott();
+            if (round >= WARMUP_ROUNDS) {
+                seqNanos = Math.min(seqNanos, t1 - t0);
+            }
+        }
+        System.out.printf("%d tokens, %d cores available%n", tokens.size(), Runtime.getRuntime().availableProcessors());
+        System.out.printf("%10s %12s %10s%n", "threads", "parse ms", "speedup");
+        System.out.printf("%10s %12.2f %10.2f%n", "seq", seqNanos / 1e6, 1.0);
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads++) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            long parNanos = Long.MAX_VALUE;
+            JottTree root = null;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                root = JottParser.parseParallel(tokens, pool);
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    parNanos = Math.min(parNanos, t1 - t0);
+                }
+            }
+            pool.shutdown();
+            if (root == null || !root.convertToJott().equals(expected)) {
+                throw new IllegalStateException("parallel parse tree differs from sequential with " + threads + " threads");
+            }
+            System.out.printf("%10d %12.2f %10.2f%n", threads, parNanos / 1e6, (double) seqNanos / parNanos);
+        }
+        Files.delete(file);
+    }
+
+    // eager parse vs headers only vs headers plus forcing every body later
+    private static void benchLazy() throws IOException {
+        System.out.printf("%10s %12s %12s %12s%n", "tokens", "eager ms", "headers ms", "forced ms");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+            long[] nanos = {Long.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE};
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                JottTree eager = JottParser.parse(new TokenCursor(tokens));
+                long t1 = System.nanoTime();
+                ProgramNode lazy = (ProgramNode) JottParser.parseLazy(new TokenCursor(tokens));
+                long t2 = System.nanoTime();
+                lazy.parseBodies();
+                long t3 = System.nanoTime();
+                if (eager == null || !lazy.convertToJott().equals(eager.convertToJott())) {
+                    throw new IllegalStateException("lazy parse tree differs from the eager one");
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    nanos[0] = Math.min(nanos[0], t1 - t0);
+                    nanos[1] = Math.min(nanos[1], t2 - t1);
+                    nanos[2] = Math.min(nanos[2], t3 - t1);
+                }
+            }
+            System.out.printf("%10d %12.2f %12.2f %12.2f%n", tokens.size(), nanos[0] / 1e6, nanos[1] / 1e6,
+                    nanos[2] / 1e6);
+            Files.delete(file);
+        }
+    }
+
+    // one keystroke at a time in the middle of the file vs re-running the whole front end,
+    // the edit latency should not grow with the file
+    private static void benchIncremental() throws IOException {
+        final int edits = 200;
+        System.out.printf("%10s %12s %12s %12s%n", "tokens", "full ms", "edit us", "reparsed");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            String source = generateProgram(target);
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(source, "bench.jott");
+            long fullNanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                JottParser.parse(new TokenCursor(JottTokenizer.tokenizeToBuffer(source, "bench.jott")));
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    fullNanos = Math.min(fullNanos, t1 - t0);
+                }
+            }
+
+            // type digits into the constant of "y = x + n;" in the middle function, then delete them again
+            IncrementalParser session = new IncrementalParser(source, "bench.jott");
+            int offset = source.indexOf(";", source.indexOf("y = x + ", source.length() / 2));
+            long editNanos = Long.MAX_VALUE;
+            int reparsed = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < edits; i++) {
+                    session.edit(offset + i, 0, "7");
+                    reparsed = Math.max(reparsed, session.getReparsedCount());
+                }
+                for (int i = edits - 1; i >= 0; i--) {
+                    session.edit(offset + i, 1, "");
+                }
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    editNanos = Math.min(editNanos, (t1 - t0) / (2 * edits));
+                }
+            }
+            JottTree full = JottParser.parse(new TokenCursor(tokens));
+            if (session.getTree() == null || full == null
+                    || !session.getTree().convertToJott().equals(full.convertToJott())) {
+                throw new IllegalStateException("incremental parse tree differs from a full parse");
+            }
+            System.out.printf("%10d %12.2f %12.1f %12d%n", tokens.size(), fullNanos / 1e6, editNanos / 1e3, reparsed);
+        }
+    }
+
+    private static boolean sameTokens(TokenBuffer a, TokenBuffer b) {
+        if (b == null || a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.getType(i) != b.getType(i) || a.getStart(i) != b.getStart(i) || a.getLine(i) != b.getLine(i)
+                    || a.getKeyword(i) != b.getKeyword(i) || !a.getText(i).equals(b.getText(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // TokenStream over growing files: lexing time should scale with size while the lexer's memory does not
+    private static void benchStream() throws IOException {
+        System.out.printf("%10s %12s %14s %14s%n", "tokens", "stream ms", "window bytes", "stream+parse");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            long nanos = Long.MAX_VALUE;
+            int count = 0;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                try (TokenStream stream = JottTokenizer.tokenizeStream(file.toString())) {
+                    count = 0;
+                    while (stream.hasNext()) {
+                        stream.next();
+                        count++;
+                    }
+                }
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    nanos = Math.min(nanos, t1 - t0);
+                }
+            }
+            JottTree root;
+            try (TokenStream stream = JottTokenizer.tokenizeStream(file.toString())) {
+                root = JottParser.parse(stream);
+            }
+            System.out.printf("%10d %12.2f %14d %14s%n", count, nanos / 1e6, TokenStream.DEFAULT_WINDOW,
+                    root == null ? "FAILED" : "ok");
+            Files.delete(file);
+        }
+    }
+
+    // token list then parse vs the parser pulling tokens from a TokenScanner; the heap column is what is
+    // still reachable when parsing ends, for the fused pass that is the parse tree alone
+    private static void benchFused() throws IOException {
+        System.out.printf("%10s %12s %12s %14s %14s%n", "tokens", "list ms", "fused ms", "list+tree KiB", "fused KiB");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            long listNanos = Long.MAX_VALUE;
+            long fusedNanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                long t0 = System.nanoTime();
+                JottParser.parse(JottTokenizer.tokenize(file.toString()));
+                long t1 = System.nanoTime();
+                JottParser.parseOnDemand(file.toString());
+                long t2 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    listNanos = Math.min(listNanos, t1 - t0);
+                    fusedNanos = Math.min(fusedNanos, t2 - t1);
+                }
+            }
+
+            long before = usedHeap();
+            ArrayList<Token> tokens = JottTokenizer.tokenize(file.toString());
+            JottTree root = JottParser.parse(tokens);
+            long listBytes = usedHeap() - before;
+            int count = tokens.size(); // keeps the list reachable until it has been measured
+            String expected = root.convertToJott();
+            tokens = null;
+            root = null;
+
+            before = usedHeap();
+            JottTree fused = JottParser.parseOnDemand(file.toString());
+            long fusedBytes = usedHeap() - before;
+            if (fused == null || !fused.convertToJott().equals(expected)) {
+                throw new IllegalStateException("fused parse tree differs from the token list one");
+            }
+            System.out.printf("%10d %12.2f %12.2f %14d %14d%n", count, listNanos / 1e6, fusedNanos / 1e6,
+                    listBytes / 1024, fusedBytes / 1024);
+            Files.delete(file);
+        }
+    }
+
+    // one function whose body nests While and If blocks depth levels deep
+    private static String nestedProgram(int depth) {
+        StringBuilder sb = new StringBuilder(depth * 40);
+        sb.append("Def main[]:Void{\nInteger x;\nx = 0;\n");
+        for (int i = 0; i < depth; i++) {
+            sb.append(i % 2 == 0 ? "While [x < 1]{\n" : "If [x > 1]{\n");
+        }
+        sb.append("x = x + 1;\n");
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append(i % 2 == 0 ? "}\n" : "}\nElse {\nx = 2;\n}\n");
+        }
+        return sb.append("}\n").toString();
+    }
+
+    // a cursor whose nested bodies are parsed with an explicit stack, or recursively
+    private static TokenCursor bodiesCursor(TokenBuffer tokens, boolean iterative) {
+        TokenCursor cursor = new TokenCursor(tokens);
+        cursor.setIterativeBodies(iterative);
+        return cursor;
+    }
+
+    // runs a task on a thread with a 1 GiB stack, so the recursive parser can be timed at any depth
+    private static void onBigStack(Runnable task) {
+        Thread t = new Thread(null, task, "big-stack", 1L << 30);
+        t.start();
+        try {
+            t.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // recursive vs explicit-stack body parsing on deeply nested blocks. The recursive parser overflows
+    // the default stack, so it is also timed on a big one. Both must build the same tree, which is
+    // compared as Jott text up to 10K levels; nested convertToJott is quadratic in the depth.
+    private static void benchDeep() {
+        System.out.printf("%10s %10s %16s %16s %14s%n", "depth", "tokens", "default stack", "recursive ms", "iterative ms");
+        for (int depth = 1_000; depth <= 100_000; depth *= 10) {
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(nestedProgram(depth), "deep.jott");
+            String defaultStack;
+            try {
+                JottParser.parse(bodiesCursor(tokens, false));
+                defaultStack = "ok";
+            } catch (StackOverflowError e) {
+                defaultStack = "overflow";
+            }
+
+            long[] nanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            String[] jott = new String[2];
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                boolean timed = round >= WARMUP_ROUNDS;
+                boolean compare = timed && tokens.size() < 200_000;
+                onBigStack(() -> {
+                    TokenCursor recursive = bodiesCursor(tokens, false);
+                    long t0 = System.nanoTime();
+                    JottTree root = JottParser.parse(recursive);
+                    long t1 = System.nanoTime();
+                    if (timed) {
+                        nanos[0] = Math.min(nanos[0], t1 - t0);
+                        jott[0] = compare ? root.convertToJott() : "";
+                    }
+                });
+                TokenCursor iterative = bodiesCursor(tokens, true);
+                long t0 = System.nanoTime();
+                JottTree root = JottParser.parse(iterative);
+                long t1 = System.nanoTime();
+                if (timed) {
+                    nanos[1] = Math.min(nanos[1], t1 - t0);
+                    jott[1] = root == null ? null : "";
+                    if (compare) {
+                        onBigStack(() -> jott[1] = root.convertToJott()); // printing the tree still recurses
+                    }
+                }
+            }
+            if (jott[0] == null || !jott[0].equals(jott[1])) {
+                throw new IllegalStateException("iterative parse tree differs from the recursive one");
+            }
+            System.out.printf("%10d %10d %16s %16.2f %14.2f%n", depth, tokens.size(), defaultStack, nanos[0] / 1e6,
+                    nanos[1] / 1e6);
+        }
+    }
+
+    // parses with the hand-written or the table-driven dispatch, returns the Jott text of the tree
+    // (null if it does not parse) followed by whatever the parser printed
+    private static String parseWith(boolean table, TokenBuffer tokens) {
+        PrintStream err = System.err;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(printed));
+        try {
+            JottTree root = JottParser.parse(dispatchCursor(tokens, table));
+            return (root == null ? null : root.convertToJott()) + "\n" + printed;
+        } finally {
+            System.setErr(err);
+        }
+    }
+
+    // a cursor whose productions are picked from the predictive table, or by the hand-written tests
+    private static TokenCursor dispatchCursor(TokenBuffer tokens, boolean table) {
+        TokenCursor cursor = new TokenCursor(tokens);
+        cursor.setTableDispatch(table);
+        return cursor;
+    }
+
+    // hand-written vs table-driven production choice. Every test case has to give the same tree or
+    // the same error both ways before the two are timed on generated programs; the first one that
+    // does not stops the benchmark with an exception.
+    private static void benchTable() throws IOException {
+        int files = 0;
+        for (String dir : new String[] {"parserTestCases", "phase3testcases"}) {
+            try (DirectoryStream<Path> cases = Files.newDirectoryStream(Paths.get(dir), "*.jott")) {
+                for (Path f : cases) {
+                    TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(f.toString());
+                    if (tokens == null) {
+                        continue;
+                    }
+                    files++;
+                    if (!parseWith(false, tokens).equals(parseWith(true, tokens))) {
+                        throw new IllegalStateException("table-driven parse differs on " + f);
+                    }
+                }
+            }
+        }
+        if (files == 0) {
+            throw new IllegalStateException("no test cases found, run from the project directory");
+        }
+        System.out.println(files + " test cases, none differ");
+
+        System.out.printf("%10s %14s %12s %12s%n", "tokens", "hand ms", "table ms", "ratio");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(generateProgram(target), "bench.jott");
+            long[] nanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                for (int table = 0; table < 2; table++) {
+                    TokenCursor cursor = dispatchCursor(tokens, table == 1);
+                    long t0 = System.nanoTime();
+                    JottTree root = JottParser.parse(cursor);
+                    long t1 = System.nanoTime();
+                    if (root == null) {
+                        throw new IllegalStateException("generated program failed to parse");
+                    }
+                    if (round >= WARMUP_ROUNDS) {
+                        nanos[table] = Math.min(nanos[table], t1 - t0);
+                    }
+                }
+            }
+            System.out.printf("%10d %14.2f %12.2f %12.2f%n", tokens.size(), nanos[0] / 1e6, nanos[1] / 1e6,
+                    (double) nanos[0] / nanos[1]);
+        }
+    }
+
+    // a workspace of generated files: full front end vs header-only signature scan, sequential and
+    // in parallel, vs loading a saved index and refreshing it when nothing changed
+    private static void benchIndex() throws IOException {
+        final int tokensPerFile = 2_000;
+        System.out.printf("%8s %10s %12s %12s %14s %10s %12s %10s%n", "files", "functions", "full ms", "scan ms",
+                "parallel ms", "load ms", "refresh ms", "lookup ns");
+        for (int count = 100; count <= 10_000; count *= 10) {
+            Path dir = Files.createTempDirectory("jottindex");
+            List<Path> files = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                Path f = dir.resolve("f" + i + ".jott");
+                Files.write(f, generateProgram(tokensPerFile).getBytes(StandardCharsets.UTF_8));
+                files.add(f);
+            }
+            Path saved = dir.resolve("index.jsix");
+            int functionCount = 0;
+
+            long[] nanos = new long[6];
+            Arrays.fill(nanos, Long.MAX_VALUE);
+            for (int round = 0; round < 3; round++) {
+                long t0 = System.nanoTime();
+                int functions = 0;
+                for (Path f : files) {
+                    JottTree root = JottParser.parse(new TokenCursor(JottTokenizer.tokenizeToBuffer(f.toString())));
+                    root.validateTree();
+                    functions += ((ProgramNode) root).getFunctionDefs().size();
+                }
+                long t1 = System.nanoTime();
+                SignatureIndex index = SignatureIndex.build(files, new ForkJoinPool(1));
+                long t2 = System.nanoTime();
+                SignatureIndex parallel = SignatureIndex.build(files, ForkJoinPool.commonPool());
+                long t3 = System.nanoTime();
+                index.save(saved);
+                long t4 = System.nanoTime();
+                SignatureIndex loaded = SignatureIndex.load(saved);
+                long t5 = System.nanoTime();
+                SignatureIndex refreshed = loaded.update(files, ForkJoinPool.commonPool());
+                long t6 = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    refreshed.lookup("f" + i % 10);
+                }
+                long t7 = System.nanoTime();
+                if (index.size() != functions || parallel.size() != functions || refreshed.size() != functions
+                        || refreshed.lookup("main").size() != count) {
+                    throw new IllegalStateException("signature index does not match the parsed functions");
+                }
+                long[] times = {t1 - t0, t2 - t1, t3 - t2, t5 - t4, t6 - t5, (t7 - t6) / count};
+                for (int k = 0; k < times.length; k++) {
+                    nanos[k] = Math.min(nanos[k], times[k]);
+                }
+                functionCount = functions;
+            }
+            System.out.printf("%8d %10d %12.1f %12.1f %14.1f %10.1f %12.1f %10d%n", count, functionCount, nanos[0] / 1e6,
+                    nanos[1] / 1e6, nanos[2] / 1e6, nanos[3] / 1e6, nanos[4] / 1e6, nanos[5]);
+
+            for (Path f : files) {
+                Files.delete(f);
+            }
+            Files.delete(saved);
+            Files.delete(dir);
+        }
+    }
+
+    // a batch run over many files from source, then through the .jottc caches it leaves behind
+    private static void benchCache() throws IOException {
+        System.out.printf("%8s %10s %12s %12s %12s %12s %12s%n", "files", "tokens", "source ms", "first ms",
+                "cached ms", "map ms", "cache/src");
+        int count = 100;
+        Path dir = Files.createTempDirectory("jottcache");
+        List<Path> files = new ArrayList<>(count);
+        String program = generateProgram(10_000);
+        for (int i = 0; i < count; i++) {
+            Path f = dir.resolve("f" + i + ".jott");
+            Files.write(f, program.getBytes(StandardCharsets.UTF_8));
+            files.add(f);
+        }
+
+        long[] nanos = new long[4];
+        Arrays.fill(nanos, Long.MAX_VALUE);
+        for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+            for (Path f : files) {
+                Files.deleteIfExists(JottCache.cachePath(f));
+            }
+            long t0 = System.nanoTime();
+            for (Path f : files) {
+                check(Jott.runFile(f.toString()).isSuccess());
+            }
+            long t1 = System.nanoTime();
+            for (Path f : files) {
+                check(Jott.runFileCached(f.toString()).isSuccess()); // no cache yet, writes one
+            }
+            long t2 = System.nanoTime();
+            for (Path f : files) {
+                check(Jott.runFileCached(f.toString()).isSuccess());
+            }
+            long t3 = System.nanoTime();
+            for (Path f : files) {
+                check(JottCache.load(f, Files.readAllBytes(f)) != null);
+            }
+            long t4 = System.nanoTime();
+            if (round >= WARMUP_ROUNDS) {
+                long[] times = {t1 - t0, t2 - t1, t3 - t2, t4 - t3};
+                for (int k = 0; k < times.length; k++) {
+                    nanos[k] = Math.min(nanos[k], times[k]);
+                }
+            }
+        }
+        long sourceBytes = 0;
+        long cacheBytes = 0;
+        for (Path f : files) {
+            sourceBytes += Files.size(f);
+            cacheBytes += Files.size(JottCache.cachePath(f));
+        }
+        System.out.printf("%8d %10d %12.1f %12.1f %12.1f %12.1f %12.2f%n", count,
+                count * JottTokenizer.tokenizeToBuffer(files.get(0).toString()).size(), nanos[0] / 1e6,
+                nanos[1] / 1e6, nanos[2] / 1e6, nanos[3] / 1e6, (double) cacheBytes / sourceBytes);
+
+        for (Path f : files) {
+            Files.delete(JottCache.cachePath(f));
+            Files.delete(f);
+        }
+        Files.delete(dir);
+    }
+
+    private static void check(boolean ok) {
+        if (!ok) {
+            throw new IllegalStateException("cached run does not match the run from source");
+        }
+    }
+
+    // retained heap of a parse tree vs the same program lowered, and the time lowering takes
+    private static void benchLower() throws IOException {
+        System.out.printf("%10s %12s %14s %14s %10s%n", "tokens", "lower ms", "parse tree KiB", "lowered KiB",
+                "ratio");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            long nanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                ProgramNode tree = (ProgramNode) JottParser.parse(JottTokenizer.tokenize(file.toString()));
+                long t0 = System.nanoTime();
+                Lowering.lower(tree);
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    nanos = Math.min(nanos, t1 - t0);
+                }
+            }
+
+            // the tree keeps its tokens alive, the lowered program keeps nothing of the parse
+            long before = usedHeap();
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+            int count = tokens.size();
+            ProgramNode root = (ProgramNode) JottParser.parse(new TokenCursor(tokens));
+            tokens = null;
+            long treeBytes = usedHeap() - before;
+            int functions = root.getFunctionDefs().size();
+
+            Program lowered = Lowering.lower(root);
+            root = null;
+            long loweredBytes = usedHeap() - before;
+            if (lowered.getFunctions().length != functions) {
+                throw new IllegalStateException("lowered program lost functions");
+            }
+            System.out.printf("%10d %12.2f %14d %14d %10.1f%n", count, nanos / 1e6, treeBytes / 1024,
+                    loweredBytes / 1024, (double) treeBytes / loweredBytes);
+            Files.delete(file);
+        }
+    }
+
+    // retained heap of a parse tree before and after TreeCompactor, and the time compacting takes
+    private static void benchCompact() throws IOException {
+        System.out.printf("%10s %12s %14s %14s %10s%n", "tokens", "compact ms", "parse tree KiB", "compacted KiB",
+                "saved");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            long nanos = Long.MAX_VALUE;
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                ProgramNode tree = (ProgramNode) JottParser.parse(JottTokenizer.tokenize(file.toString()));
+                long t0 = System.nanoTime();
+                TreeCompactor.compact(tree);
+                long t1 = System.nanoTime();
+                if (round >= WARMUP_ROUNDS) {
+                    nanos = Math.min(nanos, t1 - t0);
+                }
+            }
+
+            long before = usedHeap();
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+            int count = tokens.size();
+            JottTree root = JottParser.parse(new TokenCursor(tokens));
+            tokens = null;
+            long treeBytes = usedHeap() - before;
+            String expected = root.convertToJott();
+
+            JottTree compacted = TreeCompactor.compact((ProgramNode) root);
+            root = null;
+            long compactBytes = usedHeap() - before;
+            if (!compacted.convertToJott().equals(expected)) {
+                throw new IllegalStateException("compacted tree does not match the parse tree");
+            }
+            System.out.printf("%10d %12.2f %14d %14d %9.1f%%%n", count, nanos / 1e6, treeBytes / 1024,
+                    compactBytes / 1024, 100.0 * (treeBytes - compactBytes) / treeBytes);
+            Files.delete(file);
+        }
+    }
+
+    // an Integer function whose If/Else blocks nest depth levels deep, every branch returns. The innermost
+    // If returns a Double unless valid, so checking that all paths return fails at the bottom.
+    private static String returnChainProgram(int depth, boolean valid) {
+        StringBuilder sb = new StringBuilder(depth * 40);
+        sb.append("Def f[x:Integer]:Integer{\n");
+        for (int i = 0; i < depth; i++) {
+            sb.append("If [x > ").append(i).append("]{\n");
+        }
+        sb.append(valid ? "Return 1;\n" : "Return 1.5;\n");
+        for (int i = depth - 1; i >= 0; i--) {
+            sb.append("}\nElse {\nReturn ").append(i).append(";\n}\n");
+        }
+        return sb.append("}\nDef main[]:Void{\n::print[::f[1]];\n}\n").toString();
+    }
+
+    // validation of nested If/Else return checks, for a program that passes and for one whose innermost
+    // return has the wrong type. The second includes printing the error, as a batch checker would.
+    private static void benchDiagnostics() {
+        System.out.printf("%8s %12s %12s%n", "depth", "valid us", "invalid us");
+        PrintStream err = System.err;
+        for (int depth = 10; depth <= 1_000; depth *= 10) {
+            JottTree valid = JottParser.parse(new TokenCursor(
+                    JottTokenizer.tokenizeToBuffer(returnChainProgram(depth, true), "valid.jott")));
+            JottTree invalid = JottParser.parse(new TokenCursor(
+                    JottTokenizer.tokenizeToBuffer(returnChainProgram(depth, false), "invalid.jott")));
+            int reps = 100_000 / depth;
+            long[] nanos = {Long.MAX_VALUE, Long.MAX_VALUE};
+            for (int round = 0; round < WARMUP_ROUNDS + TIMED_ROUNDS; round++) {
+                System.setErr(new PrintStream(new ByteArrayOutputStream()));
+                boolean ok = true;
+                long t0 = System.nanoTime();
+                for (int i = 0; i < reps; i++) {
+                    ok &= valid.validateTree();
+                }
+                long t1 = System.nanoTime();
+                for (int i = 0; i < reps; i++) {
+                    ok &= !invalid.validateTree(); // prints the error to the discarded stream
+                }
+                long t2 = System.nanoTime();
+                System.setErr(err);
+                if (!ok) {
+                    throw new IllegalStateException("return checks did not give the expected result");
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    nanos[0] = Math.min(nanos[0], t1 - t0);
+                    nanos[1] = Math.min(nanos[1], t2 - t1);
+                }
+            }
+            System.out.printf("%8d %12.2f %12.2f%n", depth, nanos[0] / 1e3 / reps, nanos[1] / 1e3 / reps);
+        }
+    }
+
+    // an OutputStream that writes to a buffer of the calling thread, so what each validation prints can be
+    // told apart when many run at once
+    private static final class PerThreadOutput extends OutputStream {
+        private final ThreadLocal<ByteArrayOutputStream> buffer = ThreadLocal.withInitial(ByteArrayOutputStream::new);
+
+        @Override
+        public void write(int b) {
+            buffer.get().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            buffer.get().write(b, off, len);
+        }
+
+        // what the calling thread printed since the last take
+        String take() {
+            String printed = buffer.get().toString(StandardCharsets.UTF_8);
+            buffer.get().reset();
+            return printed;
+        }
+    }
+
+    // stress test of validation on many threads at once. Every program is validated once on its own to
+    // get its result and printed error, then thousands of validations of the same trees run on a pool,
+    // and every one has to give the same result and print the same error. Every other validation is of a
+    // lazily parsed copy made for the round, so the threads also race to parse its deferred bodies.
+    private static void benchConcurrent() throws IOException {
+        PerThreadOutput output = new PerThreadOutput();
+        PrintStream err = System.err;
+        System.setErr(new PrintStream(output, true, StandardCharsets.UTF_8));
+        List<JottTree> programs = new ArrayList<>();
+        List<TokenBuffer> programTokens = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        try {
+            List<String> sources = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (String dir : new String[] {"parserTestCases", "phase3testcases"}) {
+                try (DirectoryStream<Path> cases = Files.newDirectoryStream(Paths.get(dir), "*.jott")) {
+                    for (Path f : cases) {
+                        sources.add(new String(Files.readAllBytes(f), StandardCharsets.UTF_8));
+                        names.add(f.toString());
+                    }
+                }
+            }
+            for (int depth = 1; depth <= 16; depth *= 2) {
+                sources.add(returnChainProgram(depth, depth % 2 == 0));
+                names.add("chain" + depth + ".jott");
+            }
+            sources.add(generateProgram(5_000));
+            names.add("generated.jott");
+
+            for (int i = 0; i < sources.size(); i++) {
+                TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(sources.get(i), names.get(i));
+                JottTree root = tokens == null ? null : JottParser.parse(new TokenCursor(tokens));
+                output.take(); // syntax errors
+                if (root != null) {
+                    boolean valid = root.validateTree();
+                    programs.add(root);
+                    programTokens.add(tokens);
+                    expected.add(valid + "\n" + output.take());
+                }
+            }
+        } finally {
+            System.setErr(err);
+        }
+
+        System.out.println(programs.size() + " programs");
+        System.out.printf("%8s %12s %14s %14s %10s%n", "threads", "validations", "sequential ms", "concurrent ms",
+                "differ");
+        final int perThread = 2_000;
+        for (int threads = 2; threads <= 32; threads *= 4) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            int total = threads * perThread;
+            long sequential = Long.MAX_VALUE;
+            long concurrent = Long.MAX_VALUE;
+            int differ = 0;
+            System.setErr(new PrintStream(output, true, StandardCharsets.UTF_8));
+            try {
+                for (int round = 0; round < WARMUP_ROUNDS; round++) {
+                    List<JottTree> lazy = new ArrayList<>(programs.size());
+                    for (TokenBuffer tokens : programTokens) {
+                        lazy.add(JottParser.parseLazy(new TokenCursor(tokens)));
+                    }
+                    long t0 = System.nanoTime();
+                    for (int i = 0; i < total; i++) {
+                        int p = i % programs.size();
+                        programs.get(p).validateTree();
+                        output.take();
+                    }
+                    long t1 = System.nanoTime();
+                    List<Callable<Integer>> tasks = new ArrayList<>(threads);
+                    for (int t = 0; t < threads; t++) {
+                        int first = t;
+                        tasks.add(() -> {
+                            int wrong = 0;
+                            for (int i = 0; i < perThread; i++) {
+                                int p = (first + i) % programs.size(); // threads start on different programs
+                                boolean valid = (i % 2 == 0 ? programs : lazy).get(p).validateTree();
+                                if (!(valid + "\n" + output.take()).equals(expected.get(p))) {
+                                    wrong++;
+                                }
+                            }
+                            return wrong;
+                        });
+                    }
+                    differ = 0;
+                    for (Future<Integer> f : pool.invokeAll(tasks)) {
+                        differ += f.get();
+                    }
+                    long t2 = System.nanoTime();
+                    sequential = Math.min(sequential, t1 - t0);
+                    concurrent = Math.min(concurrent, t2 - t1);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                System.setErr(err);
+                pool.shutdown();
+            }
+            System.out.printf("%8d %12d %14.1f %14.1f %10d%n", threads, total, sequential / 1e6, concurrent / 1e6,
+                    differ);
+            if (differ > 0) {
+                throw new IllegalStateException("concurrent validation differs from validating one program at a time");
+            }
+        }
+    }
+
+    // heap in use after a full collection, good enough to compare two structures of the same program
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    // retained heap of the parse node tree vs the flat tree for the same tokens, and what validating
+    // each costs. Validating a flat tree builds its parse nodes once and keeps them, so the first
+    // validation pays for the build and the flat tree then retains both forms.
+    private static void benchMemory() throws IOException {
+        System.out.printf("%10s %10s %14s %14s %12s %10s %14s %14s %14s %14s%n", "tokens", "nodes", "objects KiB",
+                "flat KiB", "flat B/node", "ratio", "obj valid ms", "flat 1st ms", "flat again ms",
+                "validated KiB");
+        for (int target = 10_000; target <= 1_000_000; target *= 10) {
+            Path file = writeTemp(generateProgram(target));
+            TokenBuffer tokens = JottTokenizer.tokenizeToBuffer(file.toString());
+            long before = usedHeap();
+            JottTree root = JottParser.parse(new TokenCursor(tokens));
+            long objectBytes = usedHeap() - before;
+            String expected = root.convertToJott();
+            long t0 = System.nanoTime();
+            boolean valid = root.validateTree();
+            long objectValidate = System.nanoTime() - t0;
+            root = null;
+
+            before = usedHeap();
+            FlatTree flat = JottParser.parseFlat(tokens);
+            long flatBytes = usedHeap() - before;
+            if (!flat.getRoot().convertToJott().equals(expected)) {
+                throw new IllegalStateException("flat tree does not match the parse tree");
+            }
+            long t1 = System.nanoTime();
+            boolean flatValid = flat.getRoot().validateTree();
+            long t2 = System.nanoTime();
+            flat.getRoot().validateTree();
+            long t3 = System.nanoTime();
+            long validatedBytes = usedHeap() - before;
+            if (!valid || !flatValid) {
+                throw new IllegalStateException("generated program did not validate");
+            }
+            System.out.printf("%10d %10d %14d %14d %12.1f %10.1f %14.2f %14.2f %14.2f %14d%n", tokens.size(),
+                    flat.size(), objectBytes / 1024, flatBytes / 1024, (double) flatBytes / flat.size(),
+                    (double) objectBytes / flatBytes, objectValidate / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6,
+                    validatedBytes / 1024);
+            Files.delete(file);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String mode = args.length > 0 ? args[0] : "parse";
+        switch (mode) {
+            case "parse":
+                benchParse();
+                break;
+            case "tokenize":
+                benchTokenize();
+                break;
+            case "word-scan":
+                benchWordScan();
+                break;
+            case "tokenize-parallel":
+                benchTokenizeParallel();
+                break;
+            case "parse-parallel":
+                benchParseParallel();
+                break;
+            case "lazy":
+                benchLazy();
+                break;
+            case "incremental":
+                benchIncremental();
+                break;
+            case "stream":
+                benchStream();
+                break;
+            case "fused":
+                benchFused();
+                break;
+            case "deep":
+                benchDeep();
+                break;
+            case "table":
+                benchTable();
+                break;
+            case "index":
+                benchIndex();
+                break;
+            case "cache":
+                benchCache();
+                break;
+            case "lower":
+                benchLower();
+                break;
+            case "compact":
+                benchCompact();
+                break;
+            case "diagnostics":
+                benchDiagnostics();
+                break;
+            case "concurrent":
+                benchConcurrent();
+                break;
+            case "memory":
+                benchMemory();
+                break;
+            default:
+                System.err.println("Usage: java testers.JottBenchmark [parse|tokenize|word-scan|tokenize-parallel|parse-parallel|lazy|incremental|stream|fused|deep|table|index|cache|lower|compact|diagnostics|concurrent|memory]");
+                System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package testers;
+
+/*
+  Jott mode tester. Every alternative way of tokenizing, parsing or running
+  a program has to give the same result as the plain one. This runs each of
+  them over every test case file and compares: the tokens, or the tree as
+  Jott code together with what parsing and validating printed, or the
+  JottResult of a run.
+
+  Run from the project directory, like the other testers.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import parser.FlatTree;
+import parser.ParseException;
+import parser.ProgramNode;
+import parser.TreeCompactor;
+import provided.IncrementalParser;
+import provided.JottCache;
+import provided.JottParser;
+import provided.JottTokenizer;
+import provided.JottTree;
+import provided.TokenBuffer;
+import provided.TokenCursor;
+import semantics.Jott;
+import semantics.JottResult;
+
+public class JottModeTester {
+    private static final String[] TEST_DIRS = {"tokenizerTestCases", "parserTestCases", "phase3testcases"};
+    private static final int THREADS = 8;
+
+    ArrayList<TestCase> testCases;
+    ArrayList<Path> files;
+    ForkJoinPool pool = new ForkJoinPool(THREADS);
+
+    // the result of one way of handling one file, as text that can be compared
+    private interface Outcome {
+        String of(Path file) throws Exception;
+    }
+
+    // a tokenizer mode
+    private interface Tokenize {
+        TokenBuffer apply(Path file) throws Exception;
+    }
+
+    // a parser mode, given the file and its tokens from the plain tokenizer
+    private interface Parse {
+        JottTree apply(Path file, TokenBuffer tokens) throws Exception;
+    }
+
+    private static class TestCase{
+        String testName;
+        Outcome expected;
+        Outcome actual;
+
+        public TestCase(String testName, Outcome expected, Outcome actual) {
+            this.testName = testName;
+            this.expected = expected;
+            this.actual = actual;
+        }
+    }
+
+    private void createTestCases(){
+        this.testCases = new ArrayList<>();
+
+        Outcome tokens = tokens(file -> JottTokenizer.tokenizeToBuffer(file.toString(), false));
+        this.testCases.add(new TestCase("word scanning", tokens,
+                tokens(file -> JottTokenizer.tokenizeToBuffer(file.toString(), true))));
+        this.testCases.add(new TestCase("parallel tokenizing", tokens,
+                tokens(file -> JottTokenizer.tokenizeParallel(file.toString(), pool))));
+
+        Outcome tree = tree((file, t) -> JottParser.parse(new TokenCursor(t)), true);
+        this.testCases.add(new TestCase("parallel parsing", tree,
+                tree((file, t) -> JottParser.parseParallel(t, pool), true)));
+        this.testCases.add(new TestCase("fused tokenizing and parsing", tree,
+                tree((file, t) -> JottParser.parseOnDemand(file.toString()), true)));
+        this.testCases.add(new TestCase("iterative bodies", tree, tree((file, t) -> {
+            TokenCursor cursor = new TokenCursor(t);
+            cursor.setIterativeBodies(true);
+            return JottParser.parse(cursor);
+        }, true)));
+        this.testCases.add(new TestCase("table dispatch", tree, tree((file, t) -> {
+            TokenCursor cursor = new TokenCursor(t);
+            cursor.setTableDispatch(true);
+            return JottParser.parse(cursor);
+        }, true)));
+        this.testCases.add(new TestCase("compacted tree", tree, tree((file, t) -> {
+            JottTree root = JottParser.parse(new TokenCursor(t));
+            return root == null ? null : TreeCompactor.compact((ProgramNode) root);
+        }, true)));
+        this.testCases.add(new TestCase("incremental edit", tree, tree((file, t) -> {
+            // a session reports the program's error after every edit, only the last one is compared
+            String source = read(file);
+            IncrementalParser[] session = new IncrementalParser[1];
+            printed(() -> {
+                session[0] = new IncrementalParser(source, file.toString());
+                session[0].edit(source.length() / 2, 0, " ");
+            });
+            return session[0].edit(source.length() / 2, 1, "");
+        }, true)));
+
+        // these report a syntax error later than the plain parser, lazy bodies when a body is first
+        // used, or in their own words, so only the trees of the programs that parse are compared
+        Outcome treeOnly = tree((file, t) -> JottParser.parse(new TokenCursor(t)), false);
+        this.testCases.add(new TestCase("lazy bodies", treeOnly,
+                tree((file, t) -> JottParser.parseLazy(new TokenCursor(t)), false)));
+        this.testCases.add(new TestCase("flat tree", treeOnly, tree((file, t) -> {
+            FlatTree flat = JottParser.parseFlat(t);
+            return flat == null ? null : flat.getRoot();
+        }, false)));
+
+        Outcome run = file -> result(Jott.runFile(file.toString()));
+        this.testCases.add(new TestCase("cached run", run, this::cachedRun));
+        this.testCases.add(new TestCase("concurrent runs", run, this::concurrentRun));
+    }
+
+    private Outcome tokens(Tokenize tokenize){
+        return file -> {
+            TokenBuffer[] tokens = new TokenBuffer[1];
+            String printed = printed(() -> tokens[0] = tokenize.apply(file));
+            StringBuilder sb = new StringBuilder(printed);
+            if (tokens[0] != null) {
+                for (int i = 0; i < tokens[0].size(); i++) {
+                    sb.append(tokens[0].getType(i)).append(' ').append(tokens[0].getLine(i)).append(':')
+                            .append(tokens[0].getColumn(i)).append(' ').append(tokens[0].getText(i)).append('\n');
+                }
+            }
+            return sb.toString();
+        };
+    }
+
+    private Outcome tree(Parse parse, boolean sameErrors){
+        return file -> {
+            TokenBuffer[] tokens = new TokenBuffer[1];
+            JottTree[] root = new JottTree[1];
+            String printed = printed(() -> {
+                tokens[0] = JottTokenizer.tokenizeToBuffer(file.toString());
+                if (tokens[0] != null) {
+                    root[0] = parse.apply(file, tokens[0]);
+                }
+            });
+            if (tokens[0] == null) {
+                return "does not tokenize";
+            }
+            if (root[0] == null) {
+                return sameErrors ? "does not parse\n" + printed : "does not parse";
+            }
+            boolean[] valid = new boolean[1];
+            String validation = printed(() -> valid[0] = root[0].validateTree());
+            try {
+                return printed + root[0].convertToJott() + "\n" + valid[0] + "\n" + validation;
+            } catch (ParseException e) {
+                if (sameErrors) {
+                    throw e;
+                }
+                return "does not parse"; // a lazily parsed body
+            }
+        };
+    }
+
+    private static String result(JottResult result){
+        return result.getFailedStage() + "\n" + result.getMessage() + "\n"
+                + (result.getTree() == null ? null : result.getTree().convertToJott());
+    }
+
+    // the second run of a copy of the file, which reads the cache the first one wrote
+    private String cachedRun(Path file) throws IOException {
+        Path dir = Files.createTempDirectory("jottmodes");
+        Path copy = dir.resolve(file.getFileName());
+        Files.copy(file, copy);
+        try {
+            Jott.runFileCached(copy.toString());
+            // the tree and message name the file, so the copy reports the original's name
+            String text = result(Jott.runFileCached(copy.toString()));
+            return text.replace(copy.toString(), file.toString());
+        } finally {
+            Files.deleteIfExists(JottCache.cachePath(copy));
+            Files.delete(copy);
+            Files.delete(dir);
+        }
+    }
+
+    // the same program run on every thread of the pool at once, which all have to agree
+    private String concurrentRun(Path file) throws Exception {
+        String source = read(file);
+        ArrayList<Future<String>> runs = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            runs.add(pool.submit(() -> result(Jott.run(source, file.toString()))));
+        }
+        String first = runs.get(0).get();
+        for (Future<String> run : runs) {
+            if (!run.get().equals(first)) {
+                return "threads disagree:\n" + first + "\n" + run.get();
+            }
+        }
+        return first;
+    }
+
+    private interface Action {
+        void run() throws Exception;
+    }
+
+    // runs an action and returns what it printed to System.err
+    private static String printed(Action action) throws Exception {
+        PrintStream err = System.err;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setErr(new PrintStream(printed, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setErr(err);
+        }
+        return printed.toString(StandardCharsets.UTF_8);
+    }
+
+    private static String read(Path file) throws IOException {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+
+    private void findFiles() throws IOException {
+        this.files = new ArrayList<>();
+        for (String dir : TEST_DIRS) {
+            try (DirectoryStream<Path> cases = Files.newDirectoryStream(Paths.get(dir), "*.jott")) {
+                for (Path f : cases) {
+                    if (!f.getFileName().toString().endsWith("TestTemp.jott")) { // rewritten by the other testers
+                        files.add(f);
+                    }
+                }
+            }
+        }
+        files.sort(null);
+    }
+
+    private boolean runTest(TestCase test){
+        System.out.println("Running Test: " + test.testName);
+        try {
+            for (Path f : files) {
+                String expected = test.expected.of(f);
+                String actual = test.actual.of(f);
+                if (!expected.equals(actual)) {
+                    fail(test.testName, "Differs on " + f + ".\nExpected: " + expected + "\nGot     : " + actual);
+                    return false;
+                }
+            }
+            pass(test.testName, "Same result on all " + files.size() + " test case files.");
+            return true;
+        } catch (Exception e) {
+            fail(test.testName, "Unknown Exception occurred.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void pass(String testName, String reason){
+        System.out.println("\tPassed Test: " + testName);
+        System.out.println("\tReason: " + reason + "\n");
+    }
+
+    private void fail(String testName, String reason){
+        System.err.println("\tFailed Test: " + testName);
+        System.err.println("\t" + reason);
+    }
+
+    public static void main(String[] args) throws IOException {
+        JottModeTester tester = new JottModeTester();
+        tester.findFiles();
+        if (tester.files.isEmpty()) {
+            System.err.println("No test case files found, run from the project directory.");
+            System.exit(1);
+        }
+
+        int numTests = 0;
+        int passedTests = 0;
+        tester.createTestCases();
+        for(JottModeTester.TestCase test: tester.testCases){
+            numTests++;
+            if(tester.runTest(test)) passedTests++;
+        }
+        tester.pool.shutdown();
+
+        System.out.printf("Passed: %d/%d%n", passedTests, numTests);
+        if (passedTests != numTests) {
+            System.exit(1);
+        }
+    }
+}
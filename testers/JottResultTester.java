@@ -0,0 +1,109 @@
+package testers;
+
+/*
+  Jott result tester. Runs small in-memory programs through semantics.Jott
+  and checks that the stage that failed and the message kept in the
+  JottResult are the ones the tokenizer, parser and validator report. The
+  Jott entry points print nothing, so a message that is not kept is lost.
+ */
+
+import java.util.ArrayList;
+
+import provided.Diagnostic;
+import semantics.Jott;
+import semantics.JottResult;
+
+public class JottResultTester {
+    ArrayList<TestCase> testCases;
+
+    private static class TestCase{
+        String testName;
+        String source;
+        JottResult.Stage stage;
+        Diagnostic.Code code;
+        String message;
+
+        public TestCase(String testName, String source, JottResult.Stage stage, Diagnostic.Code code,
+                        String message) {
+            this.testName = testName;
+            this.source = source;
+            this.stage = stage;
+            this.code = code;
+            this.message = message;
+        }
+    }
+
+    private void createTestCases(){
+        this.testCases = new ArrayList<>();
+        this.testCases.add(new TestCase("valid program", "Def main[]:Void{ ::print[1]; }",
+                null, null, null));
+        this.testCases.add(new TestCase("tokenize error", "Def main[]:Void{ x = 1 ! 2; }",
+                JottResult.Stage.TOKENIZE, Diagnostic.Code.LEXICAL,
+                "Syntax Error: Invalid token \"!\". \"!\" expects following \"=\".\n\tFilepath: mem.jott:1"));
+        this.testCases.add(new TestCase("integer literal out of range", "Def main[]:Void{ x = 99999999999999999999; }",
+                JottResult.Stage.TOKENIZE, Diagnostic.Code.LEXICAL,
+                "Syntax Error: Integer literal \"99999999999999999999\" is out of range.\n\tFilepath: mem.jott:1"));
+        this.testCases.add(new TestCase("parse error", "Def main[]:Void{ ::print[1]; ",
+                JottResult.Stage.PARSE, Diagnostic.Code.SYNTAX,
+                "Syntax Error\nparseReturnStmtNode: missing closing }"));
+        this.testCases.add(new TestCase("validate error", "Def main[]:Void{ ::foo[1]; }",
+                JottResult.Stage.VALIDATE, Diagnostic.Code.SEMANTIC,
+                "Semantic Error\nFunctionCallNode: Function 'foo' is not declared.\nmem.jott:1"));
+        this.testCases.add(new TestCase("validate error with a code", "Def f[]:Integer{ ::print[1]; }\n"
+                + "Def main[]:Void{ ::print[1]; }",
+                JottResult.Stage.VALIDATE, Diagnostic.Code.RETURN_MISSING,
+                "Semantic Error\nReturnStmtNode: Expected a return value of type 'Integer', but no value was returned."));
+    }
+
+    private boolean resultTest(TestCase test){
+        try {
+            JottResult result = Jott.run(test.source, "mem.jott");
+            if (result.getFailedStage() != test.stage) {
+                fail(test.testName, "Expected stage " + test.stage + "; got " + result.getFailedStage());
+                return false;
+            }
+            Diagnostic diagnostic = result.getDiagnostic();
+            Diagnostic.Code code = diagnostic == null ? null : diagnostic.getCode();
+            if (code != test.code) {
+                fail(test.testName, "Expected diagnostic " + test.code + "; got " + code);
+                return false;
+            }
+            String message = result.getMessage();
+            if (test.message == null ? message != null : !test.message.equals(message)) {
+                fail(test.testName, "Message mismatch.\nExpected: " + test.message + "\nGot     : " + message);
+                return false;
+            }
+            pass(test.testName, test.stage == null ? "Program ran." : "Failed in " + test.stage + " as expected.");
+            return true;
+        } catch (Exception e) {
+            fail(test.testName, "Unknown Exception occurred.");
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    private void pass(String testName, String reason){
+        System.out.println("\tPassed Test: " + testName);
+        System.out.println("\tReason: " + reason + "\n");
+    }
+
+    private void fail(String testName, String reason){
+        System.err.println("\tFailed Test: " + testName);
+        System.err.println("\t" + reason);
+    }
+
+    public static void main(String[] args) {
+        JottResultTester tester = new JottResultTester();
+
+        int numTests = 0;
+        int passedTests = 0;
+        tester.createTestCases();
+        for(JottResultTester.TestCase test: tester.testCases){
+            numTests++;
+            System.out.println("Running Test: " + test.testName);
+            if(tester.resultTest(test)) passedTests++;
+        }
+
+        System.out.printf("Passed: %d/%d%n", passedTests, numTests);
+    }
+}